@@ -0,0 +1,353 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+//Load test for EnrollmentService.  Creates a scratch section with a small
+//	capacity and has many threads, each with its own connection pool as if
+//	it were a separate workstation, enroll and drop students in it at the
+//	same time.  A watcher thread keeps counting the roster while they run.
+//	The test fails (exit code 1) if the roster is ever seen above capacity,
+//	if a student ends up both enrolled and waitlisted, or if seats are left
+//	empty while students are waiting.
+//
+//	"mvn verify" runs it against a scratch database in benchmarks/target,
+//	and fails the build if it fails.  To run it by hand after "mvn package":
+//		java -cp benchmarks/target/benchmarks.jar EnrollmentLoadTest [threads] [students] [capacity]
+//	Use -Dgradebook.db.url=jdbc:sqlite:path/to/db to point it at another
+//	database.  An empty database is first filled with [students] students
+//	by DatasetGenerator; any other needs at least that many
+//
+public class EnrollmentLoadTest {
+
+	private static final int ROUNDS = 20;
+
+	public static void main(String args[]) throws Exception{
+
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+		int studentCount = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+		final int capacity = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+		ConnectionPool pool = ConnectionPool.getInstance();
+		new SchemaMigrator(pool).migrate();
+
+		if(isEmpty(pool)){
+			System.out.println("Empty database, generating " + studentCount + " students");
+			new DatasetGenerator(pool, DatasetGenerator.DEFAULT_SEED, studentCount, 10, 1).generate(null);
+		}
+
+		final int[] studentIds = loadStudents(pool, studentCount);
+
+		if(studentIds.length < studentCount){
+			System.err.println("Only " + studentIds.length + " students in the database, " + studentCount + " needed");
+			pool.shutdown();
+			System.exit(1);
+		}
+
+		final int classId = createSection(pool, capacity);
+		System.out.println("Section " + classId + ", capacity " + capacity + ", " + threads + " threads, "
+				+ studentCount + " students, " + ROUNDS + " rounds each");
+
+		final AtomicInteger enrolled = new AtomicInteger();
+		final AtomicInteger waitlisted = new AtomicInteger();
+		final AtomicInteger dropped = new AtomicInteger();
+		final AtomicInteger promoted = new AtomicInteger();
+		final AtomicInteger errors = new AtomicInteger();
+		final AtomicInteger maxSeen = new AtomicInteger();
+		final AtomicBoolean running = new AtomicBoolean(true);
+
+		//Counts the roster over and over on its own connection
+		//
+		Thread watcher = new Thread(new Runnable(){
+			public void run(){
+				ConnectionPool own = new ConnectionPool(ConnectionPool.getInstance().getUrl());
+
+				try{
+					while(running.get()){
+						int count = countRoster(own, classId);
+
+						if(count > maxSeen.get()){
+							maxSeen.set(count);
+						}
+					}
+				}
+
+				catch(SQLException e){
+					System.err.println(e);
+					errors.incrementAndGet();
+				}
+
+				own.shutdown();
+			}
+		});
+
+		final CountDownLatch start = new CountDownLatch(1);
+		List<Thread> workers = new ArrayList<Thread>();
+
+		for(int t = 0; t < threads; t++){
+			final int seed = t;
+
+			workers.add(new Thread(new Runnable(){
+				public void run(){
+					ConnectionPool own = new ConnectionPool(ConnectionPool.getInstance().getUrl());
+					EnrollmentService service = new EnrollmentService(own);
+					Random random = new Random(seed);
+
+					try{
+						start.await();
+
+						//Mostly bulk enrolls of one to five students, with
+						//	some drops to open seats and move the waitlist
+						//
+						for(int round = 0; round < ROUNDS; round++){
+							int[] batch = new int[1 + random.nextInt(5)];
+
+							for(int i = 0; i < batch.length; i++){
+								batch[i] = studentIds[random.nextInt(studentIds.length)];
+							}
+
+							EnrollmentService.EnrollmentResult result = random.nextInt(4) == 0
+									? service.drop(classId, batch) : service.enroll(classId, batch);
+
+							enrolled.addAndGet(result.getEnrolled().size());
+							waitlisted.addAndGet(result.getWaitlisted().size());
+							dropped.addAndGet(result.getDropped().size());
+							promoted.addAndGet(result.getPromoted().size());
+						}
+					}
+
+					catch(Exception e){
+						System.err.println(e);
+						errors.incrementAndGet();
+					}
+
+					own.shutdown();
+				}
+			}));
+		}
+
+		watcher.start();
+
+		for(Thread worker : workers){
+			worker.start();
+		}
+
+		long began = System.nanoTime();
+		start.countDown();
+
+		for(Thread worker : workers){
+			worker.join();
+		}
+
+		double seconds = (System.nanoTime() - began) / 1000000000.0;
+		running.set(false);
+		watcher.join();
+
+		int finalCount = countRoster(pool, classId);
+		List<Integer> waiting = new EnrollmentService(pool).listWaitlist(classId);
+		Set<Integer> both = new HashSet<Integer>(waiting);
+		both.retainAll(rosterIds(pool, classId));
+
+		System.out.println(String.format("%d calls in %.2f s (%.0f calls/s)", threads * ROUNDS, seconds, threads * ROUNDS / seconds));
+		System.out.println("Seats taken " + enrolled + ", waitlisted " + waitlisted + ", dropped " + dropped
+				+ ", promoted " + promoted + ", errors " + errors);
+		System.out.println("Roster " + finalCount + " of " + capacity + " (highest seen " + maxSeen + "), waitlist " + waiting.size());
+
+		boolean failed = false;
+
+		if(maxSeen.get() > capacity || finalCount > capacity){
+			System.out.println("FAIL: the section was over-enrolled");
+			failed = true;
+		}
+
+		if(finalCount != enrolled.get() + promoted.get() - dropped.get()){
+			System.out.println("FAIL: the roster does not match the seats taken and dropped");
+			failed = true;
+		}
+
+		if(!both.isEmpty()){
+			System.out.println("FAIL: students both enrolled and waitlisted: " + both);
+			failed = true;
+		}
+
+		if(!waiting.isEmpty() && finalCount < capacity){
+			System.out.println("FAIL: seats are empty while students are waiting");
+			failed = true;
+		}
+
+		if(errors.get() > 0){
+			System.out.println("FAIL: " + errors + " calls failed");
+			failed = true;
+		}
+
+		removeSection(pool, classId);
+		System.out.println(failed ? "FAILED" : "PASSED");
+		pool.shutdown();
+
+		System.exit(failed ? 1 : 0);
+	}
+
+
+	private static boolean isEmpty(ConnectionPool pool) throws SQLException{
+
+		Connection c = pool.getConnection();
+
+		try{
+			Statement stmt = c.createStatement();
+			ResultSet rs = stmt.executeQuery("SELECT (SELECT count(*) FROM student) + (SELECT count(*) FROM course_sections)");
+			boolean empty = rs.next() && rs.getLong(1) == 0;
+
+			rs.close();
+			stmt.close();
+
+			return empty;
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+	}
+
+
+	private static int[] loadStudents(ConnectionPool pool, int count) throws SQLException{
+
+		List<Integer> ids = new ArrayList<Integer>();
+		Connection c = pool.getConnection();
+
+		try{
+			PreparedStatement ps = c.prepareStatement("SELECT id_num FROM student ORDER BY id_num LIMIT ?");
+			ps.setInt(1, count);
+			ResultSet rs = ps.executeQuery();
+
+			while(rs.next()){
+				ids.add(rs.getInt(1));
+			}
+
+			rs.close();
+			ps.close();
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+
+		Collections.shuffle(ids, new Random(42));
+
+		int[] array = new int[ids.size()];
+		for(int i = 0; i < array.length; i++){
+			array[i] = ids.get(i);
+		}
+
+		return array;
+	}
+
+
+	private static int createSection(ConnectionPool pool, int capacity) throws SQLException{
+
+		Connection c = pool.getConnection();
+
+		try{
+			Statement stmt = c.createStatement();
+			stmt.executeUpdate("INSERT INTO courses (course_number, course_name) VALUES ('LOAD-TEST', 'Enrollment load test')");
+
+			PreparedStatement ps = c.prepareStatement("INSERT INTO course_sections (course_id, meeting_day, max_students) "
+					+ "VALUES (last_insert_rowid(), 'MWF', ?)");
+			ps.setInt(1, capacity);
+			ps.executeUpdate();
+			ps.close();
+
+			ResultSet rs = stmt.executeQuery("SELECT last_insert_rowid()");
+			rs.next();
+			int classId = rs.getInt(1);
+			rs.close();
+			stmt.close();
+
+			return classId;
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+	}
+
+
+	private static void removeSection(ConnectionPool pool, int classId) throws SQLException{
+
+		Connection c = pool.getConnection();
+
+		try{
+			String[] cleanup = {
+				"DELETE FROM course_roster WHERE class_id = ?",
+				"DELETE FROM course_waitlist WHERE class_id = ?",
+				"DELETE FROM section_summary_dirty WHERE class_id = ?",
+				"DELETE FROM courses WHERE course_id = (SELECT course_id FROM course_sections WHERE class_id = ?)",
+				"DELETE FROM course_sections WHERE class_id = ?"
+			};
+
+			//The course goes before its section only because the section is
+			//	what finds it, so foreign keys are left until the commit
+			//
+			c.setAutoCommit(false);
+			c.createStatement().execute("PRAGMA defer_foreign_keys = ON");
+
+			for(String sql : cleanup){
+				PreparedStatement ps = c.prepareStatement(sql);
+				ps.setInt(1, classId);
+				ps.executeUpdate();
+				ps.close();
+			}
+
+			c.commit();
+			c.setAutoCommit(true);
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+	}
+
+
+	private static int countRoster(ConnectionPool pool, int classId) throws SQLException{
+		return rosterIds(pool, classId).size();
+	}
+
+
+	private static Set<Integer> rosterIds(ConnectionPool pool, int classId) throws SQLException{
+
+		Set<Integer> ids = new HashSet<Integer>();
+		Connection c = pool.getConnection();
+
+		try{
+			PreparedStatement ps = pool.prepare(c, "SELECT student_id FROM course_roster WHERE class_id = ?");
+			ps.setInt(1, classId);
+			ResultSet rs = ps.executeQuery();
+
+			try{
+				while(rs.next()){
+					ids.add(rs.getInt(1));
+				}
+			}
+
+			finally{
+				rs.close();
+			}
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+
+		return ids;
+	}
+}
@@ -0,0 +1,266 @@
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import gradebook.bench.Workload;
+
+
+//The benchmarks' view of the Gradebook, see gradebook.bench.Workload.
+//	Fills a scratch SQLite database in the temp directory with a synthetic
+//	district from DatasetGenerator, and runs every operation through
+//	GradebookService the way the window's background tasks call it, so the
+//	student operations go through the student directory and its caches.
+//
+public class GradebookWorkload implements Workload {
+
+	private File file;
+	private GradebookService service;
+
+	private int[] studentIds;
+	private int[] sectionIds;
+
+	//Per section, its students and the assignment the grade saves rewrite
+	//
+	private int[][] rosters;
+	private int[] savedAssignments;
+
+	//Each student as last read or saved, so updates carry the current version
+	//
+	private Student[] details;
+
+
+	public void open(int studentCount, int sectionCount, int assignmentCount) throws Exception{
+
+		file = File.createTempFile("gradebook-bench-", ".db");
+		service = new GradebookService(new ConnectionPool("jdbc:sqlite:" + file.getAbsolutePath()));
+		service.migrate();
+
+		new DatasetGenerator(service.getPool(), DatasetGenerator.DEFAULT_SEED, studentCount, sectionCount, assignmentCount).generate(null);
+		readLayout(service.getPool());
+
+		details = new Student[studentIds.length];
+	}
+
+
+	public void close(){
+
+		if(service != null){
+			service.shutdown();
+		}
+
+		if(file != null){
+			file.delete();
+			new File(file.getPath() + "-wal").delete();
+			new File(file.getPath() + "-shm").delete();
+		}
+	}
+
+
+	public int getStudentCount(){
+		return studentIds.length;
+	}
+
+	public int getSectionCount(){
+		return sectionIds.length;
+	}
+
+
+	//What Gradebook.LoadRoster does: count the roster, then load it whole
+	//	from the student directory, or if it is too big for that, the first
+	//	page PagedStudentListModel shows
+	//
+	public Object loadRoster(boolean includeInactive, boolean cached) throws SQLException{
+
+		if(!cached){
+			service.getStudentDirectory().invalidate();
+		}
+
+		if(service.countStudents(includeInactive) > Gradebook.PAGED_ROSTER_SIZE){
+			return service.studentsAfter(includeInactive, null, PagedStudentListModel.PAGE_SIZE);
+		}
+
+		return service.listStudents(includeInactive);
+	}
+
+	public Object findStudent(int student) throws SQLException{
+		return service.findStudent(studentIds[student]);
+	}
+
+	public Object findStudentConnectingEachTime(int student) throws SQLException{
+
+		Connection c = DriverManager.getConnection(service.getPool().getUrl());
+
+		try{
+			return findConcatenated(c, studentIds[student]);
+		}
+
+		finally{
+			c.close();
+		}
+	}
+
+	public Object findStudentConcatenated(int student) throws SQLException{
+
+		ConnectionPool pool = service.getPool();
+		Connection c = pool.getConnection();
+
+		try{
+			return findConcatenated(c, studentIds[student]);
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+	}
+
+	public Object findStudentPrepared(int student) throws SQLException{
+		return service.getStudentRepository().findById(studentIds[student]);
+	}
+
+
+	public Object insertStudent(int sequence) throws SQLException{
+		return service.createStudent(new Student(0, "Bench" + sequence, "Insert", sequence + " Benchmark Rd",
+				"Springfield", "IL", "62703", "2009-09-01"));
+	}
+
+
+	public Object updateStudent(int student, int sequence) throws SQLException{
+
+		Student s = details[student];
+
+		if(s == null){
+			s = service.findStudent(studentIds[student]);
+		}
+
+		Student changed = new Student(s.getID(), s.getFirst(), s.getLast(), sequence + " Benchmark Rd",
+				s.getCity(), s.getState(), Integer.toString(s.getZip()), s.getDOB());
+		changed.setVersion(s.getVersion());
+
+		service.updateStudent(changed);
+		details[student] = changed;
+
+		return changed;
+	}
+
+
+	public Object loadGradeGrid(int section) throws SQLException{
+		return service.loadGradeGrid(sectionIds[section]);
+	}
+
+
+	public Object saveGrades(int section, int sequence) throws SQLException{
+
+		int[] roster = rosters[section];
+		List<GradeChange> changes = new ArrayList<GradeChange>(roster.length);
+
+		//A different score every round, so every save really changes the grades
+		//
+		float points = sequence % 10 + 0.5f;
+
+		for(int student : roster){
+			changes.add(new GradeChange(savedAssignments[section], student, points));
+		}
+
+		return service.saveGrades(changes);
+	}
+
+
+	public Object loadReport(int section) throws SQLException{
+		return service.loadReport(sectionIds[section]);
+	}
+
+
+	//The ids of the generated students and sections, each section's roster,
+	//	and the last assignment of each section for the grade saves to rewrite
+	//
+	private void readLayout(ConnectionPool pool) throws SQLException{
+
+		Connection c = pool.getConnection();
+
+		try{
+			PreparedStatement students = c.prepareStatement("SELECT id_num FROM student ORDER BY id_num");
+			PreparedStatement sections = c.prepareStatement("SELECT class_id FROM course_sections ORDER BY class_id");
+			studentIds = ids(students);
+			sectionIds = ids(sections);
+			students.close();
+			sections.close();
+
+			rosters = new int[sectionIds.length][];
+			savedAssignments = new int[sectionIds.length];
+
+			PreparedStatement roster = c.prepareStatement("SELECT student_id FROM course_roster WHERE class_id = ? ORDER BY student_id");
+			PreparedStatement last = c.prepareStatement("SELECT max(assignment_id) FROM assignments WHERE class_id = ?");
+
+			for(int s = 0; s < sectionIds.length; s++){
+				roster.setInt(1, sectionIds[s]);
+				rosters[s] = ids(roster);
+
+				last.setInt(1, sectionIds[s]);
+				savedAssignments[s] = ids(last)[0];
+			}
+
+			roster.close();
+			last.close();
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+	}
+
+
+	//The old Load Student Info query, a new statement with the id pasted in
+	//
+	private static String findConcatenated(Connection c, int id) throws SQLException{
+
+		Statement stmt = c.createStatement();
+
+		try{
+			ResultSet rs = stmt.executeQuery("SELECT * FROM student WHERE id_num = '" + id + "';");
+			String name = null;
+
+			while(rs.next()){
+				name = rs.getString("last_name") + ", " + rs.getString("first_name");
+			}
+
+			rs.close();
+			return name;
+		}
+
+		finally{
+			stmt.close();
+		}
+	}
+
+
+	//The first column of every row ps returns
+	//
+	private static int[] ids(PreparedStatement ps) throws SQLException{
+
+		List<Integer> ids = new ArrayList<Integer>();
+		ResultSet rs = ps.executeQuery();
+
+		try{
+			while(rs.next()){
+				ids.add(rs.getInt(1));
+			}
+		}
+
+		finally{
+			rs.close();
+		}
+
+		int[] array = new int[ids.size()];
+		for(int i = 0; i < array.length; i++){
+			array[i] = ids.get(i);
+		}
+
+		return array;
+	}
+}
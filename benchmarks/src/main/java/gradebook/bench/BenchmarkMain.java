@@ -0,0 +1,59 @@
+package gradebook.bench;
+
+import java.io.File;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+//Runs the benchmarks like JMH's own main, taking the same options, but
+//	writes the results as JSON by default to results/gradebook-<version>.json
+//	so runs from different releases can be kept side by side and compared.
+//	Pass -rf and -rff to write something else.
+//
+public class BenchmarkMain {
+
+	public static void main(String args[]) throws Exception{
+
+		CommandLineOptions command = new CommandLineOptions(args);
+
+		if(command.shouldHelp()){
+			command.showHelp();
+			return;
+		}
+
+		if(command.shouldList() || command.shouldListWithParams() || command.shouldListProfilers()
+				|| command.shouldListResultFormats()){
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+
+		OptionsBuilder builder = new OptionsBuilder();
+		builder.parent(command);
+
+		if(!command.getResultFormat().hasValue()){
+			builder.resultFormat(ResultFormatType.JSON);
+		}
+
+		if(!command.getResult().hasValue()){
+			new File("results").mkdirs();
+			builder.result("results/gradebook-" + version() + ".json");
+		}
+
+		Options options = builder.build();
+		new Runner(options).run();
+	}
+
+
+	//The version this jar was built as, from its manifest
+	//
+	private static String version(){
+
+		String version = BenchmarkMain.class.getPackage().getImplementationVersion();
+
+		return version == null ? "dev" : version;
+	}
+}
@@ -0,0 +1,39 @@
+package gradebook.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+//The Enter Grades and Generate Reports screens' database work: loading a
+//	section's grade grid, saving a column of grades with the report summary
+//	refresh that follows, and loading a section's report.
+//
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GradeBenchmarks {
+
+	@Benchmark
+	public Object loadGradeGrid(GradebookState state, GradebookState.Cursor cursor) throws Exception{
+		return state.workload.loadGradeGrid(cursor.next(state.workload.getSectionCount()));
+	}
+
+	@Benchmark
+	public Object saveGrades(GradebookState state, GradebookState.Cursor cursor) throws Exception{
+		return state.workload.saveGrades(cursor.next(state.workload.getSectionCount()), cursor.sequence());
+	}
+
+	@Benchmark
+	public Object loadReport(GradebookState state, GradebookState.Cursor cursor) throws Exception{
+		return state.workload.loadReport(cursor.next(state.workload.getSectionCount()));
+	}
+}
@@ -0,0 +1,68 @@
+package gradebook.bench;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+
+//A freshly generated scratch database for each trial, see DatasetGenerator.  The sizes are JMH
+//	parameters, so a run can be repeated at other scales with for example
+//		-p students=100000 -p sections=2000 -p assignments=40
+//
+@State(Scope.Benchmark)
+public class GradebookState {
+
+	@Param("10000")
+	public int students;
+
+	@Param("200")
+	public int sections;
+
+	//Assignments in each section, on average
+	//
+	@Param("20")
+	public int assignments;
+
+	public Workload workload;
+
+
+	@Setup(Level.Trial)
+	public void open() throws Exception{
+
+		workload = (Workload)Class.forName("GradebookWorkload").getDeclaredConstructor().newInstance();
+		workload.open(students, sections, assignments);
+	}
+
+
+	@TearDown(Level.Trial)
+	public void close(){
+		workload.close();
+	}
+
+
+	//Walks through the students or sections in a scattered order, so
+	//	lookups do not keep hitting the same few pages
+	//
+	@State(Scope.Thread)
+	public static class Cursor{
+
+		private static final int STRIDE = 7919;
+
+		private int position = 0;
+		private int sequence = 0;
+
+		public int next(int count){
+			position = (position + STRIDE) % count;
+			return position;
+		}
+
+		//A number that is different on every call, for values that must change
+		//
+		public int sequence(){
+			return ++sequence;
+		}
+	}
+}
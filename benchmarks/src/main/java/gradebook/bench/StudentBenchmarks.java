@@ -0,0 +1,65 @@
+package gradebook.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+//The Manage Students screen's database work, through GradebookService and
+//	its student directory as the window does it.  The roster loads come
+//	first visit, with the directory emptied, and again with it warm.  At
+//	the default 10000 students the active roster is past
+//	Gradebook.PAGED_ROSTER_SIZE, so those measure the count and first page
+//	the paged list shows; run with -p students=4000 for the whole list.
+//
+//	The inserts add rows to the trial's database as they run, and the
+//	updates expect to be the only writer, so run these single threaded.
+//
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StudentBenchmarks {
+
+	@Benchmark
+	public Object loadStudents(GradebookState state) throws Exception{
+		return state.workload.loadRoster(false, true);
+	}
+
+	@Benchmark
+	public Object loadStudentsFirstVisit(GradebookState state) throws Exception{
+		return state.workload.loadRoster(false, false);
+	}
+
+	@Benchmark
+	public Object loadAllStudents(GradebookState state) throws Exception{
+		return state.workload.loadRoster(true, true);
+	}
+
+	@Benchmark
+	public Object loadAllStudentsFirstVisit(GradebookState state) throws Exception{
+		return state.workload.loadRoster(true, false);
+	}
+
+	@Benchmark
+	public Object loadStudentDetail(GradebookState state, GradebookState.Cursor cursor) throws Exception{
+		return state.workload.findStudent(cursor.next(state.workload.getStudentCount()));
+	}
+
+	@Benchmark
+	public Object insertStudent(GradebookState state, GradebookState.Cursor cursor) throws Exception{
+		return state.workload.insertStudent(cursor.sequence());
+	}
+
+	@Benchmark
+	public Object updateStudent(GradebookState state, GradebookState.Cursor cursor) throws Exception{
+		return state.workload.updateStudent(cursor.next(state.workload.getStudentCount()), cursor.sequence());
+	}
+}
@@ -0,0 +1,41 @@
+package gradebook.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+//One student detail lookup before and after StudentRepository: a new
+//	connection and concatenated SQL per click as the window used to do it,
+//	the same SQL on a pooled connection, and the repository's cached
+//	PreparedStatement.  StudentBenchmarks.loadStudentDetail measures the
+//	lookup as the window does it now, with the student directory in front.
+//
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StudentLookupBenchmarks {
+
+	@Benchmark
+	public Object connectEachLookup(GradebookState state, GradebookState.Cursor cursor) throws Exception{
+		return state.workload.findStudentConnectingEachTime(cursor.next(state.workload.getStudentCount()));
+	}
+
+	@Benchmark
+	public Object pooledConcatenatedSql(GradebookState state, GradebookState.Cursor cursor) throws Exception{
+		return state.workload.findStudentConcatenated(cursor.next(state.workload.getStudentCount()));
+	}
+
+	@Benchmark
+	public Object pooledPreparedStatement(GradebookState state, GradebookState.Cursor cursor) throws Exception{
+		return state.workload.findStudentPrepared(cursor.next(state.workload.getStudentCount()));
+	}
+}
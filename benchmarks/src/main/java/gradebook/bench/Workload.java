@@ -0,0 +1,79 @@
+package gradebook.bench;
+
+
+//The Gradebook operations the benchmarks measure.  The application classes
+//	live in the default package, which no named package can import, and JMH
+//	will not generate code for benchmarks in the default package.  So the
+//	benchmarks call through this interface, and GradebookWorkload in the
+//	default package implements it against GradebookService.  It is
+//	looked up once per trial, the measured calls are plain interface calls.
+//
+//	Students and sections are picked by index, 0 to getStudentCount() - 1
+//	and 0 to getSectionCount() - 1.  Every method returns something for the
+//	benchmark to consume so the JIT cannot drop the call.
+//
+public interface Workload {
+
+	//Generate a new scratch database with students, sections, and on
+	//	average assignments per section with their grades, then open a
+	//	connection pool on it
+	//
+	void open(int students, int sections, int assignments) throws Exception;
+
+	//Shut the pool down and delete the scratch database
+	//
+	void close();
+
+	int getStudentCount();
+
+	int getSectionCount();
+
+	//The active roster, or with includeInactive every student, the way
+	//	Manage Students loads it: counted, then read whole from the student
+	//	directory or, past Gradebook.PAGED_ROSTER_SIZE, one page at a time.
+	//	With cached false the directory is emptied first, as on the first
+	//	visit
+	//
+	Object loadRoster(boolean includeInactive, boolean cached) throws Exception;
+
+	//Every column of one student, as Load Student Info loads them through
+	//	the student directory
+	//
+	Object findStudent(int student) throws Exception;
+
+	//One student looked up the way every click did before StudentRepository:
+	//	a new connection and a SELECT built by string concatenation
+	//
+	Object findStudentConnectingEachTime(int student) throws Exception;
+
+	//The same concatenated SELECT on a pooled connection, parsed every time
+	//
+	Object findStudentConcatenated(int student) throws Exception;
+
+	//StudentRepository.findById on its cached PreparedStatement, without
+	//	the student directory in front of it
+	//
+	Object findStudentPrepared(int student) throws Exception;
+
+	//Add a new student
+	//
+	Object insertStudent(int sequence) throws Exception;
+
+	//Save a changed address for an existing student
+	//
+	Object updateStudent(int student, int sequence) throws Exception;
+
+	//The grade entry grid of one section
+	//
+	Object loadGradeGrid(int section) throws Exception;
+
+	//Change one assignment's grade for every student in a section and save,
+	//	bringing the section's report summary up to date like the Save
+	//	button does
+	//
+	Object saveGrades(int section, int sequence) throws Exception;
+
+	//The grade report of one section
+	//
+	Object loadReport(int section) throws Exception;
+}
@@ -0,0 +1,102 @@
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import javax.swing.SwingWorker;
+
+
+//A piece of database work that runs off the event dispatch thread.
+//	doInBackground() does the I/O on a worker thread, then succeeded() is
+//	called on the EDT with the result so it can update the panels.  A task
+//	that was cancelled never calls back, so a stale result can not overwrite
+//	a newer one.  The watchdog attributes an EDT stall in a callback to
+//	the task by its name.
+//
+//	The name is what the task is timed and counted under in the
+//	MetricsRegistry, so it must not change from run to run.  The
+//	description is shown in the status bar and may say which file or
+//	student the task is working on.  One-argument tasks use the same text
+//	for both.
+//
+public abstract class BackgroundTask<T> extends SwingWorker<T, String> {
+
+	private final String name;
+	private final String description;
+
+
+	public BackgroundTask(String taskDescription){
+		this(taskDescription, taskDescription);
+	}
+
+	public BackgroundTask(String taskName, String taskDescription){
+		name = taskName;
+		description = taskDescription;
+	}
+
+
+	//Called on the EDT with the result of doInBackground()
+	//
+	protected abstract void succeeded(T result);
+
+
+	//Called on the EDT if doInBackground() threw an exception
+	//
+	protected void failed(Throwable error){
+		System.err.println(error);
+	}
+
+
+	//Update the status bar message while the task is running.  Safe to call
+	//	from doInBackground()
+	//
+	protected void status(String message){
+		publish(message);
+	}
+
+
+	public String getName(){
+		return name;
+	}
+
+	public String getDescription(){
+		return description;
+	}
+
+
+	//Pass the newest status message on to whoever is watching this task
+	//
+	protected void process(List<String> messages){
+		firePropertyChange("status", null, messages.get(messages.size() - 1));
+	}
+
+
+	protected final void done(){
+
+		if(isCancelled()){
+			return;
+		}
+
+		EdtWatchdog watchdog = EdtWatchdog.getInstance();
+		String previous = watchdog.enter("task " + name);
+
+		try{
+			succeeded(get());
+		}
+
+		catch(CancellationException e){
+			//cancelled between the check above and get(), nothing to do
+		}
+
+		catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+
+		catch(ExecutionException e){
+			MetricsRegistry.getInstance().counter("task." + name + ".errors").increment();
+			failed(e.getCause());
+		}
+
+		finally{
+			watchdog.exit(previous);
+		}
+	}
+}
@@ -0,0 +1,444 @@
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+//Shared pool of long lived connections to the gradebook database.  Every
+//	data access path borrows a connection with getConnection() and hands it
+//	back with releaseConnection() instead of opening and closing its own.
+//	Connections are opened lazily up to MAX_CONNECTIONS, and each one is
+//	configured with the pragmas below when it is created so SQLite's page
+//	cache stays warm between clicks.
+//
+public class ConnectionPool {
+
+	//Database location and pool sizing.  The url can be overridden with
+	//	-Dgradebook.db.url=... (used by the benchmarks and load tests)
+	//
+	private static final String DRIVER = "org.sqlite.JDBC";
+	private static final String DEFAULT_URL = "jdbc:sqlite:bin/Capstone";
+	private static final int MAX_CONNECTIONS = 4;
+	private static final long BORROW_TIMEOUT_MS = 10000;
+
+
+	//Connections that have been idle longer than this are checked with
+	//	a trivial query before they are handed out
+	//
+	private static final long VALIDATE_AFTER_IDLE_MS = 30000;
+
+
+	//Pragmas run on every new connection.
+	//	WAL lets readers and the writer work at the same time,
+	//	synchronous NORMAL only fsyncs at checkpoints in WAL mode,
+	//	cache_size is in KiB when negative (16MB per connection),
+	//	mmap_size lets SQLite read pages straight from the OS cache (64MB),
+	//	busy_timeout waits on a locked database instead of failing at once
+	//
+	private static final String[] PRAGMAS = {
+		"PRAGMA journal_mode = WAL",
+		"PRAGMA synchronous = NORMAL",
+		"PRAGMA cache_size = -16384",
+		"PRAGMA mmap_size = 67108864",
+		"PRAGMA temp_store = MEMORY",
+		"PRAGMA busy_timeout = 5000",
+		"PRAGMA foreign_keys = ON"
+	};
+
+	private static ConnectionPool instance;
+
+	private final String url;
+	private final BlockingQueue<PooledEntry> idle;
+
+
+	//Prepared statement cache for each open connection
+	//
+	private final Map<Connection, StatementCache> statementCaches = new ConcurrentHashMap<Connection, StatementCache>();
+
+
+	//Metrics: connections opened so far, connections currently lent out,
+	//	and the total time/number of borrows so the average wait can be reported
+	//
+	private final AtomicInteger opened = new AtomicInteger();
+	private final AtomicInteger active = new AtomicInteger();
+	private final AtomicLong borrows = new AtomicLong();
+	private final AtomicLong totalWaitNanos = new AtomicLong();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+	private final AtomicLong failedValidations = new AtomicLong();
+
+	private volatile boolean closed = false;
+
+
+	//Get the pool shared by the whole application
+	//
+	public static synchronized ConnectionPool getInstance(){
+
+		if(instance == null){
+			instance = new ConnectionPool(System.getProperty("gradebook.db.url", DEFAULT_URL));
+		}
+
+		return instance;
+	}
+
+
+	public ConnectionPool(String databaseUrl){
+		url = databaseUrl;
+		idle = new ArrayBlockingQueue<PooledEntry>(MAX_CONNECTIONS);
+	}
+
+
+	//Borrow a connection from the pool.  If none are idle and the pool is
+	//	not full a new one is opened, otherwise wait for one to be released
+	//
+	public Connection getConnection() throws SQLException{
+
+		if(closed){
+			throw new SQLException("Connection pool has been shut down");
+		}
+
+		long start = System.nanoTime();
+
+		try{
+			while(true){
+				PooledEntry entry = idle.poll();
+
+				//Nothing idle, so open a new connection if there is room
+				//
+				if(entry == null && reserveSlot()){
+					try{
+						entry = new PooledEntry(openConnection());
+					}
+					catch(SQLException e){
+						opened.decrementAndGet();
+						throw e;
+					}
+				}
+
+				//The pool is full, wait for somebody to release a connection
+				//
+				if(entry == null){
+					long remaining = BORROW_TIMEOUT_MS - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+					if(remaining <= 0 || (entry = idle.poll(remaining, TimeUnit.MILLISECONDS)) == null){
+						throw new SQLException("Timed out waiting for a database connection");
+					}
+				}
+
+				//Throw away connections that fail the health check and try again
+				//
+				if(!isHealthy(entry)){
+					failedValidations.incrementAndGet();
+					discard(entry.connection);
+					continue;
+				}
+
+				active.incrementAndGet();
+				recordWait(System.nanoTime() - start);
+
+				return entry.connection;
+			}
+		}
+
+		catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a database connection", e);
+		}
+	}
+
+
+	//Return a borrowed connection to the pool.  Any transaction that was
+	//	left open is rolled back so the next borrower starts clean
+	//
+	public void releaseConnection(Connection c){
+
+		if(c == null){
+			return;
+		}
+
+		active.decrementAndGet();
+
+		try{
+			if(!c.getAutoCommit()){
+				c.rollback();
+				c.setAutoCommit(true);
+			}
+
+			if(closed || c.isClosed() || !idle.offer(new PooledEntry(c))){
+				discard(c);
+			}
+		}
+
+		catch(SQLException e){
+			System.err.println(e);
+			discard(c);
+		}
+	}
+
+
+	//Open every connection up front so the driver is loaded and the
+	//	page cache is warm before the first click
+	//
+	public void warmUp(){
+
+		Connection[] warmed = new Connection[MAX_CONNECTIONS];
+
+		try{
+			for(int i = 0; i < warmed.length; i++){
+				warmed[i] = getConnection();
+
+				Statement stmt = warmed[i].createStatement();
+				stmt.execute("SELECT count(*) FROM sqlite_master");
+				stmt.close();
+			}
+		}
+
+		catch(SQLException e){
+			System.err.println(e);
+		}
+
+		for(int i = 0; i < warmed.length; i++){
+			releaseConnection(warmed[i]);
+		}
+	}
+
+
+	//Close every idle connection and refuse further borrows
+	//
+	public void shutdown(){
+
+		closed = true;
+
+		PooledEntry entry;
+		while((entry = idle.poll()) != null){
+			discard(entry.connection);
+		}
+	}
+
+
+	//Get a prepared statement for the sql from the borrowed connection's
+	//	statement cache.  The statement belongs to the cache, so callers close
+	//	their ResultSets but never the statement itself
+	//
+	public PreparedStatement prepare(Connection c, String sql) throws SQLException{
+
+		StatementCache cache = statementCaches.get(c);
+
+		if(cache == null){
+			return c.prepareStatement(sql);
+		}
+
+		return cache.prepare(sql);
+	}
+
+
+	public long getStatementCacheHits(){
+
+		long hits = 0;
+		for(StatementCache cache : statementCaches.values()){
+			hits += cache.getHits();
+		}
+
+		return hits;
+	}
+
+	public long getStatementCacheMisses(){
+
+		long misses = 0;
+		for(StatementCache cache : statementCaches.values()){
+			misses += cache.getMisses();
+		}
+
+		return misses;
+	}
+
+
+	public int getActiveCount(){
+		return active.get();
+	}
+
+	public int getIdleCount(){
+		return idle.size();
+	}
+
+	public int getOpenedCount(){
+		return opened.get();
+	}
+
+	public int getMaxConnections(){
+		return MAX_CONNECTIONS;
+	}
+
+	public long getBorrowCount(){
+		return borrows.get();
+	}
+
+	public long getFailedValidationCount(){
+		return failedValidations.get();
+	}
+
+	public double getAverageWaitMillis(){
+		long count = borrows.get();
+
+		if(count == 0){
+			return 0;
+		}
+
+		return totalWaitNanos.get() / (double)count / 1000000.0;
+	}
+
+	public double getMaxWaitMillis(){
+		return maxWaitNanos.get() / 1000000.0;
+	}
+
+	public String getUrl(){
+		return url;
+	}
+
+
+	public String toString(){
+		return String.format("pool[active=%d, idle=%d, opened=%d/%d, borrows=%d, avgWait=%.3fms, maxWait=%.3fms, failedChecks=%d, stmtCache=%d/%d]",
+				getActiveCount(), getIdleCount(), getOpenedCount(), MAX_CONNECTIONS, getBorrowCount(),
+				getAverageWaitMillis(), getMaxWaitMillis(), getFailedValidationCount(),
+				getStatementCacheHits(), getStatementCacheHits() + getStatementCacheMisses());
+	}
+
+
+	//Claim room for one more physical connection, returns false if the pool is full
+	//
+	private boolean reserveSlot(){
+
+		while(true){
+			int current = opened.get();
+
+			if(current >= MAX_CONNECTIONS){
+				return false;
+			}
+
+			if(opened.compareAndSet(current, current + 1)){
+				return true;
+			}
+		}
+	}
+
+
+	private Connection openConnection() throws SQLException{
+
+		try{
+			Class.forName(DRIVER);
+		}
+
+		catch(ClassNotFoundException e){
+			throw new SQLException("SQLite JDBC driver not found on the classpath", e);
+		}
+
+		Connection c = DriverManager.getConnection(url);
+		Statement stmt = c.createStatement();
+
+		try{
+			for(String pragma : PRAGMAS){
+				stmt.execute(pragma);
+			}
+		}
+
+		finally{
+			stmt.close();
+		}
+
+		//Everything run on the connection from here on is timed, see InstrumentedJdbc
+		//
+		if(InstrumentedJdbc.isEnabled()){
+			c = InstrumentedJdbc.wrap(c, MetricsRegistry.getInstance());
+		}
+
+		statementCaches.put(c, new StatementCache(c));
+
+		return c;
+	}
+
+
+	//A connection that was used recently is trusted, one that has been sitting
+	//	idle for a while gets a quick round trip before it is handed out
+	//
+	private boolean isHealthy(PooledEntry entry){
+
+		try{
+			if(entry.connection.isClosed()){
+				return false;
+			}
+
+			if(System.currentTimeMillis() - entry.idleSince < VALIDATE_AFTER_IDLE_MS){
+				return true;
+			}
+
+			Statement stmt = entry.connection.createStatement();
+
+			try{
+				stmt.execute("SELECT 1");
+			}
+
+			finally{
+				stmt.close();
+			}
+
+			return true;
+		}
+
+		catch(SQLException e){
+			return false;
+		}
+	}
+
+
+	private void discard(Connection c){
+
+		opened.decrementAndGet();
+
+		StatementCache cache = statementCaches.remove(c);
+		if(cache != null){
+			cache.closeAll();
+		}
+
+		try{
+			c.close();
+		}
+
+		catch(SQLException e){
+			System.err.println(e);
+		}
+	}
+
+
+	private void recordWait(long nanos){
+
+		borrows.incrementAndGet();
+		totalWaitNanos.addAndGet(nanos);
+		MetricsRegistry.getInstance().timer("pool.wait").record(nanos);
+
+		long max;
+		while(nanos > (max = maxWaitNanos.get()) && !maxWaitNanos.compareAndSet(max, nanos)){
+			//retry until the max is updated or another thread stored a bigger value
+		}
+	}
+
+
+	//An idle connection and the time it was put back in the pool
+	//
+	private static class PooledEntry{
+
+		private final Connection connection;
+		private final long idleSince;
+
+		PooledEntry(Connection c){
+			connection = c;
+			idleSince = System.currentTimeMillis();
+		}
+	}
+}
@@ -1,4 +1,35 @@
-
 public class Course {
 
+	private int courseId;
+	private String courseNumber, courseName, description;
+	
+	
+	public Course(int id, String number, String name, String newDescription){
+		courseId = id;
+		courseNumber = number;
+		courseName = name;
+		description = newDescription;
+	}
+	
+	
+	public String toString(){
+		return courseNumber + " " + courseName;
+	}
+	
+	
+	public int getID(){
+		return courseId;
+	}
+	
+	public String getNumber(){
+		return courseNumber;
+	}
+	
+	public String getName(){
+		return courseName;
+	}
+	
+	public String getDescription(){
+		return description;
+	}
 }
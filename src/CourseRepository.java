@@ -0,0 +1,177 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+//Data access for courses, class sections and section rosters
+//
+public class CourseRepository {
+
+	private static final String LIST_COURSES =
+			"SELECT course_id, course_number, course_name, description FROM courses ORDER BY course_number, course_id";
+
+	private static final String LIST_SECTIONS =
+			"SELECT cs.class_id, cs.course_id, c.course_number, cs.meeting_day, cs.max_students, cs.term "
+			+ "FROM course_sections cs JOIN courses c ON c.course_id = cs.course_id "
+			+ "ORDER BY c.course_number, cs.class_id";
+
+	//Every roster in one pass over course_roster's primary key, which
+	//	already has the ids of each section in ascending order
+	//
+	private static final String ALL_ROSTERS =
+			"SELECT class_id, student_id FROM course_roster ORDER BY class_id, student_id";
+
+	private static final String ROSTER_STUDENTS =
+			"SELECT s.id_num, s.first_name, s.last_name FROM course_roster r "
+			+ "JOIN student s ON s.id_num = r.student_id WHERE r.class_id = ? "
+			+ "ORDER BY s.last_name, s.first_name, s.id_num";
+
+	private final ConnectionPool pool;
+
+
+	public CourseRepository(ConnectionPool connectionPool){
+		pool = connectionPool;
+	}
+
+
+	public List<Course> listCourses() throws SQLException{
+
+		List<Course> courses = new ArrayList<Course>();
+		Connection c = pool.getConnection();
+
+		try{
+			ResultSet rs = pool.prepare(c, LIST_COURSES).executeQuery();
+
+			try{
+				while(rs.next()){
+					courses.add(new Course(rs.getInt("course_id"), rs.getString("course_number"),
+							rs.getString("course_name"), rs.getString("description")));
+				}
+			}
+
+			finally{
+				rs.close();
+			}
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+
+		return courses;
+	}
+
+
+	//Every section with its roster filled in
+	//
+	public List<CourseSection> listSections() throws SQLException{
+
+		List<CourseSection> sections = new ArrayList<CourseSection>();
+		Map<Integer, CourseSection> byId = new HashMap<Integer, CourseSection>();
+		Connection c = pool.getConnection();
+
+		try{
+			ResultSet rs = pool.prepare(c, LIST_SECTIONS).executeQuery();
+
+			try{
+				while(rs.next()){
+					CourseSection section = new CourseSection(rs.getInt("class_id"), rs.getInt("course_id"),
+							rs.getString("course_number"), rs.getString("meeting_day"),
+							rs.getInt("max_students"), rs.getString("term"));
+
+					sections.add(section);
+					byId.put(section.getID(), section);
+				}
+			}
+
+			finally{
+				rs.close();
+			}
+
+			//Collect each section's ids into a growing int[] and hand it to
+			//	the section, trimmed, when the next section starts
+			//
+			rs = pool.prepare(c, ALL_ROSTERS).executeQuery();
+
+			try{
+				int current = -1, count = 0;
+				int[] ids = new int[64];
+
+				while(rs.next()){
+					int classId = rs.getInt(1);
+
+					if(classId != current){
+						assign(byId, current, ids, count);
+						current = classId;
+						count = 0;
+					}
+
+					if(count == ids.length){
+						ids = Arrays.copyOf(ids, count * 2);
+					}
+
+					ids[count++] = rs.getInt(2);
+				}
+
+				assign(byId, current, ids, count);
+			}
+
+			finally{
+				rs.close();
+			}
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+
+		return sections;
+	}
+
+
+	//The students on a section's roster, in name order
+	//
+	public List<Student> listRoster(int classId) throws SQLException{
+
+		List<Student> students = new ArrayList<Student>();
+		Connection c = pool.getConnection();
+
+		try{
+			PreparedStatement ps = pool.prepare(c, ROSTER_STUDENTS);
+			ps.setInt(1, classId);
+			ResultSet rs = ps.executeQuery();
+
+			try{
+				while(rs.next()){
+					students.add(new Student(rs.getInt("id_num"), rs.getString("first_name"), rs.getString("last_name")));
+				}
+			}
+
+			finally{
+				rs.close();
+			}
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+
+		return students;
+	}
+
+
+	private static void assign(Map<Integer, CourseSection> byId, int classId, int[] ids, int count){
+
+		CourseSection section = byId.get(classId);
+
+		if(section != null){
+			section.setRoster(Arrays.copyOf(ids, count));
+		}
+	}
+}
@@ -1,4 +1,158 @@
+import java.util.Arrays;
 
+
+//One class section of a course.  The roster is kept as a sorted int[] of
+//	student id_nums instead of a list of Student objects: membership is a
+//	binary search, the enrollment count is the array length, and comparing
+//	two rosters walks the arrays, all without allocating.
+//
 public class CourseSection {
 
+	private static final int[] EMPTY = new int[0];
+
+	private int classId, courseId, maxStudents;
+	private String courseNumber, meetingDay, term;
+	private int[] roster = EMPTY;
+	
+	
+	public CourseSection(int id, int course, String number, String day, int max, String sectionTerm){
+		classId = id;
+		courseId = course;
+		courseNumber = number;
+		meetingDay = day;
+		maxStudents = max;
+		term = sectionTerm;
+	}
+	
+	
+	public String toString(){
+		return courseNumber + " " + (meetingDay == null ? "" : meetingDay) + " (class " + classId + ")";
+	}
+	
+	
+	public int getID(){
+		return classId;
+	}
+	
+	public int getCourseID(){
+		return courseId;
+	}
+	
+	public String getCourseNumber(){
+		return courseNumber;
+	}
+	
+	public String getMeetingDay(){
+		return meetingDay;
+	}
+	
+	public int getMaxStudents(){
+		return maxStudents;
+	}
+	
+	public String getTerm(){
+		return term;
+	}
+	
+	
+	//Replace the roster.  ids must already be sorted ascending with no
+	//	duplicates, as they come out of course_roster's primary key
+	//
+	void setRoster(int[] ids){
+		roster = ids;
+	}
+	
+	
+	//Is the student enrolled, by binary search
+	//
+	public boolean contains(int studentId){
+		return Arrays.binarySearch(roster, studentId) >= 0;
+	}
+	
+	public int getEnrollment(){
+		return roster.length;
+	}
+	
+	public int getSeatsLeft(){
+		return Math.max(0, maxStudents - roster.length);
+	}
+	
+	public boolean isFull(){
+		return roster.length >= maxStudents;
+	}
+	
+	
+	//The id of the index'th enrolled student, in id order
+	//
+	public int getStudentID(int index){
+		return roster[index];
+	}
+	
+	
+	//Number of students enrolled in both sections.  Each id of the smaller
+	//	roster is binary searched in the larger one, starting where the last
+	//	search left off, since both are sorted
+	//
+	public int countShared(CourseSection other){
+		
+		int[] small = roster.length <= other.roster.length ? roster : other.roster;
+		int[] large = small == roster ? other.roster : roster;
+		int shared = 0, from = 0;
+		
+		for(int i = 0; i < small.length && from < large.length; i++){
+			int found = Arrays.binarySearch(large, from, large.length, small[i]);
+			
+			if(found >= 0){
+				shared++;
+				from = found + 1;
+			}
+			
+			else{
+				from = -found - 1;
+			}
+		}
+		
+		return shared;
+	}
+	
+	
+	//Add the student to the roster in sorted position.  Returns false if they
+	//	are already enrolled or the section is full
+	//
+	public boolean enroll(int studentId){
+		
+		int at = Arrays.binarySearch(roster, studentId);
+		
+		if(at >= 0 || isFull()){
+			return false;
+		}
+		
+		at = -at - 1;
+		int[] grown = new int[roster.length + 1];
+		System.arraycopy(roster, 0, grown, 0, at);
+		grown[at] = studentId;
+		System.arraycopy(roster, at, grown, at + 1, roster.length - at);
+		roster = grown;
+		
+		return true;
+	}
+	
+	
+	//Take the student off the roster.  Returns false if they were not on it
+	//
+	public boolean drop(int studentId){
+		
+		int at = Arrays.binarySearch(roster, studentId);
+		
+		if(at < 0){
+			return false;
+		}
+		
+		int[] shrunk = new int[roster.length - 1];
+		System.arraycopy(roster, 0, shrunk, 0, at);
+		System.arraycopy(roster, at + 1, shrunk, at, roster.length - at - 1);
+		roster = shrunk;
+		
+		return true;
+	}
 }
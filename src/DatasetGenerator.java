@@ -0,0 +1,670 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+
+//Fills an empty gradebook database with a synthetic school district for
+//	load and scale testing: students, courses and their sections, rosters,
+//	assignment types, assignments and grades.
+//
+//	The data is shaped like a real district rather than uniform: common
+//	names repeat, about one student in eight is inactive (mostly the oldest
+//	ids, who have graduated), popular courses have many more sections than
+//	electives, sections range from small seminars to large lectures, and
+//	some grades are missing, most of all in the current term where the
+//	latest assignments have not been graded yet.
+//
+//	The same seed and sizes always generate the same rows.  Each table draws
+//	from its own random stream, so changing one size does not reshuffle the
+//	tables before it.  Rows are inserted in prepared statement batches and
+//	committed every COMMIT_SIZE rows.
+//
+public class DatasetGenerator {
+
+	//Scale 1 is about one large high school, scale 100 a large district
+	//
+	public static final int BASE_STUDENTS = 5000;
+	public static final int BASE_SECTIONS = 400;
+	public static final int DEFAULT_ASSIGNMENTS = 15;
+	public static final long DEFAULT_SEED = 478;
+
+	private static final int BATCH_SIZE = 1000;
+	private static final int COMMIT_SIZE = 50000;
+
+	private static final String[] TERMS = {"2025FA", "2026SP", "2026FA"};
+	private static final String CURRENT_TERM = TERMS[TERMS.length - 1];
+	private static final String[] MEETING_DAYS = {"MWF", "TR", "MW", "TR", "MWF", "F"};
+
+	private static final String[] FIRST_NAMES = {
+		"James", "Mary", "Michael", "Emma", "William", "Olivia", "David", "Ava", "John", "Sophia",
+		"Daniel", "Isabella", "Matthew", "Mia", "Joseph", "Abigail", "Anthony", "Emily", "Joshua", "Madison",
+		"Andrew", "Elizabeth", "Ethan", "Ella", "Christopher", "Grace", "Ryan", "Chloe", "Noah", "Victoria",
+		"Tyler", "Natalie", "Jacob", "Hannah", "Logan", "Lily", "Aiden", "Zoe", "Lucas", "Leah",
+		"Mateo", "Camila", "Jayden", "Aaliyah", "Elijah", "Nevaeh", "Santiago", "Ximena", "Kai", "Priya"
+	};
+
+	private static final String[] LAST_NAMES = {
+		"Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis", "Rodriguez", "Martinez",
+		"Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson", "Thomas", "Taylor", "Moore", "Jackson", "Martin",
+		"Lee", "Perez", "Thompson", "White", "Harris", "Sanchez", "Clark", "Ramirez", "Lewis", "Robinson",
+		"Walker", "Young", "Allen", "King", "Wright", "Scott", "Torres", "Nguyen", "Hill", "Flores",
+		"Green", "Adams", "Nelson", "Baker", "Hall", "Rivera", "Campbell", "Mitchell", "Carter", "Roberts",
+		"Patel", "Kim", "Nowak", "Schmidt", "O'Brien", "Kowalski", "Okafor", "Larsen", "Novak", "Haddad"
+	};
+
+	private static final String[] STREETS = {
+		"Main St", "Oak Ave", "Maple Dr", "Cedar Ln", "Park Ave", "Elm St", "Washington St", "Lake Rd",
+		"Hill St", "Pine St", "Walnut St", "Lincoln Ave", "Jefferson St", "Church St", "Sangamon Ave"
+	};
+
+	//City and the first zip code it has
+	//
+	private static final String[] CITIES = {"Springfield", "Chatham", "Rochester", "Sherman", "Riverton", "Petersburg", "Auburn", "Pawnee"};
+	private static final int[] CITY_ZIPS = {62701, 62629, 62563, 62684, 62561, 62675, 62615, 62558};
+
+	//Subject code and name; the subjects first in the list get the most sections
+	//
+	private static final String[][] SUBJECTS = {
+		{"ENG", "English"}, {"MTH", "Mathematics"}, {"SCI", "Science"}, {"HIS", "History"}, {"PE", "Physical Education"},
+		{"SPA", "Spanish"}, {"BIO", "Biology"}, {"CHM", "Chemistry"}, {"ART", "Art"}, {"MUS", "Music"},
+		{"CSC", "Computer Science"}, {"ECO", "Economics"}, {"FRE", "French"}, {"PSY", "Psychology"}, {"THE", "Theater"}
+	};
+
+	//Assignment types: id, name, weight, points possible, and how often
+	//	assignments are of the type out of 20
+	//
+	private static final int[] TYPE_IDS = {1, 2, 3, 4, 5};
+	private static final String[] TYPE_NAMES = {"Homework", "Quiz", "Exam", "Project", "Participation"};
+	private static final double[] TYPE_WEIGHTS = {1, 1, 3, 2, 0.5};
+	private static final int[] TYPE_POINTS = {10, 20, 100, 50, 5};
+	private static final int[] TYPE_SHARE = {10, 4, 2, 2, 2};
+
+	//Separate random streams, one per table
+	//
+	private static final int STUDENTS = 1, COURSES = 2, SECTIONS = 3, ROSTERS = 4, ASSIGNMENTS = 5, GRADES = 6;
+
+	private final ConnectionPool pool;
+	private final long seed;
+	private final int studentCount;
+	private final int sectionCount;
+	private final int assignmentsPerSection;
+
+
+	//Told how far the generator has got after every commit
+	//
+	public interface Progress{
+		void committed(GenerationResult soFar);
+	}
+
+
+	//studentCount students, sectionCount sections, and on average
+	//	assignmentsPerSection assignments in each section
+	//
+	public DatasetGenerator(ConnectionPool connectionPool, long randomSeed, int studentCount, int sectionCount, int assignmentsPerSection){
+
+		if(studentCount < 1 || sectionCount < 1 || assignmentsPerSection < 1){
+			throw new IllegalArgumentException("A dataset needs at least one student, section and assignment");
+		}
+
+		pool = connectionPool;
+		seed = randomSeed;
+		this.studentCount = studentCount;
+		this.sectionCount = sectionCount;
+		this.assignmentsPerSection = assignmentsPerSection;
+	}
+
+
+	//A district scale times the size of the scale 1 school
+	//
+	public static DatasetGenerator forScale(ConnectionPool connectionPool, long randomSeed, double scale){
+
+		return new DatasetGenerator(connectionPool, randomSeed, (int)Math.max(1, Math.round(BASE_STUDENTS * scale)),
+				(int)Math.max(1, Math.round(BASE_SECTIONS * scale)), DEFAULT_ASSIGNMENTS);
+	}
+
+
+	//Generate the whole dataset, then bring the report summaries and the
+	//	query planner statistics up to date.  The database must not have any
+	//	students or sections yet, since the generated ids start at 1
+	//
+	public GenerationResult generate(Progress progress) throws SQLException{
+
+		GenerationResult result = new GenerationResult();
+		Connection c = pool.getConnection();
+
+		try{
+			requireEmpty(c);
+			c.setAutoCommit(false);
+
+			Batch batch = new Batch(c, result, progress);
+
+			boolean[] active = insertStudents(batch);
+			int courseCount = insertCourses(batch);
+			insertSections(batch, courseCount, active);
+
+			batch.finish();
+			c.setAutoCommit(true);
+		}
+
+		finally{
+			//Rolls back anything not yet committed if generation failed
+			//
+			pool.releaseConnection(c);
+		}
+
+		new SectionSummaryRepository(pool, new GradeCalculator(pool)).rebuildAll();
+		analyze();
+
+		result.finish();
+		return result;
+	}
+
+
+	private boolean[] insertStudents(Batch batch) throws SQLException{
+
+		Random random = random(STUDENTS);
+		boolean[] active = new boolean[studentCount + 1];
+		LocalDate oldest = LocalDate.of(2007, 9, 1);
+
+		PreparedStatement ps = batch.prepare("INSERT INTO student "
+				+ "(id_num, first_name, last_name, address, city, state, zip, dob, active) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+
+		for(int id = 1; id <= studentCount; id++){
+			int city = skewed(random, CITIES.length, 2);
+
+			//Most of the students who have left are among the oldest fifth of the ids
+			//
+			active[id] = random.nextDouble() >= (id <= studentCount / 5 ? 0.35 : 0.06);
+
+			ps.setInt(1, id);
+			ps.setString(2, FIRST_NAMES[skewed(random, FIRST_NAMES.length, 2)]);
+			ps.setString(3, LAST_NAMES[skewed(random, LAST_NAMES.length, 2)]);
+			ps.setString(4, (100 + random.nextInt(9900)) + " " + STREETS[random.nextInt(STREETS.length)]);
+			ps.setString(5, CITIES[city]);
+			ps.setString(6, "IL");
+			ps.setInt(7, CITY_ZIPS[city] + random.nextInt(3));
+			ps.setString(8, oldest.plusDays(random.nextInt(5 * 365)).toString());
+			ps.setInt(9, active[id] ? 1 : 0);
+
+			batch.add(ps);
+			batch.result.students++;
+
+			if(!active[id]){
+				batch.result.inactiveStudents++;
+			}
+		}
+
+		batch.flush(ps);
+		return active;
+	}
+
+
+	//About one course for every four sections, numbered by subject and level
+	//
+	private int insertCourses(Batch batch) throws SQLException{
+
+		Random random = random(COURSES);
+		int courseCount = Math.max(1, sectionCount / 4);
+
+		PreparedStatement ps = batch.prepare("INSERT INTO courses "
+				+ "(course_id, course_number, course_name, description) VALUES (?, ?, ?, ?)");
+
+		for(int id = 1; id <= courseCount; id++){
+			String[] subject = SUBJECTS[(id - 1) % SUBJECTS.length];
+			int level = 1 + (id - 1) / SUBJECTS.length;
+
+			ps.setInt(1, id);
+			ps.setString(2, subject[0] + (100 + level));
+			ps.setString(3, subject[1] + " " + level);
+			ps.setString(4, random.nextInt(3) == 0 ? null : subject[1] + " at level " + level);
+
+			batch.add(ps);
+			batch.result.courses++;
+		}
+
+		batch.flush(ps);
+		return courseCount;
+	}
+
+
+	//Every section with its roster, assignments and grades, one section at
+	//	a time so a section's rows go out together
+	//
+	private void insertSections(Batch batch, int courseCount, boolean[] active) throws SQLException{
+
+		Random sections = random(SECTIONS);
+		Random rosters = random(ROSTERS);
+		Random assignments = random(ASSIGNMENTS);
+		Random grades = random(GRADES);
+
+		float[] ability = abilities();
+		int[] activeIds = activeIds(active);
+		int assignmentId = 0;
+
+		insertTypes(batch);
+
+		PreparedStatement section = batch.prepare("INSERT INTO course_sections "
+				+ "(class_id, course_id, meeting_day, max_students, term) VALUES (?, ?, ?, ?, ?)");
+		PreparedStatement roster = batch.prepare("INSERT INTO course_roster (class_id, student_id, course_id) VALUES (?, ?, ?)");
+		PreparedStatement assignment = batch.prepare("INSERT INTO assignments "
+				+ "(assignment_id, class_id, type_id, name, points_possible) VALUES (?, ?, ?, ?, ?)");
+		PreparedStatement grade = batch.prepare("INSERT INTO assignment_link (assignment_id, student_id, points) VALUES (?, ?, ?)");
+
+		for(int classId = 1; classId <= sectionCount; classId++){
+
+			//Every course gets a section, the rest go mostly to the popular ones
+			//
+			int courseId = classId <= courseCount ? classId : 1 + skewed(sections, courseCount, 3);
+			String term = TERMS[sections.nextInt(TERMS.length)];
+			boolean current = term.equals(CURRENT_TERM);
+			int size = sectionSize(sections);
+
+			section.setInt(1, classId);
+			section.setInt(2, courseId);
+			section.setString(3, MEETING_DAYS[sections.nextInt(MEETING_DAYS.length)]);
+			section.setInt(4, sections.nextInt(3) == 0 ? size : size + 1 + sections.nextInt(5));
+			section.setString(5, term);
+			batch.add(section);
+			batch.result.sections++;
+
+			//Students who have left still appear in the rosters of past terms
+			//
+			int[] students = pickStudents(rosters, current ? activeIds : null, size);
+
+			for(int studentId : students){
+				roster.setInt(1, classId);
+				roster.setInt(2, studentId);
+				roster.setInt(3, courseId);
+				batch.add(roster);
+				batch.result.rosterRows++;
+			}
+
+			int count = Math.max(1, assignmentsPerSection / 2 + assignments.nextInt(assignmentsPerSection + 1));
+
+			//Teachers in the current term have only graded part of the way through
+			//
+			int graded = current ? count * 7 / 10 : count;
+
+			for(int a = 0; a < count; a++){
+				int type = pickType(assignments);
+				assignmentId++;
+
+				assignment.setInt(1, assignmentId);
+				assignment.setInt(2, classId);
+				assignment.setInt(3, TYPE_IDS[type]);
+				assignment.setString(4, TYPE_NAMES[type] + " " + (a + 1));
+				assignment.setFloat(5, TYPE_POINTS[type]);
+				batch.add(assignment);
+				batch.result.assignments++;
+
+				for(int studentId : students){
+					if(a >= graded || grades.nextInt(100) < 4){
+						batch.result.missingGrades++;
+						continue;
+					}
+
+					grade.setInt(1, assignmentId);
+					grade.setInt(2, studentId);
+					grade.setFloat(3, points(grades, ability[studentId], TYPE_POINTS[type]));
+					batch.add(grade);
+					batch.result.grades++;
+				}
+			}
+		}
+
+		batch.flush(section);
+		batch.flush(roster);
+		batch.flush(assignment);
+		batch.flush(grade);
+	}
+
+
+	private void insertTypes(Batch batch) throws SQLException{
+
+		PreparedStatement ps = batch.prepare("INSERT OR IGNORE INTO type (type_id, type, weight) VALUES (?, ?, ?)");
+
+		for(int t = 0; t < TYPE_IDS.length; t++){
+			ps.setInt(1, TYPE_IDS[t]);
+			ps.setString(2, TYPE_NAMES[t]);
+			ps.setDouble(3, TYPE_WEIGHTS[t]);
+			batch.add(ps);
+		}
+
+		batch.flush(ps);
+	}
+
+
+	//Mostly ordinary classes of 18 to 34, some seminars, some big lectures
+	//
+	private static int sectionSize(Random random){
+
+		int kind = random.nextInt(20);
+
+		if(kind < 2){
+			return 6 + random.nextInt(9);
+		}
+
+		if(kind < 17){
+			return 18 + random.nextInt(17);
+		}
+
+		return 45 + random.nextInt(76);
+	}
+
+
+	//size distinct students, from ids if given and from everybody otherwise
+	//
+	private int[] pickStudents(Random random, int[] ids, int size){
+
+		int choices = ids == null ? studentCount : ids.length;
+		int[] picked = new int[Math.min(size, choices)];
+		Set<Integer> seen = new HashSet<Integer>();
+
+		for(int i = 0; i < picked.length; i++){
+			int id;
+
+			do{
+				int index = random.nextInt(choices);
+				id = ids == null ? index + 1 : ids[index];
+			}
+			while(!seen.add(id));
+
+			picked[i] = id;
+		}
+
+		return picked;
+	}
+
+
+	private static int pickType(Random random){
+
+		int total = 0;
+
+		for(int share : TYPE_SHARE){
+			total += share;
+		}
+
+		int pick = random.nextInt(total);
+
+		for(int t = 0; t < TYPE_SHARE.length; t++){
+			pick -= TYPE_SHARE[t];
+
+			if(pick < 0){
+				return t;
+			}
+		}
+
+		return 0;
+	}
+
+
+	//A score near the student's usual fraction of the points, to the half
+	//	point.  Now and then work was never turned in and scored zero
+	//
+	private static float points(Random random, float ability, int possible){
+
+		if(random.nextInt(50) == 0){
+			return 0;
+		}
+
+		double fraction = Math.max(0, Math.min(1, ability + random.nextGaussian() * 0.12));
+
+		return Math.round(fraction * possible * 2) / 2.0f;
+	}
+
+
+	//Each student's usual fraction of the points, indexed by id
+	//
+	private float[] abilities(){
+
+		Random random = random(GRADES + 100);
+		float[] ability = new float[studentCount + 1];
+
+		for(int id = 1; id <= studentCount; id++){
+			ability[id] = (float)Math.max(0.2, Math.min(1, 0.8 + random.nextGaussian() * 0.12));
+		}
+
+		return ability;
+	}
+
+
+	private int[] activeIds(boolean[] active){
+
+		int count = 0;
+
+		for(int id = 1; id <= studentCount; id++){
+			if(active[id]){
+				count++;
+			}
+		}
+
+		//With nobody active the current term is filled from everybody
+		//
+		if(count == 0){
+			return null;
+		}
+
+		int[] ids = new int[count];
+		int next = 0;
+
+		for(int id = 1; id <= studentCount; id++){
+			if(active[id]){
+				ids[next++] = id;
+			}
+		}
+
+		return ids;
+	}
+
+
+	//An index below n, with the low indexes picked far more often the higher
+	//	the skew
+	//
+	private static int skewed(Random random, int n, double skew){
+		return Math.min(n - 1, (int)(n * Math.pow(random.nextDouble(), skew)));
+	}
+
+
+	private Random random(int stream){
+		return new Random(seed * 31 + stream);
+	}
+
+
+	private void requireEmpty(Connection c) throws SQLException{
+
+		Statement stmt = c.createStatement();
+
+		try{
+			ResultSet rs = stmt.executeQuery("SELECT (SELECT count(*) FROM student) + (SELECT count(*) FROM course_sections)");
+
+			try{
+				if(rs.next() && rs.getLong(1) > 0){
+					throw new SQLException("The database already has students or sections, generate into an empty one");
+				}
+			}
+
+			finally{
+				rs.close();
+			}
+		}
+
+		finally{
+			stmt.close();
+		}
+	}
+
+
+	private void analyze() throws SQLException{
+
+		Connection c = pool.getConnection();
+
+		try{
+			Statement stmt = c.createStatement();
+			stmt.execute("ANALYZE");
+			stmt.close();
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+	}
+
+
+	//Sends rows in batches of BATCH_SIZE per statement and commits every
+	//	COMMIT_SIZE rows over all statements.  Statements are prepared parents
+	//	first (students before rosters, assignments before grades), and a
+	//	statement's batch only goes out after every earlier statement's, so
+	//	foreign keys always find their rows
+	//
+	private static class Batch{
+
+		private final Connection c;
+		private final GenerationResult result;
+		private final Progress progress;
+
+		private final List<PreparedStatement> statements = new ArrayList<PreparedStatement>();
+		private final List<Integer> queued = new ArrayList<Integer>();
+		private int uncommitted = 0;
+
+		Batch(Connection connection, GenerationResult generationResult, Progress generationProgress){
+			c = connection;
+			result = generationResult;
+			progress = generationProgress;
+		}
+
+		PreparedStatement prepare(String sql) throws SQLException{
+
+			PreparedStatement ps = c.prepareStatement(sql);
+			statements.add(ps);
+			queued.add(0);
+
+			return ps;
+		}
+
+		void add(PreparedStatement ps) throws SQLException{
+
+			ps.addBatch();
+			int index = statements.indexOf(ps);
+			queued.set(index, queued.get(index) + 1);
+
+			if(queued.get(index) >= BATCH_SIZE){
+				flushThrough(index);
+			}
+
+			if(++uncommitted >= COMMIT_SIZE){
+				commit();
+			}
+		}
+
+		//Send what ps and every statement before it have queued
+		//
+		void flush(PreparedStatement ps) throws SQLException{
+			flushThrough(statements.indexOf(ps));
+		}
+
+		void finish() throws SQLException{
+
+			commit();
+
+			for(PreparedStatement ps : statements){
+				ps.close();
+			}
+		}
+
+		private void flushThrough(int last) throws SQLException{
+
+			for(int i = 0; i <= last; i++){
+				if(queued.get(i) > 0){
+					statements.get(i).executeBatch();
+					queued.set(i, 0);
+				}
+			}
+		}
+
+		private void commit() throws SQLException{
+
+			flushThrough(statements.size() - 1);
+			c.commit();
+			uncommitted = 0;
+
+			if(progress != null){
+				progress.committed(result);
+			}
+		}
+	}
+
+
+	//How many rows of each kind were generated and how long it took
+	//
+	public static class GenerationResult{
+
+		private final long start = System.nanoTime();
+		private long nanos;
+
+		private long students, inactiveStudents, courses, sections, rosterRows, assignments, grades, missingGrades;
+
+		private void finish(){
+			nanos = System.nanoTime() - start;
+		}
+
+		public long getStudents(){
+			return students;
+		}
+
+		public long getInactiveStudents(){
+			return inactiveStudents;
+		}
+
+		public long getCourses(){
+			return courses;
+		}
+
+		public long getSections(){
+			return sections;
+		}
+
+		public long getRosterRows(){
+			return rosterRows;
+		}
+
+		public long getAssignments(){
+			return assignments;
+		}
+
+		public long getGrades(){
+			return grades;
+		}
+
+		//Roster students with no grade entered for an assignment
+		//
+		public long getMissingGrades(){
+			return missingGrades;
+		}
+
+		public long getRows(){
+			return students + courses + sections + rosterRows + assignments + grades;
+		}
+
+		public double getMillis(){
+			return (nanos == 0 ? System.nanoTime() - start : nanos) / 1000000.0;
+		}
+
+		public double getRowsPerSecond(){
+			return getRows() / Math.max(getMillis() / 1000.0, 0.001);
+		}
+
+		public String toString(){
+			return String.format("%d students (%d inactive), %d courses, %d sections, %d roster rows, %d assignments, "
+					+ "%d grades (%d missing), %.1f s, %.0f rows/s", students, inactiveStudents, courses, sections,
+					rosterRows, assignments, grades, missingGrades, getMillis() / 1000.0, getRowsPerSecond());
+		}
+	}
+}
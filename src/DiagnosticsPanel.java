@@ -0,0 +1,217 @@
+import java.awt.BorderLayout;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JSplitPane;
+import javax.swing.JTable;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.AbstractTableModel;
+
+
+//Live view of the MetricsRegistry: every timer with its percentiles on
+//	top, counters and gauges below.  Gradebook calls showMetrics() about
+//	once a second while the card is showing.
+//
+public class DiagnosticsPanel extends JPanel {
+
+	private static final long serialVersionUID = 1L;
+
+	private JTable timerTable, valueTable;
+	private TimerTableModel timers;
+	private ValueTableModel values;
+	private JLabel lblDumpFile;
+	private JButton btnCancelToHome, btnReset, btnDumpNow;
+
+
+	public DiagnosticsPanel(){
+
+		timers = new TimerTableModel();
+		values = new ValueTableModel();
+
+		timerTable = new JTable(timers);
+		timerTable.setAutoCreateRowSorter(true);
+		timerTable.getColumnModel().getColumn(0).setPreferredWidth(420);
+
+		valueTable = new JTable(values);
+		valueTable.setAutoCreateRowSorter(true);
+
+		JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT, new JScrollPane(timerTable), new JScrollPane(valueTable));
+		split.setResizeWeight(0.7);
+
+		lblDumpFile = new JLabel(" ");
+		lblDumpFile.setBorder(new EmptyBorder(5, 5, 5, 5));
+
+		btnReset = new JButton("Reset");
+		btnDumpNow = new JButton("Write to File");
+		btnCancelToHome = new JButton("Home Screen");
+
+		JPanel buttonPanel = new JPanel();
+		buttonPanel.add(btnReset);
+		buttonPanel.add(btnDumpNow);
+		buttonPanel.add(btnCancelToHome);
+
+		JPanel bottomPanel = new JPanel(new BorderLayout());
+		bottomPanel.add(lblDumpFile, BorderLayout.CENTER);
+		bottomPanel.add(buttonPanel, BorderLayout.EAST);
+
+		this.setLayout(new BorderLayout());
+		this.add(split, BorderLayout.CENTER);
+		this.add(bottomPanel, BorderLayout.SOUTH);
+	}
+
+
+	//Show the registry as it is now, keeping the table sort and selection
+	//
+	public void showMetrics(MetricsRegistry registry){
+
+		timers.show(registry.getTimers());
+		values.show(registry);
+
+		File dumpFile = registry.getDumpFile();
+		lblDumpFile.setText(dumpFile == null ? "Not writing metrics to a file" : "Writing metrics to " + dumpFile.getAbsolutePath());
+	}
+
+
+	//These are setter methods for each of the buttons.  This allows all control code to be placed
+	//	in the main program instead of in this class
+	//
+	public void homeButtonActionListener(ActionListener al){
+		btnCancelToHome.addActionListener(al);
+	}
+
+	public void resetActionListener(ActionListener al){
+		btnReset.addActionListener(al);
+	}
+
+	public void dumpActionListener(ActionListener al){
+		btnDumpNow.addActionListener(al);
+	}
+
+
+	private static class TimerTableModel extends AbstractTableModel{
+
+		private static final long serialVersionUID = 1L;
+
+		private static final String[] COLUMNS = {"Timer", "Count", "Mean ms", "p50 ms", "p95 ms", "p99 ms", "Max ms", "Total ms"};
+
+		private List<Object[]> rows = new ArrayList<Object[]>();
+
+		void show(List<MetricsRegistry.Timer> timers){
+
+			List<Object[]> shown = new ArrayList<Object[]>(timers.size());
+
+			for(MetricsRegistry.Timer timer : timers){
+				if(timer.getCount() == 0){
+					continue;
+				}
+
+				double[] p = timer.getPercentilesMillis();
+
+				shown.add(new Object[]{timer.getName(), timer.getCount(), round(timer.getMeanMillis()), round(p[0]),
+						round(p[1]), round(p[2]), round(timer.getMaxMillis()), round(timer.getTotalMillis())});
+			}
+
+			//Same timers as last time: only the numbers changed
+			//
+			boolean sameRows = shown.size() == rows.size();
+
+			for(int i = 0; sameRows && i < shown.size(); i++){
+				sameRows = shown.get(i)[0].equals(rows.get(i)[0]);
+			}
+
+			rows = shown;
+
+			if(sameRows && !rows.isEmpty()){
+				fireTableRowsUpdated(0, rows.size() - 1);
+			}
+
+			else{
+				fireTableDataChanged();
+			}
+		}
+
+		public int getRowCount(){
+			return rows.size();
+		}
+
+		public int getColumnCount(){
+			return COLUMNS.length;
+		}
+
+		public String getColumnName(int column){
+			return COLUMNS[column];
+		}
+
+		public Class<?> getColumnClass(int column){
+			return column == 0 ? String.class : column == 1 ? Long.class : Double.class;
+		}
+
+		public Object getValueAt(int row, int column){
+			return rows.get(row)[column];
+		}
+	}
+
+
+	private static class ValueTableModel extends AbstractTableModel{
+
+		private static final long serialVersionUID = 1L;
+
+		private static final String[] COLUMNS = {"Counter or gauge", "Value"};
+
+		private List<Object[]> rows = new ArrayList<Object[]>();
+
+		void show(MetricsRegistry registry){
+
+			List<Object[]> shown = new ArrayList<Object[]>();
+
+			for(MetricsRegistry.Counter counter : registry.getCounters()){
+				shown.add(new Object[]{counter.getName(), (double)counter.get()});
+			}
+
+			for(String name : registry.getGaugeNames()){
+				shown.add(new Object[]{name, round(registry.readGauge(name))});
+			}
+
+			boolean sameRows = shown.size() == rows.size();
+			rows = shown;
+
+			if(sameRows && !rows.isEmpty()){
+				fireTableRowsUpdated(0, rows.size() - 1);
+			}
+
+			else{
+				fireTableDataChanged();
+			}
+		}
+
+		public int getRowCount(){
+			return rows.size();
+		}
+
+		public int getColumnCount(){
+			return COLUMNS.length;
+		}
+
+		public String getColumnName(int column){
+			return COLUMNS[column];
+		}
+
+		public Class<?> getColumnClass(int column){
+			return column == 0 ? String.class : Double.class;
+		}
+
+		public Object getValueAt(int row, int column){
+			return rows.get(row)[column];
+		}
+	}
+
+
+	private static double round(double millis){
+		return Math.round(millis * 1000) / 1000.0;
+	}
+}
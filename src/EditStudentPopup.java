@@ -5,6 +5,7 @@ import javax.swing.JButton;
 import javax.swing.JFrame;
 import java.awt.event.ActionListener;
 import javax.swing.JLabel;
+import javax.swing.JOptionPane;
 import javax.swing.JTextField;
 
 
@@ -18,6 +19,12 @@ public class EditStudentPopup extends JFrame{
 	
 	private JTextField txtFirstName, txtLastName, txtAddress, txtCity, txtState, txtZip, txtDOB;
 	
+	private static final String[] FIELD_NAMES = {"First Name", "Last Name", "Address", "City", "State", "Zip", "Date of Birth"};
+	
+	
+	//The student as it was when the edit started (or when the edit was
+	//	last rebased onto someone else's save)
+	//
 	private Student student;
 	
 	public EditStudentPopup(Student existingStudent){
@@ -76,10 +83,83 @@ public class EditStudentPopup extends JFrame{
 	
 	
 	//Create a new student from the provided information with a matching id_num
-	//	from the student provided
+	//	and row version from the student provided
 	//
 	public Student newStudent(){
-		return new Student(student.getID(), txtFirstName.getText(), txtLastName.getText(), txtAddress.getText(), txtCity.getText(),
+		
+		Student edited = new Student(student.getID(), txtFirstName.getText(), txtLastName.getText(), txtAddress.getText(), txtCity.getText(),
 				txtState.getText(), txtZip.getText(), txtDOB.getText());
+		edited.setVersion(student.getVersion());
+		
+		return edited;
+	}
+	
+	
+	//Someone else saved the student while this edit was open.  Show which
+	//	fields each side changed and let the user save the merge, start over
+	//	from the other version, or review the merge before saving.
+	//
+	//	A merge keeps every field this edit changed and takes the other save's
+	//	value for the rest.  Returns the merged student to save, or null if
+	//	there is nothing to save yet (the fields then show what to edit next)
+	//
+	public Student resolveConflict(Student current){
+		
+		String[] base = fieldsOf(student);
+		String[] mine = fieldsOf(newStudent());
+		String[] theirs = fieldsOf(current);
+		String[] merged = new String[base.length];
+		
+		StringBuilder message = new StringBuilder("This student was changed by someone else while you were editing.\n\n");
+		
+		for(int f = 0; f < base.length; f++){
+			boolean changedMine = !same(base[f], mine[f]);
+			boolean changedTheirs = !same(base[f], theirs[f]);
+			
+			merged[f] = changedMine ? mine[f] : theirs[f];
+			
+			if(changedMine && changedTheirs && !same(mine[f], theirs[f])){
+				message.append(FIELD_NAMES[f]).append(": yours \"").append(mine[f])
+						.append("\", theirs \"").append(theirs[f]).append("\" (conflict, yours is kept)\n");
+			}
+			
+			else if(changedTheirs){
+				message.append(FIELD_NAMES[f]).append(": theirs \"").append(theirs[f]).append("\"\n");
+			}
+		}
+		
+		String[] options = {"Merge and Save", "Use Their Version", "Keep Editing"};
+		int choice = JOptionPane.showOptionDialog(this, message.toString(), "Student Changed",
+				JOptionPane.DEFAULT_OPTION, JOptionPane.WARNING_MESSAGE, null, options, options[0]);
+		
+		//Either way the edit now starts from their version, so the next
+		//	submit only conflicts if someone saves again
+		//
+		student = current;
+		showFields(choice == 1 ? theirs : merged);
+		
+		return choice == 0 ? newStudent() : null;
+	}
+	
+	
+	private void showFields(String[] fields){
+		
+		txtFirstName.setText(fields[0]);
+		txtLastName.setText(fields[1]);
+		txtAddress.setText(fields[2]);
+		txtCity.setText(fields[3]);
+		txtState.setText(fields[4]);
+		txtZip.setText(fields[5]);
+		txtDOB.setText(fields[6]);
+	}
+	
+	
+	private static String[] fieldsOf(Student s){
+		return new String[]{s.getFirst(), s.getLast(), s.getAddress(), s.getCity(), s.getState(), s.getZip() + "", s.getDOB()};
+	}
+	
+	
+	private static boolean same(String a, String b){
+		return (a == null ? "" : a.trim()).equals(b == null ? "" : b.trim());
 	}
 }
@@ -0,0 +1,346 @@
+import java.awt.EventQueue;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+
+//Watches the event dispatch thread for stalls: times when a listener or a
+//	task callback holds the EDT so long that the window stops repainting.
+//
+//	A watchdog thread posts a heartbeat to the EDT every sample interval.
+//	If a heartbeat waits longer than the threshold, the EDT is stalled, and
+//	the watchdog takes a stack trace of it every sample interval until the
+//	heartbeat runs.  The stall is then written to the report file with the
+//	action that was running, which Gradebook.timed() and BackgroundTask
+//	announce with enter() and exit(), and the stacks it was sampled in,
+//	counted and trimmed to the gradebook's own frames.  Each stall is also
+//	timed as edt.stall.<action> in the MetricsRegistry, so the Diagnostics
+//	card shows which screens stall most.
+//
+//	Stall times are accurate to within one sample interval.  Waiting for
+//	the user in a JOptionPane is not a stall: a modal dialog keeps
+//	dispatching events, heartbeats included.  The heartbeats also keep AWT
+//	from shutting itself down once every window is gone, which is fine for
+//	the gradebook since its frame exits the program on close; anything
+//	else should stop() the watchdog first.
+//
+public class EdtWatchdog {
+
+	//The report starts over, keeping the previous one as .old, past this size
+	//
+	private static final long MAX_REPORT_BYTES = 5 * 1024 * 1024;
+
+	//A sampled stack is cut to the EDT's top TOP_FRAMES frames and the
+	//	gradebook's own frames below them, MAX_FRAMES in all
+	//
+	private static final int TOP_FRAMES = 4;
+	private static final int MAX_FRAMES = 14;
+
+	//The most common stacks shown for each stall
+	//
+	private static final int MAX_STACKS = 4;
+
+	//A stall this long is written out before it ends, in case it never does
+	//
+	private static final long HUNG_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+	private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+	private static EdtWatchdog instance;
+
+	//What the EDT is running, set by enter() and exit() on the EDT and read
+	//	by the watchdog thread
+	//
+	private volatile String activity;
+
+	//The heartbeat: when the last one was posted, whether it is still
+	//	waiting, and when it ran on which thread
+	//
+	private volatile boolean waiting = false;
+	private volatile long answeredAt;
+	private volatile Thread edt;
+	private long postedAt;
+
+	private final Runnable heartbeat = new Runnable(){
+		public void run(){
+			edt = Thread.currentThread();
+			answeredAt = System.nanoTime();
+			waiting = false;
+		}
+	};
+
+	private ScheduledExecutorService watcher;
+	private File reportFile;
+	private long thresholdNanos;
+	private Stall stall;
+
+
+	public static synchronized EdtWatchdog getInstance(){
+
+		if(instance == null){
+			instance = new EdtWatchdog();
+		}
+
+		return instance;
+	}
+
+
+	//Note that the EDT is starting on name, usually an ActionListener's
+	//	class name.  Returns what it was doing before, to pass to exit()
+	//
+	public String enter(String name){
+
+		String previous = activity;
+		activity = name;
+
+		return previous;
+	}
+
+
+	//Note that the EDT has finished what it entered, and is back to previous
+	//
+	public void exit(String previous){
+		activity = previous;
+	}
+
+
+	//Watch the EDT, reporting stalls longer than thresholdMillis to file.
+	//	Calling it again replaces the settings
+	//
+	public synchronized void start(File file, long thresholdMillis, long sampleMillis){
+
+		stop();
+
+		reportFile = file;
+		thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+
+		watcher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory(){
+			public Thread newThread(Runnable r){
+				Thread t = new Thread(r, "edt-watchdog");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+
+		watcher.scheduleWithFixedDelay(new Runnable(){
+			public void run(){
+				check();
+			}
+		}, sampleMillis, sampleMillis, TimeUnit.MILLISECONDS);
+	}
+
+
+	public synchronized void stop(){
+
+		if(watcher != null){
+			watcher.shutdownNow();
+			watcher = null;
+		}
+	}
+
+
+	//One tick of the watchdog thread
+	//
+	private synchronized void check(){
+
+		long now = System.nanoTime();
+
+		if(!waiting){
+			if(stall != null){
+				report(stall, answeredAt - postedAt);
+				stall = null;
+			}
+
+			waiting = true;
+			postedAt = now;
+			EventQueue.invokeLater(heartbeat);
+			return;
+		}
+
+		Thread thread = edt;
+
+		if(now - postedAt < thresholdNanos || thread == null){
+			return;
+		}
+
+		if(stall == null){
+			stall = new Stall(activity, now - postedAt);
+		}
+
+		stall.sample(thread.getStackTrace());
+
+		if(now - postedAt >= HUNG_NANOS && !stall.reportedHung){
+			stall.reportedHung = true;
+			writeQuietly(stall.toReport(TimeUnit.NANOSECONDS.toMillis(now - postedAt), false));
+		}
+	}
+
+
+	//Write the stall to the report file and the metrics, and warn on stderr
+	//
+	private void report(Stall finished, long blockedNanos){
+
+		long millis = TimeUnit.NANOSECONDS.toMillis(blockedNanos);
+		String action = finished.getAction();
+
+		MetricsRegistry.getInstance().timer("edt.stall." + action).record(blockedNanos);
+		System.err.println("EDT blocked " + millis + " ms in " + action + ", see " + reportFile);
+
+		writeQuietly(finished.toReport(millis, true));
+	}
+
+
+	private void writeQuietly(String text){
+
+		try{
+			write(text);
+		}
+
+		catch(IOException e){
+			System.err.println(e);
+		}
+	}
+
+
+	private void write(String text) throws IOException{
+
+		if(reportFile.length() > MAX_REPORT_BYTES){
+			File old = new File(reportFile.getPath() + ".old");
+			old.delete();
+			reportFile.renameTo(old);
+		}
+
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(reportFile, true), StandardCharsets.UTF_8));
+
+		try{
+			out.print(text);
+		}
+
+		finally{
+			out.close();
+		}
+	}
+
+
+	//A frame of the gradebook's own code.  Its classes are in the default
+	//	package, so their names have no dots
+	//
+	private static boolean isOwnFrame(StackTraceElement frame){
+		return frame.getClassName().indexOf('.') < 0;
+	}
+
+
+	//The stack samples of one stall, counted by their trimmed stack
+	//
+	private static class Stall{
+
+		private final String activity;
+		private final String started;
+		private final Map<String, Integer> stacks = new LinkedHashMap<String, Integer>();
+		private String firstOwnFrame;
+		private int samples = 0;
+		private boolean reportedHung = false;
+
+		Stall(String runningActivity, long blockedNanos){
+			activity = runningActivity;
+			started = LocalDateTime.now().minusNanos(blockedNanos).format(TIMESTAMP);
+		}
+
+		void sample(StackTraceElement[] stack){
+
+			samples++;
+
+			String trimmed = trim(stack);
+			Integer count = stacks.get(trimmed);
+			stacks.put(trimmed, count == null ? 1 : count + 1);
+		}
+
+		//The action that was running, or if none was announced, the
+		//	gradebook's own frame the EDT was stuck under
+		//
+		String getAction(){
+
+			if(activity != null){
+				return activity;
+			}
+
+			return firstOwnFrame == null ? "(no action)" : "(no action) " + firstOwnFrame;
+		}
+
+		//The top frames, then the gradebook's own frames down to the
+		//	listener's actionPerformed, one "at" per line
+		//
+		private String trim(StackTraceElement[] stack){
+
+			StringBuilder text = new StringBuilder();
+			int shown = 0;
+
+			for(int i = 0; i < stack.length && shown < MAX_FRAMES; i++){
+				StackTraceElement frame = stack[i];
+				boolean own = isOwnFrame(frame);
+
+				if(own && firstOwnFrame == null){
+					firstOwnFrame = frame.getClassName() + "." + frame.getMethodName();
+				}
+
+				if(i >= TOP_FRAMES && !own){
+					continue;
+				}
+
+				text.append("\tat ").append(frame).append(System.lineSeparator());
+				shown++;
+
+				if(activity != null && frame.getClassName().equals(activity)){
+					break;
+				}
+			}
+
+			return text.toString();
+		}
+
+		//The stall with its most common stacks.  ended is false for a stall
+		//	written while the EDT is still blocked
+		//
+		String toReport(long millis, boolean ended){
+
+			List<Map.Entry<String, Integer>> byCount = new ArrayList<Map.Entry<String, Integer>>(stacks.entrySet());
+
+			Collections.sort(byCount, new Comparator<Map.Entry<String, Integer>>(){
+				public int compare(Map.Entry<String, Integer> a, Map.Entry<String, Integer> b){
+					return b.getValue() - a.getValue();
+				}
+			});
+
+			StringBuilder text = new StringBuilder();
+			text.append(String.format("# %s EDT %s %d ms in %s, %d samples%n", started, ended ? "blocked" : "still blocked after",
+					millis, getAction(), samples));
+
+			for(int i = 0; i < byCount.size() && i < MAX_STACKS; i++){
+				text.append(String.format("%d of %d samples:%n", byCount.get(i).getValue(), samples));
+				text.append(byCount.get(i).getKey());
+			}
+
+			if(byCount.size() > MAX_STACKS){
+				text.append(String.format("and %d other stacks%n", byCount.size() - MAX_STACKS));
+			}
+
+			text.append(System.lineSeparator());
+			return text.toString();
+		}
+	}
+}
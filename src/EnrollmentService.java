@@ -0,0 +1,423 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+
+//Enrolls students in and drops them from class sections without ever
+//	putting more students on a roster than the section's max_students.
+//
+//	Several staff may be registering students at the same time, each with
+//	their own connection, so the capacity check cannot be a count read
+//	first and an insert done later.  Every call runs in one BEGIN IMMEDIATE
+//	transaction, which takes SQLite's write lock up front, and each seat is
+//	taken by a single INSERT ... SELECT that only inserts while the roster
+//	is below max_students.  A student who does not get a seat goes on the
+//	section's waitlist, and dropping students promotes the longest waiting
+//	students into the seats that opened up.
+//
+public class EnrollmentService {
+
+	private static final String SECTION =
+			"SELECT max_students FROM course_sections WHERE class_id = ?";
+
+	//Takes a seat only if the student is not already enrolled and the
+	//	roster is below capacity, checked and written in one statement
+	//
+	private static final String TAKE_SEAT =
+			"INSERT INTO course_roster (class_id, student_id, course_id) "
+			+ "SELECT cs.class_id, ?, cs.course_id FROM course_sections cs WHERE cs.class_id = ? "
+			+ "AND NOT EXISTS (SELECT 1 FROM course_roster WHERE class_id = cs.class_id AND student_id = ?) "
+			+ "AND (SELECT count(*) FROM course_roster WHERE class_id = cs.class_id) < cs.max_students";
+
+	private static final String ENROLLED =
+			"SELECT 1 FROM course_roster WHERE class_id = ? AND student_id = ?";
+
+	private static final String DROP =
+			"DELETE FROM course_roster WHERE class_id = ? AND student_id = ?";
+
+	private static final String WAITLIST_ADD =
+			"INSERT INTO course_waitlist (class_id, student_id) VALUES (?, ?) "
+			+ "ON CONFLICT (class_id, student_id) DO NOTHING";
+
+	private static final String WAITLIST_REMOVE =
+			"DELETE FROM course_waitlist WHERE class_id = ? AND student_id = ?";
+
+	private static final String WAITLIST =
+			"SELECT student_id FROM course_waitlist WHERE class_id = ? ORDER BY waitlist_id";
+
+	private static final String WAITLIST_HEAD =
+			"SELECT student_id FROM course_waitlist WHERE class_id = ? ORDER BY waitlist_id LIMIT 1";
+
+	private final ConnectionPool pool;
+
+
+	public EnrollmentService(ConnectionPool connectionPool){
+		pool = connectionPool;
+	}
+
+
+	public EnrollmentResult enroll(int classId, int studentId) throws SQLException{
+		return enroll(classId, new int[]{studentId});
+	}
+
+
+	//Enroll every student in the section, in order, while there are seats.
+	//	The rest go on the waitlist.  All or nothing: if any student cannot be
+	//	written (an unknown id, say) none of them are
+	//
+	public EnrollmentResult enroll(int classId, int[] studentIds) throws SQLException{
+
+		EnrollmentResult result = new EnrollmentResult(classId);
+		Connection c = pool.getConnection();
+
+		try{
+			Statement stmt = c.createStatement();
+
+			boolean committed = false;
+
+			try{
+				stmt.execute("BEGIN IMMEDIATE");
+
+				try{
+					requireSection(c, classId);
+
+					for(int studentId : studentIds){
+						if(takeSeat(c, classId, studentId)){
+							result.enrolled.add(studentId);
+						}
+
+						else if(isEnrolled(c, classId, studentId)){
+							result.alreadyEnrolled.add(studentId);
+						}
+
+						else{
+							PreparedStatement ps = pool.prepare(c, WAITLIST_ADD);
+							ps.setInt(1, classId);
+							ps.setInt(2, studentId);
+							ps.executeUpdate();
+							result.waitlisted.add(studentId);
+						}
+					}
+
+					stmt.execute("COMMIT");
+					committed = true;
+				}
+
+				finally{
+					if(!committed){
+						rollback(stmt);
+					}
+				}
+			}
+
+			finally{
+				stmt.close();
+			}
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+
+		return result;
+	}
+
+
+	public EnrollmentResult drop(int classId, int studentId) throws SQLException{
+		return drop(classId, new int[]{studentId});
+	}
+
+
+	//Take the students off the section's roster (or its waitlist), then
+	//	fill the freed seats from the head of the waitlist
+	//
+	public EnrollmentResult drop(int classId, int[] studentIds) throws SQLException{
+
+		EnrollmentResult result = new EnrollmentResult(classId);
+		Connection c = pool.getConnection();
+
+		try{
+			Statement stmt = c.createStatement();
+
+			boolean committed = false;
+
+			try{
+				stmt.execute("BEGIN IMMEDIATE");
+
+				try{
+					requireSection(c, classId);
+
+					PreparedStatement drop = pool.prepare(c, DROP);
+
+					for(int studentId : studentIds){
+						drop.setInt(1, classId);
+						drop.setInt(2, studentId);
+
+						if(drop.executeUpdate() > 0){
+							result.dropped.add(studentId);
+						}
+
+						leaveWaitlist(c, classId, studentId);
+					}
+
+					promote(c, classId, result);
+
+					stmt.execute("COMMIT");
+					committed = true;
+				}
+
+				finally{
+					if(!committed){
+						rollback(stmt);
+					}
+				}
+			}
+
+			finally{
+				stmt.close();
+			}
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+
+		return result;
+	}
+
+
+	//The section's waitlist, longest waiting first
+	//
+	public List<Integer> listWaitlist(int classId) throws SQLException{
+
+		List<Integer> waiting = new ArrayList<Integer>();
+		Connection c = pool.getConnection();
+
+		try{
+			PreparedStatement ps = pool.prepare(c, WAITLIST);
+			ps.setInt(1, classId);
+			ResultSet rs = ps.executeQuery();
+
+			try{
+				while(rs.next()){
+					waiting.add(rs.getInt(1));
+				}
+			}
+
+			finally{
+				rs.close();
+			}
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+
+		return waiting;
+	}
+
+
+	//Move students from the head of the waitlist onto the roster until the
+	//	section is full or nobody is waiting
+	//
+	private void promote(Connection c, int classId, EnrollmentResult result) throws SQLException{
+
+		PreparedStatement head = pool.prepare(c, WAITLIST_HEAD);
+
+		while(true){
+			head.setInt(1, classId);
+			ResultSet rs = head.executeQuery();
+			int studentId;
+
+			try{
+				if(!rs.next()){
+					return;
+				}
+
+				studentId = rs.getInt(1);
+			}
+
+			finally{
+				rs.close();
+			}
+
+			boolean seated = takeSeat(c, classId, studentId);
+
+			//A student who got on the roster some other way just leaves the
+			//	waitlist, but if the seat was not there the section is full
+			//
+			if(!seated && !isEnrolled(c, classId, studentId)){
+				return;
+			}
+
+			leaveWaitlist(c, classId, studentId);
+
+			if(seated){
+				result.promoted.add(studentId);
+			}
+		}
+	}
+
+
+	private boolean takeSeat(Connection c, int classId, int studentId) throws SQLException{
+
+		PreparedStatement ps = pool.prepare(c, TAKE_SEAT);
+		ps.setInt(1, studentId);
+		ps.setInt(2, classId);
+		ps.setInt(3, studentId);
+
+		if(ps.executeUpdate() == 0){
+			return false;
+		}
+
+		leaveWaitlist(c, classId, studentId);
+
+		return true;
+	}
+
+
+	private boolean isEnrolled(Connection c, int classId, int studentId) throws SQLException{
+
+		PreparedStatement ps = pool.prepare(c, ENROLLED);
+		ps.setInt(1, classId);
+		ps.setInt(2, studentId);
+		ResultSet rs = ps.executeQuery();
+
+		try{
+			return rs.next();
+		}
+
+		finally{
+			rs.close();
+		}
+	}
+
+
+	private void leaveWaitlist(Connection c, int classId, int studentId) throws SQLException{
+
+		PreparedStatement ps = pool.prepare(c, WAITLIST_REMOVE);
+		ps.setInt(1, classId);
+		ps.setInt(2, studentId);
+		ps.executeUpdate();
+	}
+
+
+	private void requireSection(Connection c, int classId) throws SQLException{
+
+		PreparedStatement ps = pool.prepare(c, SECTION);
+		ps.setInt(1, classId);
+		ResultSet rs = ps.executeQuery();
+
+		try{
+			if(!rs.next()){
+				throw new SQLException("There is no class section " + classId);
+			}
+		}
+
+		finally{
+			rs.close();
+		}
+	}
+
+
+	//Ends a transaction that did not reach its COMMIT, whatever was thrown.
+	//	The connection is in auto-commit mode, so the pool would not roll it
+	//	back on release.  A failed rollback is only reported, so that it does
+	//	not hide the exception already on its way out
+	//
+	private static void rollback(Statement stmt){
+		try{
+			stmt.execute("ROLLBACK");
+		}
+
+		catch(SQLException e){
+			System.err.println(e);
+		}
+	}
+
+
+	//What one enroll or drop call did, student by student
+	//
+	public static class EnrollmentResult{
+
+		private final int classId;
+		private final List<Integer> enrolled = new ArrayList<Integer>();
+		private final List<Integer> alreadyEnrolled = new ArrayList<Integer>();
+		private final List<Integer> waitlisted = new ArrayList<Integer>();
+		private final List<Integer> dropped = new ArrayList<Integer>();
+		private final List<Integer> promoted = new ArrayList<Integer>();
+
+		EnrollmentResult(int section){
+			classId = section;
+		}
+
+		public int getClassID(){
+			return classId;
+		}
+
+		public List<Integer> getEnrolled(){
+			return enrolled;
+		}
+
+		public List<Integer> getAlreadyEnrolled(){
+			return alreadyEnrolled;
+		}
+
+		public List<Integer> getWaitlisted(){
+			return waitlisted;
+		}
+
+		public List<Integer> getDropped(){
+			return dropped;
+		}
+
+		//Waitlisted students who got a seat that a drop freed up
+		//
+		public List<Integer> getPromoted(){
+			return promoted;
+		}
+
+
+		//Bring an in-memory copy of the section's roster up to date with
+		//	what was written
+		//
+		public void applyTo(CourseSection section){
+
+			for(int studentId : dropped){
+				section.drop(studentId);
+			}
+
+			for(int studentId : promoted){
+				section.enroll(studentId);
+			}
+
+			for(int studentId : enrolled){
+				section.enroll(studentId);
+			}
+		}
+
+		public String toString(){
+
+			StringBuilder text = new StringBuilder("Class " + classId + ":");
+
+			append(text, "enrolled", enrolled);
+			append(text, "already enrolled", alreadyEnrolled);
+			append(text, "waitlisted", waitlisted);
+			append(text, "dropped", dropped);
+			append(text, "promoted from the waitlist", promoted);
+
+			return text.toString();
+		}
+
+		private static void append(StringBuilder text, String what, List<Integer> ids){
+
+			if(!ids.isEmpty()){
+				text.append(' ').append(ids.size()).append(' ').append(what).append(' ').append(ids).append('.');
+			}
+		}
+	}
+}
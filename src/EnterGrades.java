@@ -5,8 +5,11 @@ import javax.swing.JTable;
 import javax.swing.JButton;
 import javax.swing.JLabel;
 import javax.swing.JList;
+import javax.swing.ListModel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableModel;
 
 
 public class EnterGrades extends JPanel{
@@ -26,9 +29,11 @@ public class EnterGrades extends JPanel{
 	
 	private JScrollPane classList, classRoster;
 	
+	private JList<CourseSection> classJList;
+	
 	private JButton btnCancelToHome, btnSaveAllGrades, btnShowClassRoster, btnShowStudentAssignments;
 	
-	private String[] displayColumns = {"Assignment Name", "Assignment Type", "Points / Total", "Percentage", "Letter Grade"};
+	private String[] displayColumns = {"Student Name", "Percentage", "Letter Grade"};
 	
 	public EnterGrades(){
 		
@@ -65,24 +70,18 @@ public class EnterGrades extends JPanel{
 		btnShowClassRoster = new JButton("Show Class Roster");
 		
 		//TEMPORARY CODE
-		String[][] assignmentData = {
-				{"Quiz 1", "Quiz", "50 / 50", "100", "A"},
-				{"Homework 1", "Homework", "20/25", "80", "B"}
-		};
-		
-		String[] listOfClasses = {"Class 1", "Class 2", "Class 3", "Class 4", "Class 5", "Class 6"};
 		String[] listOfStudents = {"Student 1", "Student 2", "Student 3", "Student 4", "Student 5"};
 		
 		classList = new JScrollPane();
 		classRoster = new JScrollPane();
 				
-		JList<String> list = new JList<String>(listOfClasses);
+		classJList = new JList<CourseSection>();
 		JList<String> list2 = new JList<String>(listOfStudents);
 		
-		classList.setViewportView(list);
+		classList.setViewportView(classJList);
 		classRoster.setViewportView(list2);
 		
-		assignmentGrades = new JTable(assignmentData, displayColumns);
+		assignmentGrades = new JTable(new DefaultTableModel(displayColumns, 0));
 		
 		homeButtonPanel.add(btnSaveAllGrades);
 		homeButtonPanel.add(btnCancelToHome);
@@ -130,4 +129,29 @@ public class EnterGrades extends JPanel{
 	public void showAssignmentsActionListener(ActionListener saal){
 		btnShowStudentAssignments.addActionListener(saal);
 	}
+	
+	public void setClassList(ListModel<CourseSection> classes){
+		classJList.setModel(classes);
+	}
+	
+	public CourseSection getSelectedClass(){
+		return classJList.getSelectedValue();
+	}
+	
+	public void setGradeTable(TableModel grades){
+		assignmentGrades.setModel(grades);
+	}
+	
+	
+	//Get the grades in the table, finishing any cell the user is still
+	//	typing in so it is included
+	//
+	public TableModel getGradeTable(){
+		
+		if(assignmentGrades.isEditing()){
+			assignmentGrades.getCellEditor().stopCellEditing();
+		}
+		
+		return assignmentGrades.getModel();
+	}
 }
@@ -0,0 +1,192 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.Timespan;
+
+
+//JDK Flight Recorder events for the gradebook, so a recording shows which
+//	click ran which queries on which thread, next to the JVM's own method
+//	samples, lock waits and garbage collections.
+//
+//	gradebook.Sql		one per SQL statement, from InstrumentedJdbc
+//	gradebook.UiAction	one per button click, from Gradebook.timed()
+//	gradebook.Task		one per background task, from TaskRunner
+//
+//	The events cost next to nothing unless a recording is running.
+//	"Gradebook --record [file]" starts one with the gradebook.jfc settings
+//	that ship in the jar, and writes it to the file when the program exits;
+//	-Dgradebook.jfr.settings names another .jfc file or one of the JDK's
+//	own ("default", "profile") instead.
+//
+public final class FlightRecording {
+
+	public static final String SETTINGS_RESOURCE = "/gradebook.jfc";
+
+	private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+
+	private FlightRecording(){
+	}
+
+
+	//Start recording to file, until the JVM exits
+	//
+	public static Recording start(File file) throws IOException, ParseException{
+
+		Recording recording = new Recording(settings());
+
+		recording.setName("gradebook");
+		recording.setDestination(file.toPath());
+		recording.setDumpOnExit(true);
+		recording.start();
+
+		return recording;
+	}
+
+
+	//gradebook-<date>-<time>.jfr in the working directory
+	//
+	public static File defaultFile(){
+		return new File("gradebook-" + LocalDateTime.now().format(FILE_TIMESTAMP) + ".jfr");
+	}
+
+
+	//-Dgradebook.jfr.settings if set, otherwise gradebook.jfc from the
+	//	classpath, otherwise the JDK's profile settings.  The gradebook's
+	//	events are on by default, so they are recorded with any of these
+	//
+	private static Configuration settings() throws IOException, ParseException{
+
+		String name = System.getProperty("gradebook.jfr.settings");
+
+		if(name != null){
+			File file = new File(name);
+			return file.isFile() ? Configuration.create(file.toPath()) : Configuration.getConfiguration(name);
+		}
+
+		InputStream in = FlightRecording.class.getResourceAsStream(SETTINGS_RESOURCE);
+
+		if(in == null){
+			return Configuration.getConfiguration("profile");
+		}
+
+		try{
+			return Configuration.create(new InputStreamReader(in, StandardCharsets.UTF_8));
+		}
+
+		finally{
+			in.close();
+		}
+	}
+
+
+	//A SQL statement from execute to its last row.  The event's duration
+	//	includes whatever the caller did between rows; driverTime is the time
+	//	spent in SQLite alone, the same time the sql.* timers record
+	//
+	@Name("gradebook.Sql")
+	@Label("SQL Statement")
+	@Category({"Gradebook", "Database"})
+	public static class SqlEvent extends Event{
+
+		@Label("Statement")
+		@Description("The SQL with its literals replaced by ?")
+		String shape;
+
+		@Label("Rows")
+		@Description("Rows read by a query or changed by an update, -1 if not known")
+		long rows;
+
+		@Label("Driver Time")
+		@Timespan(Timespan.NANOSECONDS)
+		long driverTime;
+
+		@Label("Failed")
+		boolean failed;
+
+		void finish(String statementShape, long rowCount, long driverNanos, boolean threw){
+
+			end();
+
+			if(shouldCommit()){
+				shape = statementShape;
+				rows = rowCount;
+				driverTime = driverNanos;
+				failed = threw;
+				commit();
+			}
+		}
+	}
+
+
+	//A button's ActionListener running on the event dispatch thread
+	//
+	@Name("gradebook.UiAction")
+	@Label("UI Action")
+	@Category({"Gradebook", "UI"})
+	public static class UiActionEvent extends Event{
+
+		@Label("Card")
+		@Description("The card showing when the button was pressed")
+		String card;
+
+		@Label("Action")
+		@Description("The ActionListener class")
+		String action;
+
+		@Label("Command")
+		@Description("The button's action command, usually its text")
+		String command;
+
+		void finish(String cardName, String actionName, String actionCommand){
+
+			end();
+
+			if(shouldCommit()){
+				card = cardName;
+				action = actionName;
+				command = actionCommand;
+				commit();
+			}
+		}
+	}
+
+
+	//A BackgroundTask from execute() until its succeeded() or failed()
+	//	callback has returned on the EDT
+	//
+	@Name("gradebook.Task")
+	@Label("Background Task")
+	@Category({"Gradebook", "UI"})
+	public static class TaskEvent extends Event{
+
+		@Label("Task")
+		String description;
+
+		@Label("Cancelled")
+		boolean cancelled;
+
+		void finish(String taskDescription, boolean wasCancelled){
+
+			end();
+
+			if(shouldCommit()){
+				description = taskDescription;
+				cancelled = wasCancelled;
+				commit();
+			}
+		}
+	}
+}
@@ -5,8 +5,10 @@ import javax.swing.JTable;
 import javax.swing.JButton;
 import javax.swing.JLabel;
 import javax.swing.JList;
+import javax.swing.ListModel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.table.TableModel;
 
 
 public class GenerateReportFrame extends JPanel{
@@ -25,7 +27,9 @@ public class GenerateReportFrame extends JPanel{
 	
 	private JScrollPane classList, classRoster;
 	
-	private JButton btnCancelToHome, btnPrintReport, btnShowClassRoster, btnGenerateReport;
+	private JList<CourseSection> classJList;
+	
+	private JButton btnCancelToHome, btnPrintReport, btnShowClassRoster, btnGenerateReport, btnExportTerm, btnReportCards;
 	
 	private String[] displayColumns = {"Student Name", "Points", 
 							"Possible Points", "Percentage", "Letter Grade", "Rank"};
@@ -62,6 +66,8 @@ public class GenerateReportFrame extends JPanel{
 		btnPrintReport = new JButton("Print Report");
 		btnGenerateReport = new JButton("Show Student Assignments");
 		btnShowClassRoster = new JButton("Show Class Roster");
+		btnExportTerm = new JButton("Export Term");
+		btnReportCards = new JButton("Spool Report Cards");
 		
 		//TEMPORARY CODE
 		//--------------------------------------------------------------------------
@@ -70,16 +76,15 @@ public class GenerateReportFrame extends JPanel{
 				{"Two, Student", "100", "100", "100%", "A", "1"}
 		};
 		
-		String[] listOfClasses = {"Class 1", "Class 2", "Class 3", "Class 4", "Class 5", "Class 6"};
 		String[] listOfStudents = {"Student 1", "Student 2", "Student 3", "Student 4", "Student 5"};
 		
 		classList = new JScrollPane();
 		classRoster = new JScrollPane();
 				
-		JList<String> list = new JList<String>(listOfClasses);
+		classJList = new JList<CourseSection>();
 		JList<String> list2 = new JList<String>(listOfStudents);
 		
-		classList.setViewportView(list);
+		classList.setViewportView(classJList);
 		classRoster.setViewportView(list2);
 		
 		//---------------------------------------------------------------------------
@@ -87,6 +92,8 @@ public class GenerateReportFrame extends JPanel{
 		assignmentGrades = new JTable(assignmentData, displayColumns);
 		
 		homeButtonPanel.add(btnPrintReport);
+		homeButtonPanel.add(btnReportCards);
+		homeButtonPanel.add(btnExportTerm);
 		homeButtonPanel.add(btnCancelToHome);
 		
 		studentSelectPanel.add(classRoster);
@@ -133,4 +140,28 @@ public class GenerateReportFrame extends JPanel{
 	public void generateReportActionListener(ActionListener gral){
 		btnGenerateReport.addActionListener(gral);
 	}
-}
\ No newline at end of file
+	
+	public void exportActionListener(ActionListener eal){
+		btnExportTerm.addActionListener(eal);
+	}
+	
+	public void reportCardsActionListener(ActionListener rcal){
+		btnReportCards.addActionListener(rcal);
+	}
+	
+	public void setClassList(ListModel<CourseSection> classes){
+		classJList.setModel(classes);
+	}
+	
+	public CourseSection getSelectedClass(){
+		return classJList.getSelectedValue();
+	}
+	
+	public void setReportTable(TableModel report){
+		assignmentGrades.setModel(report);
+	}
+	
+	public TableModel getReportTable(){
+		return assignmentGrades.getModel();
+	}
+}
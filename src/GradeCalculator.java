@@ -0,0 +1,283 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+//Computes report grades for class sections: points earned and possible,
+//	weighted percentage, letter grade and rank for every student.
+//
+//	Each assignment type (Quiz, Homework...) has a weight in the type table.
+//	A student's percentage is the weighted average of their percentage in
+//	each type, counting only the types that have something graded.  Missing
+//	grades are left out of both points earned and points possible.
+//
+//	All of the math is done on float arrays indexed by student and type, and
+//	ranks come from one sort of the percentages, never from String cells.
+//
+public class GradeCalculator {
+
+	private static final String ROSTER =
+			"SELECT s.id_num, s.first_name, s.last_name FROM course_roster r "
+			+ "JOIN student s ON s.id_num = r.student_id WHERE r.class_id = ? "
+			+ "ORDER BY s.last_name, s.first_name, s.id_num";
+
+	private static final String ASSIGNMENTS =
+			"SELECT a.assignment_id, a.points_possible, coalesce(a.type_id, 0) AS type_id, coalesce(t.weight, 1) AS weight "
+			+ "FROM assignments a LEFT JOIN type t ON t.type_id = a.type_id WHERE a.class_id = ?";
+
+	private static final String GRADES =
+			"SELECT l.assignment_id, l.student_id, l.points FROM assignments a "
+			+ "JOIN assignment_link l ON l.assignment_id = a.assignment_id "
+			+ "WHERE a.class_id = ? AND l.points IS NOT NULL";
+
+	private final ConnectionPool pool;
+
+
+	public GradeCalculator(ConnectionPool connectionPool){
+		pool = connectionPool;
+	}
+
+
+	//Compute the report for one section
+	//
+	public SectionReport compute(int classId) throws SQLException{
+		return computeAll(new int[]{classId}).get(0);
+	}
+
+
+	//Compute the reports for many sections (a whole term) on one connection
+	//
+	public List<SectionReport> computeAll(int[] classIds) throws SQLException{
+
+		Connection c = pool.getConnection();
+
+		try{
+			return computeAll(c, classIds);
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+	}
+
+
+	//Same as above on a connection the caller has borrowed, so the
+	//	computation can share the caller's transaction
+	//
+	List<SectionReport> computeAll(Connection c, int[] classIds) throws SQLException{
+
+		List<SectionReport> reports = new ArrayList<SectionReport>(classIds.length);
+		LetterScale scale = LetterScale.load(pool, c);
+
+		for(int classId : classIds){
+			reports.add(compute(c, classId, scale));
+		}
+
+		return reports;
+	}
+
+
+	private SectionReport compute(Connection c, int classId, LetterScale scale) throws SQLException{
+
+		//Roster, in the order the report lists it
+		//
+		List<Integer> ids = new ArrayList<Integer>();
+		List<String> names = new ArrayList<String>();
+
+		PreparedStatement ps = pool.prepare(c, ROSTER);
+		ps.setInt(1, classId);
+		ResultSet rs = ps.executeQuery();
+
+		try{
+			while(rs.next()){
+				ids.add(rs.getInt("id_num"));
+				names.add(rs.getString("last_name") + ", " + rs.getString("first_name"));
+			}
+		}
+
+		finally{
+			rs.close();
+		}
+
+		int students = ids.size();
+		int[] studentIds = new int[students];
+		Map<Integer, Integer> rowOf = new HashMap<Integer, Integer>();
+
+		for(int r = 0; r < students; r++){
+			studentIds[r] = ids.get(r);
+			rowOf.put(studentIds[r], r);
+		}
+
+		//Assignments, with each type numbered 0..types-1 for array indexing
+		//
+		Map<Integer, Integer> assignmentIndex = new HashMap<Integer, Integer>();
+		Map<Integer, Integer> typeIndex = new HashMap<Integer, Integer>();
+		List<Float> possibleList = new ArrayList<Float>();
+		List<Integer> typeOfList = new ArrayList<Integer>();
+		List<Float> weightList = new ArrayList<Float>();
+
+		ps = pool.prepare(c, ASSIGNMENTS);
+		ps.setInt(1, classId);
+		rs = ps.executeQuery();
+
+		try{
+			while(rs.next()){
+				Integer type = typeIndex.get(rs.getInt("type_id"));
+
+				if(type == null){
+					type = typeIndex.size();
+					typeIndex.put(rs.getInt("type_id"), type);
+					weightList.add(rs.getFloat("weight"));
+				}
+
+				assignmentIndex.put(rs.getInt("assignment_id"), possibleList.size());
+				possibleList.add(rs.getFloat("points_possible"));
+				typeOfList.add(type);
+			}
+		}
+
+		finally{
+			rs.close();
+		}
+
+		int types = weightList.size();
+		float[] assignmentPossible = new float[possibleList.size()];
+		int[] assignmentType = new int[possibleList.size()];
+		float[] weights = new float[types];
+
+		for(int a = 0; a < assignmentPossible.length; a++){
+			assignmentPossible[a] = possibleList.get(a);
+			assignmentType[a] = typeOfList.get(a);
+		}
+
+		for(int t = 0; t < types; t++){
+			weights[t] = weightList.get(t);
+		}
+
+		//Add every grade into its student's per type totals.  The sums are
+		//	doubles so a long row of fractional grades adds up exactly enough
+		//	to land on the right side of a letter cutoff
+		//
+		double[] typeEarned = new double[students * types];
+		double[] typePossible = new double[students * types];
+
+		ps = pool.prepare(c, GRADES);
+		ps.setInt(1, classId);
+		rs = ps.executeQuery();
+
+		try{
+			while(rs.next()){
+				Integer row = rowOf.get(rs.getInt("student_id"));
+				Integer a = assignmentIndex.get(rs.getInt("assignment_id"));
+
+				if(row != null && a != null){
+					int cell = row * types + assignmentType[a];
+					typeEarned[cell] += rs.getFloat("points");
+					typePossible[cell] += assignmentPossible[a];
+				}
+			}
+		}
+
+		finally{
+			rs.close();
+		}
+
+		float[] earned = new float[students];
+		float[] possible = new float[students];
+		float[] percentage = new float[students];
+		String[] letters = new String[students];
+
+		for(int r = 0; r < students; r++){
+			percentage[r] = weightedPercentage(typeEarned, typePossible, weights, r * types);
+
+			double earnedSum = 0, possibleSum = 0;
+
+			for(int t = 0; t < types; t++){
+				earnedSum += typeEarned[r * types + t];
+				possibleSum += typePossible[r * types + t];
+			}
+
+			earned[r] = (float)earnedSum;
+			possible[r] = (float)possibleSum;
+
+			letters[r] = Float.isNaN(percentage[r]) ? "" : scale.letterFor(percentage[r]);
+		}
+
+		return new SectionReport(classId, studentIds, names.toArray(new String[students]),
+				earned, possible, percentage, letters, denseRanks(percentage));
+	}
+
+
+	//Weighted average of one student's per type percentages.  The student's
+	//	types start at offset in the earned/possible arrays.  Types with
+	//	nothing graded do not count, NaN if nothing is graded at all.
+	//
+	//	The result is rounded to the tenth of a percent that is shown, so the
+	//	letter is always the one the shown percentage earns: 89.96 shows as
+	//	90.0% and gets the 90% letter, not the one below it
+	//
+	static float weightedPercentage(double[] earned, double[] possible, float[] weights, int offset){
+
+		double total = 0, totalWeight = 0;
+
+		for(int t = 0; t < weights.length; t++){
+			if(possible[offset + t] > 0){
+				total += weights[t] * earned[offset + t] / possible[offset + t];
+				totalWeight += weights[t];
+			}
+		}
+
+		return totalWeight > 0 ? (float)(Math.round(1000 * total / totalWeight) / 10.0) : Float.NaN;
+	}
+
+
+	//Dense ranks for the scores, highest score is rank 1 and ties share a
+	//	rank.  The scores are copied and sorted once, a single pass over the
+	//	sorted copy numbers each distinct score, and every student's rank is a
+	//	binary search into it.  NaN scores (nothing graded) get rank 0
+	//
+	static int[] denseRanks(float[] scores){
+
+		int n = scores.length;
+		float[] sorted = new float[n];
+		int graded = 0;
+
+		for(int i = 0; i < n; i++){
+			if(!Float.isNaN(scores[i])){
+				sorted[graded++] = scores[i];
+			}
+		}
+
+		sorted = Arrays.copyOf(sorted, graded);
+		Arrays.sort(sorted);
+
+		//Walk down from the highest score, numbering each distinct value
+		//
+		int[] rankOfSorted = new int[graded];
+		int rank = 0;
+
+		for(int i = graded - 1; i >= 0; i--){
+			if(i == graded - 1 || sorted[i] != sorted[i + 1]){
+				rank++;
+			}
+
+			rankOfSorted[i] = rank;
+		}
+
+		int[] ranks = new int[n];
+
+		for(int i = 0; i < n; i++){
+			if(!Float.isNaN(scores[i])){
+				ranks[i] = rankOfSorted[Arrays.binarySearch(sorted, scores[i])];
+			}
+		}
+
+		return ranks;
+	}
+}
@@ -0,0 +1,33 @@
+
+//One edited cell of a grade grid: the points a student now has on an
+//	assignment.  A null points value means the grade was cleared
+//
+public class GradeChange {
+
+	private int assignmentId, studentId;
+	private Float points;
+
+
+	public GradeChange(int assignment, int student, Float newPoints){
+		assignmentId = assignment;
+		studentId = student;
+		points = newPoints;
+	}
+
+
+	public int getAssignmentID(){
+		return assignmentId;
+	}
+
+	public int getStudentID(){
+		return studentId;
+	}
+
+	public Float getPoints(){
+		return points;
+	}
+
+	public boolean isCleared(){
+		return points == null;
+	}
+}
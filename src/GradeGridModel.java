@@ -0,0 +1,276 @@
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.table.AbstractTableModel;
+
+
+//Table model for entering grades for a whole class section: one row per
+//	student, one column per assignment, then the student's Percentage and
+//	Letter Grade.  The grades live in a GradeMatrix and cells are only
+//	turned into text when the table asks for them.  The points as they were
+//	loaded are kept in a second matrix, so saving only has to send the
+//	cells that actually changed.
+//
+//	Editing a cell updates the student's per type totals in the matrix, so
+//	only that student's Percentage and Letter Grade are recomputed and
+//	repainted, not the rest of the grid.
+//
+public class GradeGridModel extends AbstractTableModel {
+
+	private static final long serialVersionUID = 1L;
+
+	private int classId;
+
+	private Student[] students;
+	private int[] assignmentIds;
+	private String[] assignmentNames;
+	private float[] pointsPossible;
+	private LetterScale scale;
+
+	private GradeMatrix loaded;
+	private GradeMatrix current;
+
+
+	//types gives each assignment's index into weights
+	//
+	public GradeGridModel(int sectionId, List<Student> roster, int[] assignments, String[] names, float[] possible,
+							short[] types, float[] weights, LetterScale letterScale){
+
+		classId = sectionId;
+		students = roster.toArray(new Student[roster.size()]);
+		assignmentIds = assignments;
+		assignmentNames = names;
+		pointsPossible = possible;
+		scale = letterScale;
+
+		loaded = new GradeMatrix(students.length, possible, types, weights);
+		current = new GradeMatrix(students.length, possible, types, weights);
+	}
+
+
+	//Set a grade as it was loaded from the database
+	//
+	public void setLoadedPoints(int row, int assignment, float points){
+		loaded.set(row, assignment, points);
+		current.set(row, assignment, points);
+	}
+
+
+	public int getClassID(){
+		return classId;
+	}
+
+	public Student getStudent(int row){
+		return students[row];
+	}
+
+	public int getAssignmentCount(){
+		return assignmentIds.length;
+	}
+
+	public int getAssignmentID(int assignment){
+		return assignmentIds[assignment];
+	}
+
+	public String getAssignmentName(int assignment){
+		return assignmentNames[assignment];
+	}
+
+	public float getPointsPossible(int assignment){
+		return pointsPossible[assignment];
+	}
+
+	//The student's points on the assignment, NaN if there is no grade
+	//
+	public float getPoints(int row, int assignment){
+		return current.get(row, assignment);
+	}
+
+	//The student's weighted percentage, NaN if nothing is graded
+	//
+	public float getPercentage(int row){
+		return current.getPercentage(row);
+	}
+
+	//The letter for the student's percentage, empty if nothing is graded
+	//
+	public String getLetter(int row){
+
+		float percentage = current.getPercentage(row);
+
+		return Float.isNaN(percentage) ? "" : scale.letterFor(percentage);
+	}
+
+	public int getRowCount(){
+		return students.length;
+	}
+
+	public int getColumnCount(){
+		return assignmentIds.length + 3;
+	}
+
+	public String getColumnName(int column){
+
+		if(column == 0){
+			return "Student Name";
+		}
+
+		if(column == percentageColumn()){
+			return "Percentage";
+		}
+
+		if(column == letterColumn()){
+			return "Letter Grade";
+		}
+
+		return assignmentNames[column - 1] + " (" + format(pointsPossible[column - 1]) + ")";
+	}
+
+	public boolean isCellEditable(int row, int column){
+		return column > 0 && column < percentageColumn();
+	}
+
+
+	public Object getValueAt(int row, int column){
+
+		if(column == 0){
+			return students[row].toString();
+		}
+
+		if(column >= percentageColumn()){
+			float percentage = current.getPercentage(row);
+
+			if(Float.isNaN(percentage)){
+				return "";
+			}
+
+			return column == percentageColumn() ? String.format("%.1f%%", percentage) : getLetter(row);
+		}
+
+		float points = current.get(row, column - 1);
+
+		return Float.isNaN(points) ? "" : format(points);
+	}
+
+
+	//Typed grades are parsed once here.  Anything that is not a number
+	//	from 0 to the assignment's points possible is ignored and the cell
+	//	keeps its old value
+	//
+	public void setValueAt(Object value, int row, int column){
+
+		String text = value == null ? "" : value.toString().trim();
+		float points;
+
+		if(text.isEmpty()){
+			points = Float.NaN;
+		}
+
+		else{
+			try{
+				points = Float.parseFloat(text);
+			}
+
+			catch(NumberFormatException e){
+				return;
+			}
+
+			if(!isValidPoints(points, pointsPossible[column - 1])){
+				return;
+			}
+		}
+
+		current.set(row, column - 1, points);
+
+		//Only this student's totals changed
+		//
+		fireTableCellUpdated(row, column);
+		fireTableCellUpdated(row, percentageColumn());
+		fireTableCellUpdated(row, letterColumn());
+	}
+
+
+	//Can a grade of points be given on an assignment worth possible points.
+	//	parseFloat also takes "NaN" and "Infinity", which this rejects
+	//
+	public static boolean isValidPoints(float points, float possible){
+		return !Float.isNaN(points) && points >= 0 && points <= possible;
+	}
+
+
+	//Every cell whose value differs from what was loaded or last saved
+	//
+	public List<GradeChange> changedCells(){
+
+		List<GradeChange> changes = new ArrayList<GradeChange>();
+
+		for(int r = 0; r < students.length; r++){
+			for(int a = 0; a < assignmentIds.length; a++){
+				if(current.differs(loaded, r, a)){
+					Float points = current.isMissing(r, a) ? null : current.get(r, a);
+					changes.add(new GradeChange(assignmentIds[a], students[r].getID(), points));
+				}
+			}
+		}
+
+		return changes;
+	}
+
+
+	//Record that the given changes are now in the database.  Cells edited
+	//	again while the save was running still count as changed
+	//
+	public void markSaved(List<GradeChange> saved){
+
+		for(GradeChange change : saved){
+			int row = rowOf(change.getStudentID());
+			int assignment = columnOf(change.getAssignmentID());
+
+			if(row >= 0 && assignment >= 0){
+				loaded.set(row, assignment, change.isCleared() ? Float.NaN : change.getPoints());
+			}
+		}
+	}
+
+
+	private int percentageColumn(){
+		return assignmentIds.length + 1;
+	}
+
+	private int letterColumn(){
+		return assignmentIds.length + 2;
+	}
+
+
+	private int rowOf(int studentId){
+
+		for(int r = 0; r < students.length; r++){
+			if(students[r].getID() == studentId){
+				return r;
+			}
+		}
+
+		return -1;
+	}
+
+
+	private int columnOf(int assignmentId){
+
+		for(int a = 0; a < assignmentIds.length; a++){
+			if(assignmentIds[a] == assignmentId){
+				return a;
+			}
+		}
+
+		return -1;
+	}
+
+
+	private static String format(float points){
+
+		if(points == (int)points){
+			return Integer.toString((int)points);
+		}
+
+		return Float.toString(points);
+	}
+}
@@ -0,0 +1,163 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+
+//Grades of a class section as a students x assignments matrix of
+//	primitives.  Each assignment is a float[] column indexed by student, a
+//	BitSet marks the cells with no grade, and each assignment's type is a
+//	short index into the section's type weights.
+//
+//	Every student's earned and possible points are also kept per type.
+//	set() adds up the edited assignment's type again from its cells, so
+//	after an edit the student's percentage is recomputed from a handful of
+//	per-type sums instead of the whole row, and the sums never drift from
+//	the cells the way adding and subtracting each change would.
+//
+public class GradeMatrix {
+
+	private final int students, assignments, types;
+
+	private final float[][] points;
+	private final BitSet missing;
+
+	private final float[] possible;
+	private final short[] typeOf;
+	private final float[] weights;
+
+	//Earned and possible points of student s in type t at [s * types + t]
+	//
+	private final double[] typeEarned;
+	private final double[] typePossible;
+
+
+	//Every cell starts out missing.  typeOf gives each assignment's index
+	//	into weights
+	//
+	public GradeMatrix(int studentCount, float[] pointsPossible, short[] assignmentTypes, float[] typeWeights){
+
+		students = studentCount;
+		assignments = pointsPossible.length;
+		types = typeWeights.length;
+
+		possible = pointsPossible;
+		typeOf = assignmentTypes;
+		weights = typeWeights;
+
+		points = new float[assignments][students];
+		missing = new BitSet(students * assignments);
+		missing.set(0, students * assignments);
+
+		typeEarned = new double[students * types];
+		typePossible = new double[students * types];
+	}
+
+
+	public int getStudentCount(){
+		return students;
+	}
+
+	public int getAssignmentCount(){
+		return assignments;
+	}
+
+	public float getPossible(int assignment){
+		return possible[assignment];
+	}
+
+
+	public boolean isMissing(int student, int assignment){
+		return missing.get(assignment * students + student);
+	}
+
+
+	//The student's points on the assignment, NaN if there is no grade
+	//
+	public float get(int student, int assignment){
+		return isMissing(student, assignment) ? Float.NaN : points[assignment][student];
+	}
+
+
+	//Set a grade, NaN clears it.  The student's totals for the assignment's
+	//	type are added up again
+	//
+	public void set(int student, int assignment, float value){
+
+		int cell = assignment * students + student;
+
+		if(Float.isNaN(value)){
+			missing.set(cell);
+			points[assignment][student] = 0;
+		}
+
+		else{
+			missing.clear(cell);
+			points[assignment][student] = value;
+		}
+
+		short type = typeOf[assignment];
+		double earned = 0, graded = 0;
+
+		for(int a = 0; a < assignments; a++){
+			if(typeOf[a] == type && !missing.get(a * students + student)){
+				earned += points[a][student];
+				graded += possible[a];
+			}
+		}
+
+		typeEarned[student * types + type] = earned;
+		typePossible[student * types + type] = graded;
+	}
+
+
+	//Is the cell different here than in other, which must have the same shape
+	//
+	public boolean differs(GradeMatrix other, int student, int assignment){
+
+		boolean gone = isMissing(student, assignment);
+
+		if(gone != other.isMissing(student, assignment)){
+			return true;
+		}
+
+		return !gone && Float.compare(points[assignment][student], other.points[assignment][student]) != 0;
+	}
+
+
+	//Points earned and possible over the student's graded assignments
+	//
+	public float getEarned(int student){
+
+		double sum = 0;
+
+		for(int t = 0; t < types; t++){
+			sum += typeEarned[student * types + t];
+		}
+
+		return (float)sum;
+	}
+
+	public float getGradedPossible(int student){
+
+		double sum = 0;
+
+		for(int t = 0; t < types; t++){
+			sum += typePossible[student * types + t];
+		}
+
+		return (float)sum;
+	}
+
+
+	//Weighted percentage over the types the student has grades in, NaN if
+	//	nothing is graded yet
+	//
+	public float getPercentage(int student){
+		return GradeCalculator.weightedPercentage(typeEarned, typePossible, weights, student * types);
+	}
+
+
+	public String toString(){
+		return "GradeMatrix[" + students + " x " + assignments + ", " + types + " types, "
+				+ (students * assignments - missing.cardinality()) + " graded, weights=" + Arrays.toString(weights) + "]";
+	}
+}
@@ -0,0 +1,282 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+//Data access for assignments and grades.  Loads the grade grid for a class
+//	section and saves edited grades as one batched transaction.
+//
+public class GradeRepository {
+
+	private static final String ROSTER =
+			"SELECT s.id_num, s.first_name, s.last_name FROM course_roster r "
+			+ "JOIN student s ON s.id_num = r.student_id WHERE r.class_id = ? "
+			+ "ORDER BY s.last_name, s.first_name, s.id_num";
+
+	private static final String ASSIGNMENTS =
+			"SELECT a.assignment_id, a.name, a.points_possible, coalesce(a.type_id, 0) AS type_id, coalesce(t.weight, 1) AS weight "
+			+ "FROM assignments a LEFT JOIN type t ON t.type_id = a.type_id WHERE a.class_id = ? ORDER BY a.assignment_id";
+
+	private static final String POINTS_POSSIBLE =
+			"SELECT assignment_id, points_possible FROM assignments WHERE class_id = ?";
+
+	private static final String GRADES =
+			"SELECT l.assignment_id, l.student_id, l.points FROM assignments a "
+			+ "JOIN assignment_link l ON l.assignment_id = a.assignment_id "
+			+ "WHERE a.class_id = ? AND l.points IS NOT NULL";
+
+	//Insert the grade, or overwrite the grade the student already has
+	//
+	private static final String UPSERT_GRADE =
+			"INSERT INTO assignment_link (assignment_id, student_id, points) VALUES (?, ?, ?) "
+			+ "ON CONFLICT (assignment_id, student_id) DO UPDATE SET points = excluded.points";
+
+	private static final String DELETE_GRADE =
+			"DELETE FROM assignment_link WHERE assignment_id = ? AND student_id = ?";
+
+	private final ConnectionPool pool;
+
+
+	public GradeRepository(ConnectionPool connectionPool){
+		pool = connectionPool;
+	}
+
+
+	//Load every student on the section's roster, every assignment of the
+	//	section with its type weight, the grades they have so far, and the
+	//	letter scale the grid's Letter Grade column uses
+	//
+	public GradeGridModel loadClassGrid(int classId) throws SQLException{
+
+		Connection c = pool.getConnection();
+
+		try{
+			List<Student> roster = new ArrayList<Student>();
+			Map<Integer, Integer> rowOf = new HashMap<Integer, Integer>();
+
+			PreparedStatement ps = pool.prepare(c, ROSTER);
+			ps.setInt(1, classId);
+			ResultSet rs = ps.executeQuery();
+
+			try{
+				while(rs.next()){
+					rowOf.put(rs.getInt("id_num"), roster.size());
+					roster.add(new Student(rs.getInt("id_num"), rs.getString("first_name"), rs.getString("last_name")));
+				}
+			}
+
+			finally{
+				rs.close();
+			}
+
+			List<Integer> ids = new ArrayList<Integer>();
+			List<String> names = new ArrayList<String>();
+			List<Float> possible = new ArrayList<Float>();
+			List<Short> typeOf = new ArrayList<Short>();
+			List<Float> weights = new ArrayList<Float>();
+			Map<Integer, Short> typeIndex = new HashMap<Integer, Short>();
+
+			ps = pool.prepare(c, ASSIGNMENTS);
+			ps.setInt(1, classId);
+			rs = ps.executeQuery();
+
+			try{
+				while(rs.next()){
+					Short type = typeIndex.get(rs.getInt("type_id"));
+
+					//Each type is numbered 0..types-1 for the matrix's totals
+					//
+					if(type == null){
+						type = (short)typeIndex.size();
+						typeIndex.put(rs.getInt("type_id"), type);
+						weights.add(rs.getFloat("weight"));
+					}
+
+					ids.add(rs.getInt("assignment_id"));
+					names.add(rs.getString("name"));
+					possible.add(rs.getFloat("points_possible"));
+					typeOf.add(type);
+				}
+			}
+
+			finally{
+				rs.close();
+			}
+
+			int[] assignmentIds = new int[ids.size()];
+			float[] pointsPossible = new float[ids.size()];
+			short[] assignmentTypes = new short[ids.size()];
+			float[] typeWeights = new float[weights.size()];
+			Map<Integer, Integer> columnOf = new HashMap<Integer, Integer>();
+
+			for(int a = 0; a < assignmentIds.length; a++){
+				assignmentIds[a] = ids.get(a);
+				pointsPossible[a] = possible.get(a);
+				assignmentTypes[a] = typeOf.get(a);
+				columnOf.put(assignmentIds[a], a);
+			}
+
+			for(int t = 0; t < typeWeights.length; t++){
+				typeWeights[t] = weights.get(t);
+			}
+
+			GradeGridModel grid = new GradeGridModel(classId, roster, assignmentIds,
+					names.toArray(new String[names.size()]), pointsPossible, assignmentTypes, typeWeights,
+					LetterScale.load(pool, c));
+
+			ps = pool.prepare(c, GRADES);
+			ps.setInt(1, classId);
+			rs = ps.executeQuery();
+
+			try{
+				while(rs.next()){
+					Integer row = rowOf.get(rs.getInt("student_id"));
+					Integer column = columnOf.get(rs.getInt("assignment_id"));
+
+					//Grades of students who have since left the section are not shown
+					//
+					if(row != null && column != null){
+						grid.setLoadedPoints(row, column, rs.getFloat("points"));
+					}
+				}
+			}
+
+			finally{
+				rs.close();
+			}
+
+			return grid;
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+	}
+
+
+	//Points possible of each of the section's assignments, by assignment_id
+	//
+	public Map<Integer, Float> loadPointsPossible(int classId) throws SQLException{
+
+		Map<Integer, Float> possible = new HashMap<Integer, Float>();
+		Connection c = pool.getConnection();
+
+		try{
+			PreparedStatement ps = pool.prepare(c, POINTS_POSSIBLE);
+			ps.setInt(1, classId);
+			ResultSet rs = ps.executeQuery();
+
+			try{
+				while(rs.next()){
+					possible.put(rs.getInt(1), rs.getFloat(2));
+				}
+			}
+
+			finally{
+				rs.close();
+			}
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+
+		return possible;
+	}
+
+
+	//Write every changed grade in one transaction.  Changed grades go out as
+	//	a single batch of upserts and cleared grades as a batch of deletes, so
+	//	a save of hundreds of cells costs one commit instead of one per cell
+	//
+	public SaveResult saveGrades(List<GradeChange> changes) throws SQLException{
+
+		long start = System.nanoTime();
+		Connection c = pool.getConnection();
+
+		try{
+			c.setAutoCommit(false);
+
+			PreparedStatement upsert = pool.prepare(c, UPSERT_GRADE);
+			PreparedStatement delete = pool.prepare(c, DELETE_GRADE);
+			int upserts = 0, deletes = 0;
+
+			for(GradeChange change : changes){
+				if(change.isCleared()){
+					delete.setInt(1, change.getAssignmentID());
+					delete.setInt(2, change.getStudentID());
+					delete.addBatch();
+					deletes++;
+				}
+
+				else{
+					upsert.setInt(1, change.getAssignmentID());
+					upsert.setInt(2, change.getStudentID());
+					upsert.setFloat(3, change.getPoints());
+					upsert.addBatch();
+					upserts++;
+				}
+			}
+
+			if(upserts > 0){
+				upsert.executeBatch();
+			}
+
+			if(deletes > 0){
+				delete.executeBatch();
+			}
+
+			long commitStart = System.nanoTime();
+			c.commit();
+			long committed = System.nanoTime();
+
+			c.setAutoCommit(true);
+
+			return new SaveResult(changes.size(), committed - start, committed - commitStart);
+		}
+
+		finally{
+			//Rolls back if the commit was not reached
+			//
+			pool.releaseConnection(c);
+		}
+	}
+
+
+	//How many grades a save wrote, how long the whole save took and how
+	//	much of that was the commit
+	//
+	public static class SaveResult{
+
+		private final int cellsChanged;
+		private final long nanos, commitNanos;
+
+		SaveResult(int changed, long elapsedNanos, long commitElapsedNanos){
+			cellsChanged = changed;
+			nanos = elapsedNanos;
+			commitNanos = commitElapsedNanos;
+		}
+
+		public int getCellsChanged(){
+			return cellsChanged;
+		}
+
+		public double getMillis(){
+			return nanos / 1000000.0;
+		}
+
+		public double getCommitMillis(){
+			return commitNanos / 1000000.0;
+		}
+
+		public String toString(){
+			return String.format("Saved %d changed grade%s in %.1f ms (commit %.1f ms)", cellsChanged, cellsChanged == 1 ? "" : "s",
+					getMillis(), getCommitMillis());
+		}
+	}
+}
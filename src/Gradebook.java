@@ -2,11 +2,18 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.BorderLayout;
 import java.awt.CardLayout;
+import java.awt.Graphics;
+import java.awt.print.PrinterJob;
+import javax.print.attribute.HashPrintRequestAttributeSet;
+import javax.print.attribute.PrintRequestAttributeSet;
 import javax.swing.*;
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.ResultSet;
-import java.sql.Statement;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 
 public class Gradebook extends JFrame{
@@ -24,11 +31,20 @@ public class Gradebook extends JFrame{
 	private GenerateReportFrame reportPanel;
 	private NewStudentPopup newStudentPanel;
 	private EditStudentPopup editStudentPopup;
+	private DiagnosticsPanel diagnostics;
 	
 	
-	//Create the main application panel
+	//Create the main application panel, with the cards built so far
 	//
 	private JPanel applicationPanel;
+	private Set<String> builtCards = new HashSet<String>();
+	
+	
+	//The cards' panels, loaded during the warm-up (see startWarmUp()) so
+	//	the first visit to a card does not wait on the class loader
+	//
+	private static final String[] LAZY_CARD_CLASSES = {"ManageStudentsFrame", "ManageClassesFrame", "ManageCourseList",
+			"EnterGrades", "GenerateReportFrame", "DiagnosticsPanel", "NewStudentPopup", "EditStudentPopup"};
 		
 	
 	//Create the list models that will be used on each panel
@@ -36,9 +52,61 @@ public class Gradebook extends JFrame{
 	//	courseList is used for a listing of courses
 	//	classList is used for a listing of classes
 	//
-	private DefaultListModel<Student> studentList;
+	private StudentListModel studentList;
+	
+	
+	//Paged model used instead of studentList when the roster is larger
+	//	than PAGED_ROSTER_SIZE, null otherwise
+	//
+	private PagedStudentListModel pagedStudents;
+	static final int PAGED_ROSTER_SIZE = 5000;
+	
+	
+	//How long the search box waits after the last keystroke, and the
+	//	most matches it lists
+	//
+	private static final int SEARCH_DELAY_MS = 150;
+	private static final int SEARCH_LIMIT = 200;
+	
+	
+	//Where and how often the metrics are written out, see startMetricsDump()
+	//
+	private static final String DEFAULT_METRICS_FILE = "gradebook-metrics.log";
+	private static final long DEFAULT_METRICS_INTERVAL = 60;
+	
+	
+	//Stalls of the event dispatch thread longer than the threshold are
+	//	sampled and reported, see startEdtWatchdog()
+	//
+	private static final String DEFAULT_EDT_REPORT = "gradebook-edt-stalls.log";
+	private static final long DEFAULT_EDT_THRESHOLD_MS = 500;
+	private static final long DEFAULT_EDT_SAMPLE_MS = 100;
+	
+	
 	private DefaultListModel<Course> courseList;
 	private DefaultListModel<CourseSection> classList;
+	private DefaultListModel<Student> classRoster;
+	
+	
+	//Every student, course, enrollment and grade operation.  The window
+	//	is just one client of it, the HTTP API in headless mode is another
+	//
+	private GradebookService service;
+	
+	
+	//Runs database work off the event dispatch thread and shows
+	//	its progress in the status bar
+	//
+	private TaskRunner tasks;
+	
+	
+	//Timings of every action, task and query, shown on the diagnostics
+	//	card, which refreshes itself once a second while it is showing
+	//
+	private MetricsRegistry metrics;
+	private javax.swing.Timer diagnosticsRefresh;
+	private EdtWatchdog watchdog;
+	private static final int DIAGNOSTICS_REFRESH_MS = 1000;
 	
 	
 	//Create a student variable used for misc actions
@@ -52,6 +120,18 @@ public class Gradebook extends JFrame{
 	private CardLayout mainCL;
 	
 	
+	//The card showing now, recorded with each action in a Flight Recording
+	//
+	private String currentCard = WELCOME;
+	
+	
+	//When the JVM was launched and main() was reached, in epoch
+	//	milliseconds, and whether the window has been painted yet
+	//
+	private static long launchMillis, mainMillis;
+	private boolean painted = false;
+	
+	
 	//String constants used for the card layout
 	//
 	private static String 	WELCOME = "welcome", 
@@ -59,13 +139,104 @@ public class Gradebook extends JFrame{
 							MANAGECLASSES = "manage classes", 
 							MANAGECOURSES = "manage courses",
 							ENTERGRADES = "enter grades",
-							REPORTS = "generate reports";
+							REPORTS = "generate reports",
+							DIAGNOSTICS = "diagnostics";
 	
 	
 	//main method called at program start
 	//
 	public static void main(String args[]){
 		
+		noteLaunch();
+		
+		
+		//--record [file] runs the rest of the command line under the Flight
+		//	Recorder, writing the recording to file when the program exits
+		//
+		if(args.length > 0 && args[0].equals("--record")){
+			boolean named = args.length > 1 && !args[1].startsWith("--");
+			
+			startRecording(named ? new java.io.File(args[1]) : FlightRecording.defaultFile());
+			args = Arrays.copyOfRange(args, named ? 2 : 1, args.length);
+		}
+		
+		
+		//Bring the database schema up to date before any command reads it.
+		//	The window does it in the background instead, see startWarmUp()
+		//
+		if(args.length > 0 && args[0].startsWith("--")){
+			try{
+				new SchemaMigrator(ConnectionPool.getInstance()).migrate();
+			}
+			
+			catch(Exception e){
+				System.err.println(e);
+			}
+		}
+		
+		
+		//Maintenance commands that run without the window:
+		//	--rebuild-summaries recomputes every section's report grades
+		//	--check-summaries compares them with the raw grades
+		//
+		if(args.length > 0 && (args[0].equals("--rebuild-summaries") || args[0].equals("--check-summaries"))){
+			System.exit(maintainSummaries(args[0]));
+		}
+		
+		
+		//--export-term <term|all> <directory> [fetch size] writes the term's
+		//	grade grids for the SIS
+		//
+		if(args.length >= 3 && args[0].equals("--export-term")){
+			System.exit(exportTerm(args));
+		}
+		
+		
+		//--generate-dataset <scale> [seed] fills an empty database with a
+		//	synthetic district of scale times 5000 students, for load testing
+		//
+		if(args.length >= 2 && args[0].equals("--generate-dataset")){
+			System.exit(generateDataset(args));
+		}
+		
+		
+		//--cds-training loads the classes the window loads, without opening
+		//	it, for the build to record a class data sharing archive from
+		//
+		if(args.length > 0 && args[0].equals("--cds-training")){
+			System.exit(cdsTraining());
+		}
+		
+		
+		//Append the metrics to a file every so often:
+		//	-Dgradebook.metrics.file sets the file,
+		//	-Dgradebook.metrics.interval the seconds between dumps, 0 for never
+		//
+		startMetricsDump();
+		
+		
+		//--headless [port] serves the HTTP/JSON API instead of opening the
+		//	window, until the process is stopped.  It listens on 127.0.0.1
+		//	unless -Dgradebook.http.host says otherwise
+		//
+		if(args.length > 0 && args[0].equals("--headless")){
+			int port = args.length > 1 ? Integer.parseInt(args[1]) : GradebookHttpServer.DEFAULT_PORT;
+			
+			if(!serveHeadless(port)){
+				System.exit(2);
+			}
+			
+			return;
+		}
+		
+		
+		//Report every time the window freezes for longer than
+		//	-Dgradebook.edt.threshold milliseconds, 0 for never, to
+		//	-Dgradebook.edt.report
+		//
+		startEdtWatchdog();
+		
+		
 		//Run a new gradebook
 		//
 		new Gradebook();
@@ -73,7 +244,203 @@ public class Gradebook extends JFrame{
 	}
 	
 	
-	//New Gradebook constructor
+	//Note when the JVM was launched and when main() was reached, for
+	//	reportStartup()
+	//
+	private static void noteLaunch(){
+		
+		mainMillis = System.currentTimeMillis();
+		launchMillis = mainMillis;
+		
+		java.util.Optional<java.time.Instant> started = ProcessHandle.current().info().startInstant();
+		
+		if(started.isPresent()){
+			launchMillis = Math.min(mainMillis, started.get().toEpochMilli());
+		}
+	}
+	
+	
+	private static int cdsTraining(){
+		
+		try{
+			warmUp();
+			
+			new WelcomeFrame();
+			new ManageStudentsFrame();
+			new ManageClassesFrame();
+			new ManageCourseList();
+			new EnterGrades();
+			new GenerateReportFrame();
+			new DiagnosticsPanel();
+			new TaskRunner();
+			EdtWatchdog.getInstance();
+			
+			return 0;
+		}
+		
+		catch(Exception e){
+			System.err.println(e);
+			return 2;
+		}
+	}
+	
+	
+	private static void startRecording(java.io.File file){
+		
+		try{
+			FlightRecording.start(file);
+			System.out.println("Recording to " + file.getAbsolutePath());
+		}
+		
+		catch(Exception e){
+			System.err.println(e);
+		}
+	}
+	
+	
+	private static void startEdtWatchdog(){
+		
+		long threshold = Long.getLong("gradebook.edt.threshold", DEFAULT_EDT_THRESHOLD_MS);
+		
+		if(threshold > 0){
+			String file = System.getProperty("gradebook.edt.report", DEFAULT_EDT_REPORT);
+			long sample = Long.getLong("gradebook.edt.sample", DEFAULT_EDT_SAMPLE_MS);
+			EdtWatchdog.getInstance().start(new java.io.File(file), threshold, Math.max(1, sample));
+		}
+	}
+	
+	
+	private static void startMetricsDump(){
+		
+		long interval = Long.getLong("gradebook.metrics.interval", DEFAULT_METRICS_INTERVAL);
+		
+		if(interval > 0){
+			String file = System.getProperty("gradebook.metrics.file", DEFAULT_METRICS_FILE);
+			MetricsRegistry.getInstance().startDumping(new java.io.File(file), interval);
+		}
+	}
+	
+	
+	private static int maintainSummaries(String command){
+		
+		GradebookService service = new GradebookService(ConnectionPool.getInstance());
+		
+		try{
+			if(command.equals("--rebuild-summaries")){
+				long start = System.nanoTime();
+				int sections = service.rebuildSummaries();
+				System.out.printf("Rebuilt %d section summaries in %.1f ms%n", sections, (System.nanoTime() - start) / 1000000.0);
+				return 0;
+			}
+			
+			List<String> problems = service.checkSummaries();
+			
+			for(String problem : problems){
+				System.out.println(problem);
+			}
+			
+			System.out.println(problems.isEmpty() ? "Section summaries are consistent" : problems.size() + " inconsistencies found");
+			return problems.isEmpty() ? 0 : 1;
+		}
+		
+		catch(Exception e){
+			System.err.println(e);
+			return 2;
+		}
+		
+		finally{
+			service.shutdown();
+		}
+	}
+	
+	
+	private static int exportTerm(String[] args){
+		
+		GradebookService service = new GradebookService(ConnectionPool.getInstance());
+		int fetchSize = args.length > 3 ? Integer.parseInt(args[3]) : TermExporter.DEFAULT_FETCH_SIZE;
+		
+		try{
+			String term = args[1].equals("all") ? null : args[1];
+			System.out.println(service.exportTerm(term, new java.io.File(args[2]), fetchSize));
+			return 0;
+		}
+		
+		catch(Exception e){
+			System.err.println(e);
+			return 2;
+		}
+		
+		finally{
+			service.shutdown();
+		}
+	}
+	
+	
+	private static int generateDataset(String[] args){
+		
+		ConnectionPool pool = ConnectionPool.getInstance();
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : DatasetGenerator.DEFAULT_SEED;
+		DatasetGenerator generator = DatasetGenerator.forScale(pool, seed, Double.parseDouble(args[1]));
+		
+		try{
+			System.out.println(generator.generate(new DatasetGenerator.Progress(){
+				private long lastReport = System.nanoTime();
+				
+				public void committed(DatasetGenerator.GenerationResult soFar){
+					if(System.nanoTime() - lastReport > 2000000000L){
+						lastReport = System.nanoTime();
+						System.out.println(soFar);
+					}
+				}
+			}));
+			return 0;
+		}
+		
+		catch(Exception e){
+			System.err.println(e);
+			return 2;
+		}
+		
+		finally{
+			pool.shutdown();
+		}
+	}
+	
+	
+	private static boolean serveHeadless(int port){
+		
+		final GradebookService service = new GradebookService(ConnectionPool.getInstance());
+		String host = System.getProperty("gradebook.http.host", "127.0.0.1");
+		
+		try{
+			final GradebookHttpServer server = new GradebookHttpServer(service, new java.net.InetSocketAddress(host, port));
+			
+			Runtime.getRuntime().addShutdownHook(new Thread(new Runnable(){
+				public void run(){
+					server.stop(2);
+					service.shutdown();
+				}
+			}));
+			
+			server.start();
+			System.out.println("Gradebook API listening on http://" + host + ":" + server.getPort() + "/"
+					+ (server.usesVirtualThreads() ? " (virtual threads)" : ""));
+			return true;
+		}
+		
+		catch(Exception e){
+			System.err.println(e);
+			service.shutdown();
+			return false;
+		}
+	}
+	
+	
+	//New Gradebook constructor.  Only the welcome card is built here, so
+	//	the window shows as soon as possible; the other cards are built by
+	//	buildCard() the first time they are shown, and the database is
+	//	brought up to date and the connection pool warmed in the
+	//	background meanwhile
 	//
 	public Gradebook(){
 
@@ -83,101 +450,267 @@ public class Gradebook extends JFrame{
 		this.setBounds(100, 100, 1024, 768);
 		this.setLayout(new BorderLayout());
 		
+		
+		//The service runs on the shared connection pool.  Connections are
+		//	opened lazily and reused for every query after that
+		//
+		service = new GradebookService(ConnectionPool.getInstance());
+		metrics = MetricsRegistry.getInstance();
+		watchdog = EdtWatchdog.getInstance();
+		
+		Runtime.getRuntime().addShutdownHook(new Thread(){
+			public void run(){
+				service.shutdown();
+			}
+		});
+		
+		
+		//Initialize each of the list models.  The class list is shared
+		//	by every page that picks a class
+		//
+		studentList = new StudentListModel();
+		courseList = new DefaultListModel<Course>();
+		classList = new DefaultListModel<CourseSection>();
+		classRoster = new DefaultListModel<Student>();
+		
+		
+		//Create the cardlayout with the welcome card.  The other cards
+		//	are added as they are built
+		//
+		mainCL = new CardLayout();
+		applicationPanel = new JPanel(mainCL);
+		buildCard(WELCOME);
+		
+		diagnosticsRefresh = new javax.swing.Timer(DIAGNOSTICS_REFRESH_MS, new RefreshDiagnostics());
+		
+		
+		//Add the main panel to the center of the screen, the status bar
+		//	along the bottom, and set visible
+		//
+		tasks = new TaskRunner();
+		this.add(applicationPanel, BorderLayout.CENTER);
+		this.add(tasks, BorderLayout.SOUTH);
+		this.setVisible(true);
+		
+		startWarmUp();
+	}
+	
+	
+	//The first paint is when the user sees the window, so that is when
+	//	the startup time is reported
+	//
+	public void paint(Graphics g){
+		
+		super.paint(g);
+		
+		if(!painted){
+			painted = true;
+			reportStartup();
+		}
+	}
+	
+	
+	//Print the time from launch to the first paint, and keep it and the
+	//	JVM's own share of it as gauges for the Diagnostics card
+	//
+	private void reportStartup(){
+		
+		final long firstPaint = System.currentTimeMillis() - launchMillis;
+		final long jvm = mainMillis - launchMillis;
+		
+		metrics.gauge("startup.firstPaintMs", new MetricsRegistry.Gauge(){
+			public double getValue(){
+				return firstPaint;
+			}
+		});
+		
+		metrics.gauge("startup.jvmMs", new MetricsRegistry.Gauge(){
+			public double getValue(){
+				return jvm;
+			}
+		});
+		
+		System.out.printf("Window painted %d ms after launch (%d ms before main)%n", firstPaint, jvm);
+	}
+	
+	
+	//Build card and add it to the card layout, unless it is built already
+	//
+	private void buildCard(String card){
+		
+		if(!builtCards.add(card)){
+			return;
+		}
+		
+		long start = System.nanoTime();
+		JPanel panel;
+		
 		//Create the welcome frame, and add the action listeners
 		//	for each button
 		//
-		welcome = new WelcomeFrame();
-		welcome.manageStudentsActionListener(new ShowStudentCard());
-		welcome.manageClassesActionListener(new ShowClassesCard());
-		welcome.manageCoursesActionListener(new ShowCoursesCard());
-		welcome.enterGradesActionListener(new ShowGradesCard());
-		welcome.generateReportsActionListener(new GenerateReportsCard());
+		if(card.equals(WELCOME)){
+			welcome = new WelcomeFrame();
+			welcome.manageStudentsActionListener(timed(new ShowStudentCard()));
+			welcome.manageClassesActionListener(timed(new ShowClassesCard()));
+			welcome.manageCoursesActionListener(timed(new ShowCoursesCard()));
+			welcome.enterGradesActionListener(timed(new ShowGradesCard()));
+			welcome.generateReportsActionListener(timed(new GenerateReportsCard()));
+			welcome.diagnosticsActionListener(timed(new ShowDiagnosticsCard()));
+			panel = welcome;
+		}
 		
 		
 		//Create the manage students frame and add action listeners
 		//	for each button
 		//
-		manageStudents = new ManageStudentsFrame();
-		manageStudents.loadInfoActionListener(new LoadStudentInfo());
-		manageStudents.submitChangesActionListener(new SubmitStudentChanges());
-		manageStudents.homeButtonActionListener(new ShowWelcomeScreen());
-		manageStudents.newStudentActionListener(new CreateNewStudent());
-		manageStudents.deleteStudentActionListener(new DeleteStudent());
-		manageStudents.inactiveActionListener(new IncludeInactiveStudents());
+		else if(card.equals(MANAGESTUDENTS)){
+			manageStudents = new ManageStudentsFrame();
+			manageStudents.setStudentList(studentList);
+			manageStudents.loadInfoActionListener(timed(new LoadStudentInfo()));
+			manageStudents.submitChangesActionListener(timed(new SubmitStudentChanges()));
+			manageStudents.homeButtonActionListener(timed(new ShowWelcomeScreen()));
+			manageStudents.newStudentActionListener(timed(new CreateNewStudent()));
+			manageStudents.deleteStudentActionListener(timed(new DeleteStudent()));
+			manageStudents.importActionListener(timed(new ImportStudents()));
+			manageStudents.inactiveActionListener(timed(new IncludeInactiveStudents()));
+			manageStudents.searchListener(new SearchStudents());
+			panel = manageStudents;
+		}
 		
 		
 		//Create the manage classes frame and add action listeners
 		//	for each button
 		//
-		manageClasses = new ManageClassesFrame();
-		manageClasses.homeButtonActionListener(new ShowWelcomeScreen());
-		manageClasses.deleteClassActionListener(new DeleteClass());
-		manageClasses.addClassActionListener(new AddClass());
-		manageClasses.deleteStudentActionListener(new RemoveStudentFromClass());
-		manageClasses.addStudentActionListener(new AddStudentToClass());
-		manageClasses.showClassActionListener(new ManageShowClass());
-		manageClasses.submitChangesActionListener(new ManageSubmitChanges());
-
-				
+		else if(card.equals(MANAGECLASSES)){
+			manageClasses = new ManageClassesFrame();
+			manageClasses.setClassList(classList);
+			manageClasses.setRosterList(classRoster);
+			manageClasses.homeButtonActionListener(timed(new ShowWelcomeScreen()));
+			manageClasses.deleteClassActionListener(timed(new DeleteClass()));
+			manageClasses.addClassActionListener(timed(new AddClass()));
+			manageClasses.deleteStudentActionListener(timed(new RemoveStudentFromClass()));
+			manageClasses.addStudentActionListener(timed(new AddStudentToClass()));
+			manageClasses.showClassActionListener(timed(new ManageShowClass()));
+			manageClasses.submitChangesActionListener(timed(new ManageSubmitChanges()));
+			panel = manageClasses;
+		}
+		
+		
 		//Create the manage courses frame and add action listeners
 		//	for each button
 		//
-		manageCourses = new ManageCourseList();
-		manageCourses.homeButtonActionListener(new ShowWelcomeScreen());
-		manageCourses.deleteCourseActionListener(new DeleteCourse());
-		manageCourses.addCourseActionListener(new AddCourse());
-		manageCourses.deleteAssignmentActionListener(new DeleteAssignment());
-		manageCourses.addAssignmentActionListener(new AddAssignment());
-		manageCourses.showClassActionListener(new CoursesShowClass());
-		manageCourses.submitChangesActionListener(new CoursesSubmitChanges());
+		else if(card.equals(MANAGECOURSES)){
+			manageCourses = new ManageCourseList();
+			manageCourses.setCourseList(courseList);
+			manageCourses.homeButtonActionListener(timed(new ShowWelcomeScreen()));
+			manageCourses.deleteCourseActionListener(timed(new DeleteCourse()));
+			manageCourses.addCourseActionListener(timed(new AddCourse()));
+			manageCourses.deleteAssignmentActionListener(timed(new DeleteAssignment()));
+			manageCourses.addAssignmentActionListener(timed(new AddAssignment()));
+			manageCourses.showClassActionListener(timed(new CoursesShowClass()));
+			manageCourses.submitChangesActionListener(timed(new CoursesSubmitChanges()));
+			panel = manageCourses;
+		}
 		
 		
 		//Create the enter grades frame and add action listeners
 		//	for each button
 		//
-		enterGrades = new EnterGrades();
-		enterGrades.homeButtonActionListener(new ShowWelcomeScreen());
-		enterGrades.saveActionListener(new SaveGrades());
-		enterGrades.showClassActionListener(new GradesShowClass());
-		enterGrades.showAssignmentsActionListener(new GradesShowAssignments());
+		else if(card.equals(ENTERGRADES)){
+			enterGrades = new EnterGrades();
+			enterGrades.setClassList(classList);
+			enterGrades.homeButtonActionListener(timed(new ShowWelcomeScreen()));
+			enterGrades.saveActionListener(timed(new SaveGrades()));
+			enterGrades.showClassActionListener(timed(new GradesShowClass()));
+			enterGrades.showAssignmentsActionListener(timed(new GradesShowAssignments()));
+			panel = enterGrades;
+		}
 		
 		
 		//Create the report panel and add action listeners for
 		//	each button
 		//
-		reportPanel = new GenerateReportFrame();
-		reportPanel.homeButtonActionListener(new ShowWelcomeScreen());
-		reportPanel.printActionListener(new PrintReport());
-		reportPanel.showClassActionListener(new ReportsShowClass());
-		reportPanel.generateReportActionListener(new GenerateReport());
+		else if(card.equals(REPORTS)){
+			reportPanel = new GenerateReportFrame();
+			reportPanel.setClassList(classList);
+			reportPanel.homeButtonActionListener(timed(new ShowWelcomeScreen()));
+			reportPanel.printActionListener(timed(new PrintReport()));
+			reportPanel.showClassActionListener(timed(new ReportsShowClass()));
+			reportPanel.generateReportActionListener(timed(new GenerateReport()));
+			reportPanel.exportActionListener(timed(new ExportTerm()));
+			reportPanel.reportCardsActionListener(timed(new SpoolReportCards()));
+			panel = reportPanel;
+		}
 		
 		
-		//Create the cardlayout, and initialize it with
-		//	each of the different panels.  Also set up the
-		//	constants used for flipping panels
+		//Create the diagnostics panel and add action listeners for
+		//	each button
 		//
-		mainCL = new CardLayout();
-		applicationPanel = new JPanel(mainCL);
-		applicationPanel.add(welcome, WELCOME);
-		applicationPanel.add(manageCourses, MANAGECOURSES);
-		applicationPanel.add(manageClasses, MANAGECLASSES);
-		applicationPanel.add(manageStudents, MANAGESTUDENTS);
-		applicationPanel.add(enterGrades, ENTERGRADES);
-		applicationPanel.add(reportPanel, REPORTS);
+		else{
+			diagnostics = new DiagnosticsPanel();
+			diagnostics.homeButtonActionListener(timed(new ShowWelcomeScreen()));
+			diagnostics.resetActionListener(timed(new ResetMetrics()));
+			diagnostics.dumpActionListener(timed(new DumpMetrics()));
+			panel = diagnostics;
+		}
 		
+		applicationPanel.add(panel, card);
+		metrics.timer("card.build." + card).record(System.nanoTime() - start);
+	}
+	
+	
+	//Bring the schema up to date, open the pool's connections and load
+	//	the other cards' classes on a background thread, while the welcome
+	//	card is showing.  The buttons for the cards that read the database
+	//	stay disabled until it is done, so the EDT never waits on it
+	//
+	private void startWarmUp(){
 		
-		//Add the main panel to the center of the screen and set visible
-		this.add(applicationPanel, BorderLayout.CENTER);
-		this.setVisible(true);
+		welcome.setDatabaseButtonsEnabled(false);
 		
+		Thread warmUp = new Thread(new Runnable(){
+			public void run(){
+				
+				long start = System.nanoTime();
+				
+				try{
+					warmUp();
+				}
+				
+				catch(Exception e){
+					System.err.println(e);
+				}
+				
+				finally{
+					metrics.timer("startup.warmUp").record(System.nanoTime() - start);
+					
+					SwingUtilities.invokeLater(new Runnable(){
+						public void run(){
+							welcome.setDatabaseButtonsEnabled(true);
+						}
+					});
+				}
+			}
+		}, "gradebook-warm-up");
 		
-		//Initialize each of the list models
-		//
-		studentList = new DefaultListModel<Student>();
-		courseList = new DefaultListModel<Course>();
-		classList = new DefaultListModel<CourseSection>();
+		warmUp.setDaemon(true);
+		warmUp.start();
+	}
+	
+	
+	//Everything the window needs before the first click that reads the
+	//	database.  Also run by --cds-training, without the window
+	//
+	static void warmUp() throws Exception{
 		
+		ConnectionPool pool = ConnectionPool.getInstance();
 		
+		new SchemaMigrator(pool).migrate();
+		pool.warmUp();
+		
+		for(String name : LAZY_CARD_CLASSES){
+			Class.forName(name);
+		}
 	}
 	
 	
@@ -186,22 +719,13 @@ public class Gradebook extends JFrame{
 	class ShowStudentCard implements ActionListener{
 		public void actionPerformed(ActionEvent e){
 			
-			//Get the cardlayout from the applicationPanel, and 
-			//	show the correct frame
-			//
-			CardLayout cl = (CardLayout)applicationPanel.getLayout();
-			cl.show(applicationPanel, MANAGESTUDENTS);
+			showCard(MANAGESTUDENTS);
 			
-			//Clear the student list
+			//get the list of students (or the students matching the search box)
+			//	in the background and repopulate the studentList when it arrives
 			//
-			studentList.removeAllElements();
-			
-			//get the list of students from the database and repopulate the studentList
-			//
-			loadStudentsFromDB();
-			
-			//Update the student list window
-			manageStudents.setStudentList(studentList);
+			manageStudents.setInactiveCheckbox(false);
+			refreshStudentList();
 			
 		}
 	};
@@ -211,12 +735,8 @@ public class Gradebook extends JFrame{
 	//
 	class ShowClassesCard implements ActionListener{
 		public void actionPerformed(ActionEvent e){
-			
-			//Get the cardlayout from the applicationPanel, and 
-			//	show the correct frame
-			//
-			CardLayout cl = (CardLayout)applicationPanel.getLayout();
-			cl.show(applicationPanel, MANAGECLASSES);
+			showCard(MANAGECLASSES);
+			loadCourses();
 		}
 	};
 	
@@ -225,12 +745,8 @@ public class Gradebook extends JFrame{
 	//
 	class ShowCoursesCard implements ActionListener{
 		public void actionPerformed(ActionEvent e){
-			
-			//Get the cardlayout from the applicationPanel, and 
-			//	show the correct frame
-			//
-			CardLayout cl = (CardLayout)applicationPanel.getLayout();
-			cl.show(applicationPanel, MANAGECOURSES);
+			showCard(MANAGECOURSES);
+			loadCourses();
 		}
 	};
 	
@@ -239,11 +755,8 @@ public class Gradebook extends JFrame{
 	//
 	class ShowGradesCard implements ActionListener{
 		public void actionPerformed(ActionEvent e){
-			//Get the cardlayout from the applicationPanel, and 
-			//	show the correct frame
-			//
-			CardLayout cl = (CardLayout)applicationPanel.getLayout();
-			cl.show(applicationPanel, ENTERGRADES);
+			showCard(ENTERGRADES);
+			loadCourses();
 		}
 	};
 	
@@ -252,11 +765,8 @@ public class Gradebook extends JFrame{
 	//
 	class GenerateReportsCard implements ActionListener{
 		public void actionPerformed(ActionEvent e){
-			//Get the cardlayout from the applicationPanel, and 
-			//	show the correct frame
-			//
-			CardLayout cl = (CardLayout)applicationPanel.getLayout();
-			cl.show(applicationPanel, REPORTS);
+			showCard(REPORTS);
+			loadCourses();
 		}
 	};
 	
@@ -269,52 +779,21 @@ public class Gradebook extends JFrame{
 			
 			//get currently selected member from the manage students panel
 			//
-			int currentSelectedStudent = manageStudents.getSelectedStudentIndex();
-			selectedStudent = studentList.getElementAt(currentSelectedStudent);
-			
-			
-			//Connect to the database to load the rest of the student's info
-			//	into the selectedStudent variable
-			//
-			try{
-				Connection c = null;
-				Statement stmt = null;
-				
-				Class.forName("org.sqlite.JDBC");
-				c = DriverManager.getConnection("jdbc:sqlite:bin/Capstone");
-				
-				
-				stmt = c.createStatement();
-				ResultSet rs = stmt.executeQuery("SELECT * FROM student WHERE "
-											+ "id_num = '" + selectedStudent.getID() + "';");
-			
-				while(rs.next()){
-					selectedStudent = new Student(Integer.parseInt(rs.getString("id_num")), 
-											rs.getString("first_name"), 
-											rs.getString("last_name"),
-											rs.getString("address"),
-											rs.getString("city"),
-											rs.getString("state"),
-											rs.getString("zip"),
-											rs.getString("dob"));
-				
-				}
-				
-				
-				rs.close();
-				stmt.close();
-				c.close();
-				
+			if(!studentSelected()){
+				return;
 			}
 			
-			catch(Exception e1)
-			{
-				System.err.println(e1);
-			}
+			selectedStudent = manageStudents.getSelectedStudent();
+			
 			
-			//Update the detail pane with the currently selected student's information
+			//Load the rest of the student's info into the selectedStudent variable,
+			//	then update the detail pane with it
 			//
-			manageStudents.displayStudentInfo(selectedStudent);
+			tasks.runLoad("student detail", new LoadStudentDetail(selectedStudent){
+				protected void succeeded(Student detail){
+					manageStudents.displayStudentInfo(detail);
+				}
+			});
 			
 		}
 	};
@@ -326,91 +805,76 @@ public class Gradebook extends JFrame{
 	class IncludeInactiveStudents implements ActionListener{
 		public void actionPerformed(ActionEvent e){
 			
-			//Clear the student list
-			//
-			studentList.removeAllElements();
-			
-			//If the checkbox is selected, run the method that loads ALL
-			//  If the checkbox is unchecked, run the method that only loads the 
-			//	students marked as active
+			//Reload the list, including inactive students if the
+			//	checkbox is selected
 			//
-			if(manageStudents.includeInactive()){
-				loadAllStudentsFromDB();
-			}
-			
-			else{
-				loadStudentsFromDB();
-			}
-			
-			//Update the student list window
-			manageStudents.setStudentList(studentList);
+			refreshStudentList();
 			
 		}
 	}
 	
 	
+	//DocumentListener for the search box on the manage students page.
+	//	Each keystroke restarts a short timer, and the search only runs once
+	//	the user pauses typing.  A new search cancels the one in flight
+	//
+	class SearchStudents implements DocumentListener{
+		
+		private Timer debounce;
+		
+		SearchStudents(){
+			debounce = new Timer(SEARCH_DELAY_MS, new ActionListener(){
+				public void actionPerformed(ActionEvent e){
+					refreshStudentList();
+				}
+			});
+			debounce.setRepeats(false);
+		}
+		
+		public void insertUpdate(DocumentEvent e){
+			debounce.restart();
+		}
+		
+		public void removeUpdate(DocumentEvent e){
+			debounce.restart();
+		}
+		
+		public void changedUpdate(DocumentEvent e){
+			debounce.restart();
+		}
+	}
+	
+	
 	//Launch a popup window that contains the currently selected
 	//	student's information for editing
 	//
 	class SubmitStudentChanges implements ActionListener{
 		public void actionPerformed(ActionEvent e){
 			
-			try{
-				Connection c = null;
-				Statement stmt = null;
-				
-				Class.forName("org.sqlite.JDBC");
-				c = DriverManager.getConnection("jdbc:sqlite:bin/Capstone");
-				
-				
-				stmt = c.createStatement();
-				
-				//get currently selected member from the manage students panel
-				//
-				int currentSelectedStudent = manageStudents.getSelectedStudentIndex();
-				selectedStudent = studentList.getElementAt(currentSelectedStudent);
-				
-				ResultSet rs = stmt.executeQuery("SELECT * FROM student WHERE "
-						+ "id_num = '" + selectedStudent.getID() + "';");
-
-				while(rs.next()){
-					selectedStudent = new Student(Integer.parseInt(rs.getString("id_num")), 
-						rs.getString("first_name"), 
-						rs.getString("last_name"),
-						rs.getString("address"),
-						rs.getString("city"),
-						rs.getString("state"),
-						rs.getString("zip"),
-						rs.getString("dob"));
-
-				}
-				
-				rs.close();
-				stmt.close();
-				c.close();
-				
-				
-				//Update the detail page to show the currently selected
-				//	student detail
-				//
-				manageStudents.displayStudentInfo(selectedStudent);
-				
-				
-				//Launch a new popup window that contains the currently
-				//	selected student's information
-				//
-				editStudentPopup = new EditStudentPopup(selectedStudent);
-				editStudentPopup.submitActionListener(new EditSubmitChanges());
-				
-						
+			//get currently selected member from the manage students panel
+			//
+			if(!studentSelected()){
+				return;
 			}
 			
+			selectedStudent = manageStudents.getSelectedStudent();
 			
-			catch(Exception e1)
-			{
-				System.err.println(e1);
-			}
-			
+			tasks.runLoad("student detail", new LoadStudentDetail(selectedStudent){
+				protected void succeeded(Student detail){
+					
+					//Update the detail page to show the currently selected
+					//	student detail
+					//
+					manageStudents.displayStudentInfo(detail);
+					
+					
+					//Launch a new popup window that contains the currently
+					//	selected student's information
+					//
+					editStudentPopup = new EditStudentPopup(detail);
+					editStudentPopup.submitActionListener(timed(new EditSubmitChanges()));
+				}
+			});
 			
 		}
 	};
@@ -425,102 +889,286 @@ public class Gradebook extends JFrame{
 			//
 			if(confirmationDialog("Are you sure you want to modify the student record?\nThis will activate inactive students")){
 				
+				//Create a new (temporary) student with the information from
+				//	the edit window
+				//
+				saveStudentEdit(editStudentPopup.newStudent());
+			}
+		}
+	}
+	
+	
+	//Update the student in the database with all of the new information.
+	//	The id_num is used for matching the student being edited with the
+	//	student in the db, and the save only applies if nobody else saved the
+	//	student since the edit started.  Only that student's entry in the list
+	//	is updated once it is saved.  If someone else got there first, the
+	//	edit popup offers to merge the two and the merge is saved the same way
+	//
+	private void saveStudentEdit(final Student modifyStudent){
+		
+		final EditStudentPopup popup = editStudentPopup;
+		
+		tasks.runUpdate(new BackgroundTask<Boolean>("Saving student"){
+			protected Boolean doInBackground() throws Exception{
+				return service.updateStudent(modifyStudent);
+			}
+			
+			protected void succeeded(Boolean updated){
+				if(updated){
+					placeStudent(modifyStudent);
+				}
 				
-				try{
-					Connection c = null;
-					Statement stmt = null;
-						
-					Class.forName("org.sqlite.JDBC");
-					c = DriverManager.getConnection("jdbc:sqlite:bin/Capstone");
-							
-					stmt = c.createStatement();
-					
-					
-					//Create a new (temporary) student with the information from
-					//	the edit window
-					//
-					Student modifyStudent = editStudentPopup.newStudent();
-					
-					
-					//Update the student in the database with all of the new information
-					//	the id_num is used for matching the student being edited
-					//	with the student in the db
-					//
-					stmt.executeUpdate("UPDATE student SET " +
-										"first_name = '" + modifyStudent.getFirst() + "', " +
-										"last_name = '" + modifyStudent.getLast() + "', " +
-										"address = '" + modifyStudent.getAddress() + "', " +
-										"city = '" + modifyStudent.getCity() + "', " +
-										"state = '" + modifyStudent.getState() + "', " +
-										"zip = '" + modifyStudent.getZip() + "', " +
-										"dob = '" + modifyStudent.getDOB() + "', " +
-										"active = 1 " +
-										"WHERE id_num = '" + modifyStudent.getID() + "';");	
-					
-					stmt.close();
-					c.close();
+				popup.dispose();
+			}
+			
+			protected void failed(Throwable error){
 				
-					//Clear the student list
-					//
-					studentList.removeAllElements();
+				if(error instanceof StaleStudentException){
+					Student current = ((StaleStudentException)error).getCurrent();
+					placeStudent(current);
 					
-					//get the list of students from the database and re-populate the studentList
-					//
-					loadStudentsFromDB();
+					Student merged = popup.resolveConflict(current);
 					
-					//Update the student list window
-					manageStudents.setStudentList(studentList);
+					if(merged != null){
+						saveStudentEdit(merged);
+					}
 					
+					return;
 				}
 				
-				
-				catch(Exception e1)
-				{
-					System.err.println(e1);
-				}		
+				System.err.println(error);
+				JOptionPane.showMessageDialog(getContentPane(), "The student could not be saved:\n" + error.getMessage());
 			}
+		});
+	}
+	
+	
+	//Show the diagnostics card and keep it up to date while it is showing
+	//
+	class ShowDiagnosticsCard implements ActionListener{
+		public void actionPerformed(ActionEvent e){
 			
-			else{
-				
-				
+			showCard(DIAGNOSTICS);
+			diagnostics.showMetrics(metrics);
+			diagnosticsRefresh.start();
+			
+		}
+	};
+	
+	class RefreshDiagnostics implements ActionListener{
+		public void actionPerformed(ActionEvent e){
+			diagnostics.showMetrics(metrics);
+		}
+	};
+	
+	class ResetMetrics implements ActionListener{
+		public void actionPerformed(ActionEvent e){
+			
+			metrics.reset();
+			diagnostics.showMetrics(metrics);
+			
+		}
+	};
+	
+	
+	//Append the metrics to the dump file now, or to a file in the working
+	//	directory if they are not being dumped
+	//
+	class DumpMetrics implements ActionListener{
+		public void actionPerformed(ActionEvent e){
+			
+			java.io.File file = metrics.getDumpFile() != null ? metrics.getDumpFile() : new java.io.File(DEFAULT_METRICS_FILE);
+			
+			try{
+				metrics.dump(file);
+				JOptionPane.showMessageDialog(getContentPane(), "Metrics written to " + file.getAbsolutePath());
+			}
+			
+			catch(java.io.IOException ex){
+				System.err.println(ex);
+				JOptionPane.showMessageDialog(getContentPane(), "The metrics could not be written:\n" + ex.getMessage());
 			}
 			
-			editStudentPopup.dispose();
 		}
-	}
+	};
 	
 	
 	//Show the welcome screen/home page
 	//
 	class ShowWelcomeScreen implements ActionListener{
 		public void actionPerformed(ActionEvent e){
-			
-			//Get the cardlayout from the applicationPanel, and 
-			//	show the correct frame
-			//
-			CardLayout cl = (CardLayout)applicationPanel.getLayout();
-			cl.show(applicationPanel, WELCOME);
+			showCard(WELCOME);
 		}
 	};
 	
 	
+	//Print the report that is showing.  Page breaks are worked out by
+	//	ReportPrinter for the paper and orientation picked in the print
+	//	dialog, and the pages are drawn and sent to the printer in the
+	//	background once the dialog closes
+	//
 	class PrintReport implements ActionListener{
 		public void actionPerformed(ActionEvent e){
 			
+			if(!(reportPanel.getReportTable() instanceof SectionReport)){
+				JOptionPane.showMessageDialog(getContentPane(), "Show a class roster before printing");
+				return;
+			}
+			
+			final SectionReport report = (SectionReport)reportPanel.getReportTable();
+			final String title = "Class " + report.getClassID() + " Grade Report";
+			final PrinterJob job = PrinterJob.getPrinterJob();
+			final PrintRequestAttributeSet attributes = new HashPrintRequestAttributeSet();
+			
+			//Paginated for the default page only so the dialog can offer a page range
+			//
+			job.setJobName(title);
+			job.setPageable(new ReportPrinter(report, job.defaultPage(), title));
+			
+			if(!job.printDialog(attributes)){
+				return;
+			}
+			
+			final ReportPrinter printer = new ReportPrinter(report, job.getPageFormat(attributes), title);
+			job.setPageable(printer);
+			
+			tasks.runUpdate(new BackgroundTask<Double>("Printing report"){
+				protected Double doInBackground() throws Exception{
+					long start = System.nanoTime();
+					job.print(attributes);
+					return printer.getNumberOfPages() / ((System.nanoTime() - start) / 1000000000.0);
+				}
+				
+				protected void succeeded(Double pagesPerSecond){
+					System.out.printf("Printed %d pages, %.1f pages/s%n", printer.getNumberOfPages(), pagesPerSecond);
+				}
+				
+				protected void failed(Throwable error){
+					System.err.println(error);
+					JOptionPane.showMessageDialog(getContentPane(), "The report could not be printed:\n" + error.getMessage());
+				}
+			});
+		}
+	}
+	
+	
+	//Write a report card for every student in the selected class as page
+	//	images in a chosen directory
+	//
+	class SpoolReportCards implements ActionListener{
+		public void actionPerformed(ActionEvent e){
+			
+			CourseSection selectedClass = reportPanel.getSelectedClass();
+			
+			if(selectedClass == null){
+				JOptionPane.showMessageDialog(getContentPane(), "Select a class first");
+				return;
+			}
+			
+			final int classId = selectedClass.getID();
+			
+			JFileChooser chooser = new JFileChooser();
+			chooser.setDialogTitle("Spool Report Cards To");
+			chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+			
+			if(chooser.showSaveDialog(getContentPane()) != JFileChooser.APPROVE_OPTION){
+				return;
+			}
+			
+			final java.io.File directory = chooser.getSelectedFile();
+			
+			tasks.runUpdate(new BackgroundTask<ReportCardSpooler.SpoolResult>("Spooling report cards"){
+				protected ReportCardSpooler.SpoolResult doInBackground() throws Exception{
+					return service.spoolReportCards(classId, directory, new ReportCardSpooler.Progress(){
+						public void pageWritten(int pagesDone, int pagesTotal){
+							status("Spooled page " + pagesDone + " of " + pagesTotal);
+						}
+					});
+				}
+				
+				protected void succeeded(ReportCardSpooler.SpoolResult result){
+					JOptionPane.showMessageDialog(getContentPane(), result.toString());
+				}
+				
+				protected void failed(Throwable error){
+					System.err.println(error);
+					JOptionPane.showMessageDialog(getContentPane(), "The report cards could not be spooled:\n" + error.getMessage());
+				}
+			});
+		}
+	}
+	
+	
+	//Show the grades of every student in the selected class from the
+	//	grade summary table
+	//
+	class ReportsShowClass implements ActionListener{
+		public void actionPerformed(ActionEvent e){
+			
+			CourseSection selectedClass = reportPanel.getSelectedClass();
+			
+			if(selectedClass == null){
+				return;
+			}
+			
+			final int classId = selectedClass.getID();
+			
+			tasks.runLoad("section report", new BackgroundTask<SectionReport>("Computing grades"){
+				protected SectionReport doInBackground() throws Exception{
+					return service.loadReport(classId);
+				}
+				
+				protected void succeeded(SectionReport report){
+					reportPanel.setReportTable(report);
+				}
+			});
 		}
 	}
 	
 	
-	class ReportsShowClass implements ActionListener{
+	class GenerateReport implements ActionListener{
 		public void actionPerformed(ActionEvent e){
-			
+			new ReportsShowClass().actionPerformed(e);
 		}
 	}
 	
 	
-	class GenerateReport implements ActionListener{
+	//Export every section of a term to CSV files in a chosen directory
+	//
+	class ExportTerm implements ActionListener{
 		public void actionPerformed(ActionEvent e){
 			
+			final String term = JOptionPane.showInputDialog(getContentPane(), "Term to export (blank for every term)");
+			
+			if(term == null){
+				return;
+			}
+			
+			JFileChooser chooser = new JFileChooser();
+			chooser.setDialogTitle("Export To");
+			chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+			
+			if(chooser.showSaveDialog(getContentPane()) != JFileChooser.APPROVE_OPTION){
+				return;
+			}
+			
+			final java.io.File directory = chooser.getSelectedFile();
+			
+			tasks.runUpdate(new BackgroundTask<TermExporter.ExportResult>("Exporting grades"){
+				protected TermExporter.ExportResult doInBackground() throws Exception{
+					return service.exportTerm(term.trim().isEmpty() ? null : term.trim(), directory, TermExporter.DEFAULT_FETCH_SIZE);
+				}
+				
+				protected void succeeded(TermExporter.ExportResult result){
+					JOptionPane.showMessageDialog(getContentPane(), result.toString());
+				}
+				
+				protected void failed(Throwable error){
+					System.err.println(error);
+					JOptionPane.showMessageDialog(getContentPane(), "The export failed:\n" + error.getMessage());
+				}
+			});
 		}
 	}
 	
@@ -534,7 +1182,7 @@ public class Gradebook extends JFrame{
 			
 			//Set what the submit button does in the new student popup
 			//
-			newStudentPanel.submitActionListener(new SubmitNewStudent());
+			newStudentPanel.submitActionListener(timed(new SubmitNewStudent()));
 		}
 	}
 	
@@ -543,111 +1191,113 @@ public class Gradebook extends JFrame{
 			
 			//Get a new student object from the popup window
 			//
-			Student newStudent = newStudentPanel.newStudent();
-			
-			Connection c = null;
-			Statement stmt = null;
+			final Student newStudent = newStudentPanel.newStudent();
 			
 			if(confirmationDialog("Are you sure you want to add this student?")){
-				//Connect to the database
-				try{
-					Class.forName("org.sqlite.JDBC");
-					c = DriverManager.getConnection("jdbc:sqlite:bin/Capstone");
-					stmt = c.createStatement();
-		
-				
-					//Insert into the database the new student information
-					//
-					stmt.executeUpdate("INSERT INTO student (first_name, last_name, address, city, state, zip, dob) VALUES ('"
-							+ newStudent.getFirst() + "', '"
-							+ newStudent.getLast() + "', '"
-							+ newStudent.getAddress() + "', '"
-							+ newStudent.getCity() + "', '"
-							+ newStudent.getState() + "', '"
-							+ newStudent.getZip() + "', '"
-							+ newStudent.getDOB() + "');");
-				
-			
-					stmt.close();
-					c.close();
 				
-					//Close the new student popup
-					//
-					newStudentPanel.dispose();
-				
-					//Clear the student list
-					//
-					studentList.removeAllElements();
+				//Close the new student popup
+				//
+				newStudentPanel.dispose();
 				
-					//get the list of students from the database and re-populate the studentList
-					//
-					loadStudentsFromDB();
-					
-					//Update the student list window
-					manageStudents.setStudentList(studentList);
+				//Insert into the database the new student information, then
+				//	add just that student to the list
+				//
+				tasks.runUpdate(new BackgroundTask<Student>("Adding student"){
+					protected Student doInBackground() throws Exception{
+						return service.createStudent(newStudent);
+					}
 					
-				}
-			
-				catch(Exception e2){
-					System.err.println(e2);
-				
-				}
+					protected void succeeded(Student inserted){
+						placeStudent(inserted);
+					}
+				});
 			}
 		}
 	}
 	
 	
-	class DeleteStudent implements ActionListener{
+	//Bulk add students from a CSV file.  The import streams the file in
+	//	the background and reports its progress in the status bar, then the
+	//	student list is reloaded once
+	//
+	class ImportStudents implements ActionListener{
 		public void actionPerformed(ActionEvent e){
 			
-			try{
+			JFileChooser chooser = new JFileChooser();
+			chooser.setDialogTitle("Import Students");
+			chooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("CSV files", "csv"));
 			
-				//get currently selected member from the manage students panel
-				//
-				int currentSelectedStudent = manageStudents.getSelectedStudentIndex();
-				
-				selectedStudent = studentList.getElementAt(currentSelectedStudent);
-				
-				manageStudents.displayStudentInfo(selectedStudent);
-				
-				
-				//Present popup window, and if the user selects yes, remove the currently
-				//	selected member from the db
-				//
-				if(confirmationDialog("Are you sure you want to delete this student?")){
+			if(chooser.showOpenDialog(getContentPane()) != JFileChooser.APPROVE_OPTION){
+				return;
+			}
+			
+			final java.io.File csv = chooser.getSelectedFile();
+			final java.io.File rejects = StudentCsvImporter.rejectsFileFor(csv);
+			
+			tasks.runUpdate(new BackgroundTask<StudentCsvImporter.ImportResult>("Importing students", "Importing " + csv.getName()){
+				protected StudentCsvImporter.ImportResult doInBackground() throws Exception{
+					return service.importStudents(csv, rejects, new StudentCsvImporter.Progress(){
+						public void committed(StudentCsvImporter.ImportResult soFar){
+							status(String.format("Imported %d students (%.0f rows/s)", soFar.getImported(), soFar.getRowsPerSecond()));
+						}
+					});
+				}
 				
-					Connection c = null;
-					Statement stmt = null;
+				protected void succeeded(StudentCsvImporter.ImportResult result){
+					refreshStudentList();
 					
-					Class.forName("org.sqlite.JDBC");
-					c = DriverManager.getConnection("jdbc:sqlite:bin/Capstone");
+					String message = result.toString();
 					
+					if(result.getRejected() + result.getDuplicates() > 0){
+						message += "\nRows that were not imported are listed in " + rejects.getPath();
+					}
 					
-					stmt = c.createStatement();
-					stmt.executeUpdate("UPDATE student SET active = 0 WHERE id_num = '" + 
-										selectedStudent.getID() + "';");	
-				
-					stmt.close();
-					c.close();
-			
-					//Clear the student list
-					//
-					studentList.removeAllElements();
-				
-					//get the list of students from the database and re-populate the studentList
-					//
-					loadStudentsFromDB();
-				
-					//Update the student list window
-					manageStudents.setStudentList(studentList);
+					JOptionPane.showMessageDialog(getContentPane(), message);
+				}
 				
+				protected void failed(Throwable error){
+					System.err.println(error);
+					refreshStudentList();
+					JOptionPane.showMessageDialog(getContentPane(), "The import stopped:\n" + error.getMessage());
 				}
+			});
+		}
+	}
+	
+	
+	class DeleteStudent implements ActionListener{
+		public void actionPerformed(ActionEvent e){
+			
+			//get currently selected member from the manage students panel
+			//
+			if(!studentSelected()){
+				return;
 			}
 			
+			selectedStudent = manageStudents.getSelectedStudent();
 			
-			catch(Exception e1)
-			{
-				System.err.println(e1);
+			manageStudents.displayStudentInfo(selectedStudent);
+			
+			final int deleteId = selectedStudent.getID();
+			
+			
+			//Present popup window, and if the user selects yes, remove the currently
+			//	selected member from the db.  Inactive students stay in the list
+			//	if it is showing them
+			//
+			if(confirmationDialog("Are you sure you want to delete this student?")){
+				
+				tasks.runUpdate(new BackgroundTask<Boolean>("Deleting student"){
+					protected Boolean doInBackground() throws Exception{
+						return service.deleteStudent(deleteId);
+					}
+					
+					protected void succeeded(Boolean deleted){
+						if(deleted && !manageStudents.includeInactive()){
+							removeStudent(deleteId);
+						}
+					}
+				});
 			}
 		}
 	}
@@ -667,23 +1317,133 @@ public class Gradebook extends JFrame{
 	}
 	
 	
+	//Drop the students selected in the class roster.  Seats they free up
+	//	go to students on the waitlist
+	//
 	class RemoveStudentFromClass implements ActionListener{
 		public void actionPerformed(ActionEvent e){
 			
+			final CourseSection selectedClass = manageClasses.getSelectedClass();
+			List<Student> selected = manageClasses.getSelectedRosterStudents();
+			
+			if(selectedClass == null || selected.isEmpty()){
+				return;
+			}
+			
+			if(!confirmationDialog("Drop " + selected.size() + " student(s) from " + selectedClass + "?")){
+				return;
+			}
+			
+			final int[] ids = new int[selected.size()];
+			for(int i = 0; i < ids.length; i++){
+				ids[i] = selected.get(i).getID();
+			}
+			
+			tasks.runUpdate(new EnrollmentTask("Dropping students", selectedClass){
+				protected EnrollmentService.EnrollmentResult doInBackground() throws Exception{
+					return service.drop(selectedClass.getID(), ids);
+				}
+			});
 		}
 	}
 	
 	
+	//Enroll students, by id number, in the selected class.  Students who
+	//	do not fit go on its waitlist
+	//
 	class AddStudentToClass implements ActionListener{
 		public void actionPerformed(ActionEvent e){
 			
+			final CourseSection selectedClass = manageClasses.getSelectedClass();
+			
+			if(selectedClass == null){
+				return;
+			}
+			
+			String typed = JOptionPane.showInputDialog(getContentPane(),
+					"ID numbers of the students to enroll in " + selectedClass + "\n(separated by commas or spaces)");
+			
+			if(typed == null || typed.trim().isEmpty()){
+				return;
+			}
+			
+			final int[] ids;
+			
+			try{
+				String[] parts = typed.trim().split("[,\\s]+");
+				ids = new int[parts.length];
+				
+				for(int i = 0; i < parts.length; i++){
+					ids[i] = Integer.parseInt(parts[i]);
+				}
+			}
+			
+			catch(NumberFormatException ex){
+				JOptionPane.showMessageDialog(getContentPane(), "Student ID numbers must be whole numbers");
+				return;
+			}
+			
+			tasks.runUpdate(new EnrollmentTask("Enrolling students", selectedClass){
+				protected EnrollmentService.EnrollmentResult doInBackground() throws Exception{
+					return service.enroll(selectedClass.getID(), ids);
+				}
+			});
+		}
+	}
+	
+	
+	//An enroll or drop that shows the section's new roster and what
+	//	happened to each student when it is done
+	//
+	abstract class EnrollmentTask extends BackgroundTask<EnrollmentService.EnrollmentResult>{
+		
+		private final CourseSection section;
+		
+		EnrollmentTask(String description, CourseSection changed){
+			super(description);
+			section = changed;
+		}
+		
+		protected void succeeded(EnrollmentService.EnrollmentResult result){
+			result.applyTo(section);
+			
+			if(section == manageClasses.getSelectedClass()){
+				new ManageShowClass().actionPerformed(null);
+			}
+			
+			JOptionPane.showMessageDialog(getContentPane(), result.toString());
+		}
+		
+		protected void failed(Throwable error){
+			System.err.println(error);
+			JOptionPane.showMessageDialog(getContentPane(), "The roster could not be changed:\n" + error.getMessage());
 		}
 	}
 	
 	
+	//Show the selected class's details and load its roster
+	//
 	class ManageShowClass implements ActionListener{
 		public void actionPerformed(ActionEvent e){
 			
+			final CourseSection selectedClass = manageClasses.getSelectedClass();
+			
+			if(selectedClass == null){
+				return;
+			}
+			
+			manageClasses.displayClassInfo(selectedClass);
+			classRoster.clear();
+			
+			tasks.runLoad("class roster", new BackgroundTask<List<Student>>("Loading class roster"){
+				protected List<Student> doInBackground() throws Exception{
+					return service.listRoster(selectedClass.getID());
+				}
+				
+				protected void succeeded(List<Student> roster){
+					classRoster.addAll(roster);
+				}
+			});
 		}
 	}
 	
@@ -695,16 +1455,65 @@ public class Gradebook extends JFrame{
 	}
 	
 	
+	//Save every grade that was changed in the grade grid on the
+	//	enter grades page, as one batch in one transaction
+	//
 	class SaveGrades implements ActionListener{
 		public void actionPerformed(ActionEvent e){
 			
+			if(!(enterGrades.getGradeTable() instanceof GradeGridModel)){
+				return;
+			}
+			
+			final GradeGridModel grid = (GradeGridModel)enterGrades.getGradeTable();
+			final List<GradeChange> changes = grid.changedCells();
+			
+			if(changes.isEmpty()){
+				JOptionPane.showMessageDialog(getContentPane(), "No grades have changed");
+				return;
+			}
+			
+			tasks.runUpdate(new BackgroundTask<GradeRepository.SaveResult>("Saving grades"){
+				protected GradeRepository.SaveResult doInBackground() throws Exception{
+					return service.saveGrades(changes);
+				}
+				
+				protected void succeeded(GradeRepository.SaveResult result){
+					grid.markSaved(changes);
+					JOptionPane.showMessageDialog(getContentPane(), result.toString());
+				}
+				
+				protected void failed(Throwable error){
+					System.err.println(error);
+					JOptionPane.showMessageDialog(getContentPane(), "The grades could not be saved:\n" + error.getMessage());
+				}
+			});
 		}
 	}
 	
 	
+	//Load the grade grid (students by assignments) of the selected class
+	//
 	class GradesShowClass implements ActionListener{
 		public void actionPerformed(ActionEvent e){
 			
+			CourseSection selectedClass = enterGrades.getSelectedClass();
+			
+			if(selectedClass == null){
+				return;
+			}
+			
+			final int classId = selectedClass.getID();
+			
+			tasks.runLoad("grade grid", new BackgroundTask<GradeGridModel>("Loading grades"){
+				protected GradeGridModel doInBackground() throws Exception{
+					return service.loadGradeGrid(classId);
+				}
+				
+				protected void succeeded(GradeGridModel grid){
+					enterGrades.setGradeTable(grid);
+				}
+			});
 		}
 	}
 	
@@ -758,87 +1567,266 @@ public class Gradebook extends JFrame{
 	}
 	
 	
-	//Connect to the database and load the student list.  Only include active students
-	//	and only fetch their first name, last name, and id number
+	//Load the student list in the background.  Only include active students
+	//	and only fetch their first name, last name, and id number.  The
+	//	student directory only goes to the database the first time
 	//
-	public boolean loadStudentsFromDB(){
+	public void loadStudentsFromDB(){
 		
-		try{
-			Connection c = null;
-			Statement stmt = null;
-			
-			Class.forName("org.sqlite.JDBC");
-			c = DriverManager.getConnection("jdbc:sqlite:bin/Capstone");
-			
+		tasks.runLoad("student list", new LoadRoster(false));
+		
+	}
+	
+	//Load the student list in the background, including inactive students.
+	//	Only fetch their first name, last name, and id number
+	//
+	public void loadAllStudentsFromDB(){
+		
+		tasks.runLoad("student list", new LoadRoster(true));
 			
-			stmt = c.createStatement();
-			ResultSet rs = stmt.executeQuery("SELECT id_num, last_name, first_name, active FROM student ORDER BY last_name asc;");
+	}
+	
+	
+	//Reload the student list for the current search text and Show Inactive
+	//	checkbox.  With no search text the whole roster is shown
+	//
+	private void refreshStudentList(){
+		
+		final String text = manageStudents.getSearchText();
+		final boolean includeInactive = manageStudents.includeInactive();
 		
-			while(rs.next()){
-				if(rs.getString("active").equals("1")){
-					studentList.addElement(
-						new Student(Integer.parseInt(rs.getString("id_num")), 
-										rs.getString("first_name"), 
-										rs.getString("last_name")));
+		if(text.isEmpty()){
 			
-				}
+			if(includeInactive){
+				loadAllStudentsFromDB();
 			}
 			
-			rs.close();
-			stmt.close();
-			c.close();
+			else{
+				loadStudentsFromDB();
+			}
 			
-			manageStudents.setInactiveCheckbox(false);
+			return;
+		}
+		
+		tasks.runLoad("student list", new BackgroundTask<List<Student>>("Searching students"){
+			protected List<Student> doInBackground() throws Exception{
+				return service.searchStudents(text, includeInactive, SEARCH_LIMIT);
+			}
 			
-			return true;
+			protected void succeeded(List<Student> found){
+				showStudents(found);
+			}
+		});
+	}
+	
+	
+	//Replace the contents of the studentList with the loaded students,
+	//	keeping the selected student selected if they are still listed
+	//
+	private void showStudents(List<Student> loaded){
+		
+		Student selected = manageStudents.getSelectedStudent();
+		
+		pagedStudents = null;
+		studentList.setAll(loaded);
+		manageStudents.setStudentList(studentList);
+		
+		if(selected != null){
+			manageStudents.selectStudentIndex(studentList.indexOf(selected.getID()));
 		}
+	}
+	
+	
+	//Show a large roster through a paged model that only holds the rows
+	//	being looked at
+	//
+	private void showPagedStudents(boolean includeInactive, int rosterSize){
 		
-		catch(Exception e){
+		pagedStudents = new PagedStudentListModel(service, includeInactive);
+		pagedStudents.open(rosterSize);
+		manageStudents.setStudentList(pagedStudents);
+		
+		studentList.setAll(new ArrayList<Student>());
+	}
+	
+	
+	//Is a real student (not an empty selection or a row that is still
+	//	loading) selected in the student list
+	//
+	private boolean studentSelected(){
+		
+		Student selected = manageStudents.getSelectedStudent();
+		
+		return selected != null && !PagedStudentListModel.isPlaceholder(selected);
+	}
+	
+	
+	//Put a saved student into the studentList at its place in name order,
+	//	replacing the old entry for the same student if there is one.  The
+	//	saved student stays selected even if the new name moved it.  A paged
+	//	list is re-counted and reloaded instead
+	//
+	private void placeStudent(Student saved){
+		
+		if(pagedStudents != null){
+			pagedStudents.refresh();
+			return;
+		}
+		
+		studentList.put(saved);
+		
+		manageStudents.selectStudentIndex(studentList.indexOf(saved.getID()));
+	}
+	
+	
+	//Take one student out of the studentList
+	//
+	private void removeStudent(int id){
+		
+		if(pagedStudents != null){
+			pagedStudents.refresh();
+			return;
+		}
+		
+		studentList.remove(id);
+	}
+	
+	
+	//Reload the course and class lists in the background.  Each class
+	//	comes with its roster as a sorted array of student ids
+	//
+	private void loadCourses(){
+		
+		tasks.runLoad("courses", new BackgroundTask<List<CourseSection>>("Loading classes"){
 			
-			System.err.println(e);
+			private List<Course> loadedCourses;
 			
-			return false;
+			protected List<CourseSection> doInBackground() throws Exception{
+				loadedCourses = service.listCourses();
+				return service.listSections();
+			}
+			
+			protected void succeeded(List<CourseSection> sections){
+				courseList.clear();
+				courseList.addAll(loadedCourses);
+				classList.clear();
+				classList.addAll(sections);
+			}
+		});
+	}
+	
+	
+	//Show one of the cards in the main panel.  Loads still running for
+	//	the card being left are cancelled so their results are dropped
+	//
+	private void showCard(String card){
+		
+		buildCard(card);
+		tasks.cancelLoads();
+		currentCard = card;
+		
+		if(!card.equals(DIAGNOSTICS)){
+			diagnosticsRefresh.stop();
 		}
 		
+		mainCL.show(applicationPanel, card);
 	}
 	
-	//Connect to the database and load the student list.  Only include active students
-	//	and only fetch their first name, last name, and id number
+	
+	//Time every click of the listener's button in the metrics registry,
+	//	under the listener's class name, and record it as a gradebook.UiAction
+	//	Flight Recorder event along with the card it was clicked on.  The EDT
+	//	watchdog blames any stall during the click on the listener's class
 	//
-	public boolean loadAllStudentsFromDB(){
-			
-		try{
-			Connection c = null;
-			Statement stmt = null;
+	private ActionListener timed(ActionListener listener){
+		
+		final String action = listener.getClass().getSimpleName();
+		final String listenerClass = listener.getClass().getName();
+		final ActionListener metered = metrics.instrument(action, listener);
+		
+		return new ActionListener(){
+			public void actionPerformed(ActionEvent e){
 				
-			Class.forName("org.sqlite.JDBC");
-			c = DriverManager.getConnection("jdbc:sqlite:bin/Capstone");
+				String card = currentCard;
+				FlightRecording.UiActionEvent event = new FlightRecording.UiActionEvent();
+				String previous = watchdog.enter(listenerClass);
+				event.begin();
 				
+				try{
+					metered.actionPerformed(e);
+				}
 				
-			stmt = c.createStatement();
-			ResultSet rs = stmt.executeQuery("SELECT id_num, last_name, first_name, active FROM student ORDER BY last_name asc;");
+				finally{
+					event.finish(card, action, e.getActionCommand());
+					watchdog.exit(previous);
+				}
+			}
+		};
+	}
+	
+	
+	//Background task that loads the student list.  Rosters up to
+	//	PAGED_ROSTER_SIZE students are loaded whole from the student
+	//	directory, bigger ones are only counted and then shown page by page
+	//
+	class LoadRoster extends BackgroundTask<List<Student>>{
+		
+		private boolean includeInactive;
+		private int rosterSize;
+		
+		LoadRoster(boolean inactive){
+			super(inactive ? "Loading all students" : "Loading students");
+			includeInactive = inactive;
+		}
+		
+		protected List<Student> doInBackground() throws Exception{
 			
-			while(rs.next()){
-				studentList.addElement(
-						new Student(Integer.parseInt(rs.getString("id_num")), 
-											rs.getString("first_name"), 
-											rs.getString("last_name")));
+			rosterSize = service.countStudents(includeInactive);
+			
+			if(rosterSize > PAGED_ROSTER_SIZE){
+				return null;
 			}
-				
-			rs.close();
-			stmt.close();
-			c.close();
-				
-			return true;
+			
+			return service.listStudents(includeInactive);
 		}
 		
-		catch(Exception e){
-				
-			System.err.println(e);
-				
-			return false;
+		protected void succeeded(List<Student> loaded){
+			
+			if(loaded == null){
+				showPagedStudents(includeInactive, rosterSize);
+			}
+			
+			else{
+				showStudents(loaded);
+			}
+			
+			manageStudents.setInactiveCheckbox(includeInactive);
+		}
+	}
+	
+	
+	//Background task that loads every column for one student.  Falls back
+	//	to the summary record if the student can not be found
+	//
+	abstract class LoadStudentDetail extends BackgroundTask<Student>{
+		
+		private Student summary;
+		
+		LoadStudentDetail(Student student){
+			super("Loading student");
+			summary = student;
 		}
+		
+		protected Student doInBackground() throws Exception{
 			
+			Student detail = service.findStudent(summary.getID());
+			
+			if(detail == null){
+				return summary;
+			}
+			
+			return detail;
+		}
 	}
 	
 	
@@ -0,0 +1,763 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+
+//Local HTTP/JSON API over GradebookService, for scripting (term rollovers,
+//	bulk enrollment) and for running the gradebook headless on a server.
+//
+//	GET    /health                      pool and cache statistics
+//	GET    /metrics                     every timer, counter and gauge, see
+//	                                    MetricsRegistry
+//	GET    /students[?inactive=true][&q=text][&limit=n]
+//	POST   /students                    create, body is a student
+//	GET    /students/{id}
+//	PUT    /students/{id}               body is a student with the version it
+//	                                    was read at, 409 with the stored
+//	                                    student if someone saved it since
+//	DELETE /students/{id}
+//	GET    /courses
+//	GET    /sections
+//	GET    /sections/{id}/roster
+//	GET    /sections/{id}/waitlist
+//	POST   /sections/{id}/enroll        body {"students": [id, ...]}
+//	POST   /sections/{id}/drop          body {"students": [id, ...]}
+//	GET    /sections/{id}/grades
+//	PUT    /sections/{id}/grades        body {"grades": [{"assignment": id,
+//	                                    "student": id, "points": n or null}]}
+//	GET    /sections/{id}/report
+//	POST   /export                      body {"term": "2026FA" or null,
+//	                                    "directory": "/path/on/server"}
+//
+//	Every request runs on its own virtual thread when the JVM has them
+//	(Java 21 and later), found by reflection so the code still builds and
+//	runs on Java 11 with a small fixed pool instead.  Requests block on the
+//	database, so virtual threads let many of them wait on the connection
+//	pool without tying up platform threads.
+//
+public class GradebookHttpServer {
+
+	public static final int DEFAULT_PORT = 8080;
+
+	private static final int FALLBACK_THREADS = 16;
+
+	//The routes and methods above.  Requests are timed as http.<method> <route>
+	//	only for these, anything else a client sends is timed as
+	//	UNMATCHED_TIMER, so made up paths can not fill the metrics registry
+	//
+	private static final Set<String> ROUTES = new HashSet<String>(Arrays.asList(
+			"/health", "/metrics", "/students", "/students/{id}", "/courses", "/sections",
+			"/sections/{id}/roster", "/sections/{id}/waitlist", "/sections/{id}/enroll", "/sections/{id}/drop",
+			"/sections/{id}/grades", "/sections/{id}/report", "/export"));
+	private static final Set<String> METHODS = new HashSet<String>(Arrays.asList("GET", "POST", "PUT", "DELETE"));
+	private static final String UNMATCHED_TIMER = "http.unmatched";
+
+	private final GradebookService service;
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final boolean virtualThreads;
+
+
+	//Listen on address, which should normally be a loopback address: the
+	//	API has no authentication of its own
+	//
+	public GradebookHttpServer(GradebookService gradebookService, InetSocketAddress address) throws IOException{
+
+		service = gradebookService;
+		server = HttpServer.create(address, 0);
+
+		ExecutorService virtual = newVirtualThreadExecutor();
+		virtualThreads = virtual != null;
+		executor = virtualThreads ? virtual : Executors.newFixedThreadPool(FALLBACK_THREADS);
+
+		server.setExecutor(executor);
+		server.createContext("/", new Router());
+	}
+
+
+	public void start(){
+		server.start();
+	}
+
+
+	//Stop accepting requests, give running ones up to delaySeconds to
+	//	finish, then stop the request threads
+	//
+	public void stop(int delaySeconds){
+		server.stop(delaySeconds);
+		executor.shutdown();
+	}
+
+
+	public int getPort(){
+		return server.getAddress().getPort();
+	}
+
+	public boolean usesVirtualThreads(){
+		return virtualThreads;
+	}
+
+
+	//Executors.newVirtualThreadPerTaskExecutor() if this JVM has it, null otherwise
+	//
+	private static ExecutorService newVirtualThreadExecutor(){
+
+		try{
+			return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+
+		catch(ReflectiveOperationException e){
+			return null;
+		}
+	}
+
+
+	//A request that cannot be answered, with the status to answer it with
+	//
+	private static class HttpError extends Exception{
+
+		private static final long serialVersionUID = 1L;
+
+		private final int status;
+
+		HttpError(int httpStatus, String message){
+			super(message);
+			status = httpStatus;
+		}
+	}
+
+
+	//Sends every request to the method for its path and turns failures
+	//	into JSON error responses
+	//
+	private class Router implements HttpHandler{
+
+		public void handle(HttpExchange exchange) throws IOException{
+
+			long start = System.nanoTime();
+			String method = exchange.getRequestMethod();
+			String[] path = segments(exchange.getRequestURI());
+
+			try{
+				Map<String, String> query = query(exchange.getRequestURI());
+
+				if(path.length == 0){
+					throw new HttpError(404, "No such resource");
+				}
+
+				String response;
+
+				if(path[0].equals("health") && path.length == 1){
+					requireMethod(method, "GET");
+					response = health();
+				}
+
+				else if(path[0].equals("metrics") && path.length == 1){
+					requireMethod(method, "GET");
+					response = metrics();
+				}
+
+				else if(path[0].equals("students")){
+					response = students(exchange, method, path, query);
+				}
+
+				else if(path[0].equals("courses") && path.length == 1){
+					requireMethod(method, "GET");
+					response = courses();
+				}
+
+				else if(path[0].equals("sections")){
+					response = sections(exchange, method, path);
+				}
+
+				else if(path[0].equals("export") && path.length == 1){
+					requireMethod(method, "POST");
+					response = export(body(exchange));
+				}
+
+				else{
+					throw new HttpError(404, "No such resource");
+				}
+
+				send(exchange, method.equals("POST") && path[0].equals("students") ? 201 : 200, response);
+			}
+
+			catch(HttpError e){
+				send(exchange, e.status, error(e.getMessage()));
+			}
+
+			catch(StaleStudentException e){
+				Json.Writer json = new Json.Writer().beginObject().name("error").value(e.getMessage()).name("current");
+				writeStudent(json, e.getCurrent());
+				send(exchange, 409, json.endObject().toString());
+			}
+
+			catch(IllegalArgumentException e){
+				send(exchange, 400, error(e.getMessage()));
+			}
+
+			catch(ClassCastException e){
+				send(exchange, 400, error("A field has the wrong type"));
+			}
+
+			catch(Exception e){
+				System.err.println(e);
+				send(exchange, 500, error(e.toString()));
+			}
+
+			finally{
+				exchange.close();
+				MetricsRegistry.getInstance().timer(timerName(method, path)).record(System.nanoTime() - start);
+			}
+		}
+	}
+
+
+	private String health(){
+
+		return new Json.Writer().beginObject()
+				.name("status").value("ok")
+				.name("virtualThreads").value(virtualThreads)
+				.name("pool").value(service.getPool().toString())
+				.name("students").value(service.getStudentRepository().toString())
+				.name("directory").value(service.getStudentDirectory().toString())
+				.endObject().toString();
+	}
+
+
+	//Every timer, counter and gauge in the metrics registry
+	//
+	private String metrics(){
+
+		MetricsRegistry registry = MetricsRegistry.getInstance();
+		Json.Writer json = new Json.Writer().beginObject().name("timers").beginArray();
+
+		for(MetricsRegistry.Timer timer : registry.getTimers()){
+			double[] p = timer.getPercentilesMillis();
+
+			json.beginObject().name("name").value(timer.getName()).name("count").value(timer.getCount())
+					.name("meanMs").value(timer.getMeanMillis()).name("p50Ms").value(p[0]).name("p95Ms").value(p[1])
+					.name("p99Ms").value(p[2]).name("maxMs").value(timer.getMaxMillis()).endObject();
+		}
+
+		json.endArray().name("counters").beginObject();
+
+		for(MetricsRegistry.Counter counter : registry.getCounters()){
+			json.name(counter.getName()).value(counter.get());
+		}
+
+		json.endObject().name("gauges").beginObject();
+
+		for(String name : registry.getGaugeNames()){
+			json.name(name).value(registry.readGauge(name));
+		}
+
+		return json.endObject().endObject().toString();
+	}
+
+
+	private String students(HttpExchange exchange, String method, String[] path, Map<String, String> query)
+			throws HttpError, IOException, SQLException{
+
+		if(path.length == 1){
+
+			if(method.equals("POST")){
+				Student created = service.createStudent(readStudent(body(exchange), 0));
+				return writeStudent(new Json.Writer(), created).toString();
+			}
+
+			requireMethod(method, "GET");
+
+			boolean inactive = "true".equals(query.get("inactive"));
+			String text = query.get("q");
+			List<Student> found;
+
+			if(text != null && !text.trim().isEmpty()){
+				int limit = query.containsKey("limit") ? parseId(query.get("limit")) : 200;
+
+				if(limit < 0){
+					throw new HttpError(400, "\"limit\" can not be negative");
+				}
+
+				found = service.searchStudents(text, inactive, limit);
+			}
+
+			else{
+				found = service.listStudents(inactive);
+			}
+
+			Json.Writer json = new Json.Writer().beginArray();
+
+			for(Student s : found){
+				json.beginObject().name("id").value(s.getID()).name("first").value(s.getFirst())
+						.name("last").value(s.getLast()).name("active").value(s.isActive()).endObject();
+			}
+
+			return json.endArray().toString();
+		}
+
+		if(path.length != 2){
+			throw new HttpError(404, "No such resource");
+		}
+
+		int id = parseId(path[1]);
+
+		if(method.equals("PUT")){
+			Student edited = readStudent(body(exchange), id);
+
+			if(!service.updateStudent(edited)){
+				throw new HttpError(404, "No student " + id);
+			}
+
+			return writeStudent(new Json.Writer(), edited).toString();
+		}
+
+		if(method.equals("DELETE")){
+			if(!service.deleteStudent(id)){
+				throw new HttpError(404, "No student " + id);
+			}
+
+			return new Json.Writer().beginObject().name("deleted").value(id).endObject().toString();
+		}
+
+		requireMethod(method, "GET");
+		Student s = service.findStudent(id);
+
+		if(s == null){
+			throw new HttpError(404, "No student " + id);
+		}
+
+		return writeStudent(new Json.Writer(), s).toString();
+	}
+
+
+	private String courses() throws SQLException{
+
+		Json.Writer json = new Json.Writer().beginArray();
+
+		for(Course course : service.listCourses()){
+			json.beginObject().name("id").value(course.getID()).name("number").value(course.getNumber())
+					.name("name").value(course.getName()).name("description").value(course.getDescription()).endObject();
+		}
+
+		return json.endArray().toString();
+	}
+
+
+	private String sections(HttpExchange exchange, String method, String[] path) throws HttpError, IOException, SQLException{
+
+		if(path.length == 1){
+			requireMethod(method, "GET");
+			Json.Writer json = new Json.Writer().beginArray();
+
+			for(CourseSection section : service.listSections()){
+				json.beginObject().name("id").value(section.getID()).name("courseId").value(section.getCourseID())
+						.name("course").value(section.getCourseNumber()).name("day").value(section.getMeetingDay())
+						.name("term").value(section.getTerm()).name("max").value(section.getMaxStudents())
+						.name("enrolled").value(section.getEnrollment()).name("seatsLeft").value(section.getSeatsLeft())
+						.endObject();
+			}
+
+			return json.endArray().toString();
+		}
+
+		if(path.length != 3){
+			throw new HttpError(404, "No such resource");
+		}
+
+		int classId = parseId(path[1]);
+		String what = path[2];
+
+		if(what.equals("roster")){
+			requireMethod(method, "GET");
+			Json.Writer json = new Json.Writer().beginArray();
+
+			for(Student s : service.listRoster(classId)){
+				json.beginObject().name("id").value(s.getID()).name("first").value(s.getFirst())
+						.name("last").value(s.getLast()).endObject();
+			}
+
+			return json.endArray().toString();
+		}
+
+		if(what.equals("waitlist")){
+			requireMethod(method, "GET");
+			return writeIds(new Json.Writer(), service.listWaitlist(classId)).toString();
+		}
+
+		if(what.equals("enroll") || what.equals("drop")){
+			requireMethod(method, "POST");
+			int[] ids = readIds(body(exchange), "students");
+
+			EnrollmentService.EnrollmentResult result = what.equals("enroll")
+					? service.enroll(classId, ids) : service.drop(classId, ids);
+
+			Json.Writer json = new Json.Writer().beginObject().name("classId").value(classId);
+			writeIds(json.name("enrolled"), result.getEnrolled());
+			writeIds(json.name("alreadyEnrolled"), result.getAlreadyEnrolled());
+			writeIds(json.name("waitlisted"), result.getWaitlisted());
+			writeIds(json.name("dropped"), result.getDropped());
+			writeIds(json.name("promoted"), result.getPromoted());
+
+			return json.endObject().toString();
+		}
+
+		if(what.equals("grades") && method.equals("PUT")){
+			return saveGrades(classId, body(exchange));
+		}
+
+		if(what.equals("grades")){
+			requireMethod(method, "GET");
+			return grades(classId);
+		}
+
+		if(what.equals("report")){
+			requireMethod(method, "GET");
+			return report(classId);
+		}
+
+		throw new HttpError(404, "No such resource");
+	}
+
+
+	private String grades(int classId) throws SQLException{
+
+		GradeGridModel grid = service.loadGradeGrid(classId);
+		Json.Writer json = new Json.Writer().beginObject().name("classId").value(classId).name("assignments").beginArray();
+
+		for(int a = 0; a < grid.getAssignmentCount(); a++){
+			json.beginObject().name("id").value(grid.getAssignmentID(a)).name("name").value(grid.getAssignmentName(a))
+					.name("possible").value(grid.getPointsPossible(a)).endObject();
+		}
+
+		json.endArray().name("students").beginArray();
+
+		for(int row = 0; row < grid.getRowCount(); row++){
+			Student s = grid.getStudent(row);
+			json.beginObject().name("id").value(s.getID()).name("name").value(s.toString()).name("points").beginArray();
+
+			for(int a = 0; a < grid.getAssignmentCount(); a++){
+				json.value(grid.getPoints(row, a));
+			}
+
+			json.endArray().name("percentage").value(grid.getPercentage(row)).name("letter").value(grid.getLetter(row)).endObject();
+		}
+
+		return json.endArray().endObject().toString();
+	}
+
+
+	@SuppressWarnings("unchecked")
+	private String saveGrades(int classId, Map<String, Object> body) throws HttpError, SQLException{
+
+		Object grades = body.get("grades");
+
+		if(!(grades instanceof List)){
+			throw new HttpError(400, "Expected a \"grades\" array");
+		}
+
+		//Only this section's assignments, with the same bounds the grade grid
+		//	puts on typed grades
+		//
+		Map<Integer, Float> possible = service.loadPointsPossible(classId);
+		List<GradeChange> changes = new ArrayList<GradeChange>();
+
+		for(Object item : (List<Object>)grades){
+			if(!(item instanceof Map)){
+				throw new HttpError(400, "Expected each grade to be an object");
+			}
+
+			Map<String, Object> grade = (Map<String, Object>)item;
+			int assignment = requireInt(grade, "assignment");
+			Object points = grade.get("points");
+
+			if(!possible.containsKey(assignment)){
+				throw new HttpError(400, "Assignment " + assignment + " is not in section " + classId);
+			}
+
+			if(points != null && !(points instanceof Number)){
+				throw new HttpError(400, "Expected a number or null for \"points\"");
+			}
+
+			if(points != null && !GradeGridModel.isValidPoints(((Number)points).floatValue(), possible.get(assignment))){
+				throw new HttpError(400, "Points for assignment " + assignment + " must be from 0 to " + possible.get(assignment));
+			}
+
+			changes.add(new GradeChange(assignment, requireInt(grade, "student"),
+					points == null ? null : ((Number)points).floatValue()));
+		}
+
+		GradeRepository.SaveResult result = service.saveGrades(changes);
+
+		return new Json.Writer().beginObject().name("classId").value(classId)
+				.name("saved").value(result.getCellsChanged()).name("millis").value(result.getMillis())
+				.name("commitMillis").value(result.getCommitMillis()).endObject().toString();
+	}
+
+
+	private String report(int classId) throws SQLException{
+
+		SectionReport report = service.loadReport(classId);
+		Json.Writer json = new Json.Writer().beginObject().name("classId").value(classId).name("students").beginArray();
+
+		for(int row = 0; row < report.getStudentCount(); row++){
+			json.beginObject().name("id").value(report.getStudentID(row)).name("name").value(report.getStudentName(row))
+					.name("earned").value(report.getPointsEarned(row)).name("possible").value(report.getPointsPossible(row))
+					.name("percentage").value(report.getPercentage(row)).name("letter").value(report.getLetter(row))
+					.name("rank").value(report.getRank(row)).endObject();
+		}
+
+		return json.endArray().endObject().toString();
+	}
+
+
+	private String export(Map<String, Object> body) throws HttpError, IOException, SQLException{
+
+		Object term = body.get("term");
+		Object directory = body.get("directory");
+
+		if(!(directory instanceof String)){
+			throw new HttpError(400, "Expected a \"directory\" to export into");
+		}
+
+		File dir = new File((String)directory);
+
+		if(!dir.isDirectory()){
+			throw new HttpError(400, "No such directory: " + dir);
+		}
+
+		TermExporter.ExportResult result = service.exportTerm(term == null ? null : term.toString(), dir,
+				TermExporter.DEFAULT_FETCH_SIZE);
+
+		return new Json.Writer().beginObject().name("sections").value(result.getSections())
+				.name("rows").value(result.getRows()).name("bytes").value(result.getBytes())
+				.name("millis").value(result.getMillis()).endObject().toString();
+	}
+
+
+	//A student from a request body.  id comes from the path (0 for a new
+	//	student) and the version from the body
+	//
+	private static Student readStudent(Map<String, Object> body, int id) throws HttpError{
+
+		Object zip = body.get("zip");
+		String zipText = zip instanceof Number ? Long.toString(((Number)zip).longValue()) : (String)zip;
+
+		if(zipText == null || !zipText.trim().matches("\\d{1,9}")){
+			throw new HttpError(400, "Expected a numeric \"zip\"");
+		}
+
+		Student s = new Student(id, text(body, "first"), text(body, "last"), text(body, "address"), text(body, "city"),
+				text(body, "state"), zipText.trim(), text(body, "dob"));
+
+		if(body.get("version") instanceof Number){
+			s.setVersion(((Number)body.get("version")).intValue());
+		}
+
+		return s;
+	}
+
+
+	private static Json.Writer writeStudent(Json.Writer json, Student s){
+
+		return json.beginObject().name("id").value(s.getID()).name("first").value(s.getFirst())
+				.name("last").value(s.getLast()).name("address").value(s.getAddress()).name("city").value(s.getCity())
+				.name("state").value(s.getState()).name("zip").value(s.getZip()).name("dob").value(s.getDOB())
+				.name("active").value(s.isActive()).name("version").value(s.getVersion()).endObject();
+	}
+
+
+	private static Json.Writer writeIds(Json.Writer json, List<Integer> ids){
+
+		json.beginArray();
+
+		for(int id : ids){
+			json.value(id);
+		}
+
+		return json.endArray();
+	}
+
+
+	@SuppressWarnings("unchecked")
+	private static int[] readIds(Map<String, Object> body, String name) throws HttpError{
+
+		Object ids = body.get(name);
+
+		if(!(ids instanceof List)){
+			throw new HttpError(400, "Expected a \"" + name + "\" array");
+		}
+
+		List<Object> list = (List<Object>)ids;
+		int[] array = new int[list.size()];
+
+		for(int i = 0; i < array.length; i++){
+			if(!(list.get(i) instanceof Number)){
+				throw new HttpError(400, "Expected \"" + name + "\" to hold numbers");
+			}
+
+			array[i] = ((Number)list.get(i)).intValue();
+		}
+
+		return array;
+	}
+
+
+	private static String text(Map<String, Object> body, String name){
+
+		Object value = body.get(name);
+
+		return value == null ? "" : value.toString();
+	}
+
+
+	private static int requireInt(Map<String, Object> body, String name) throws HttpError{
+
+		Object value = body.get(name);
+
+		if(!(value instanceof Number)){
+			throw new HttpError(400, "Expected a number for \"" + name + "\"");
+		}
+
+		return ((Number)value).intValue();
+	}
+
+
+	private static int parseId(String text) throws HttpError{
+
+		try{
+			return Integer.parseInt(text);
+		}
+
+		catch(NumberFormatException e){
+			throw new HttpError(400, "Not a number: " + text);
+		}
+	}
+
+
+	private static void requireMethod(String method, String allowed) throws HttpError{
+
+		if(!method.equals(allowed)){
+			throw new HttpError(405, method + " is not allowed here");
+		}
+	}
+
+
+	//http.<method> <route> for a known route and method, UNMATCHED_TIMER
+	//	for anything else
+	//
+	private static String timerName(String method, String[] path){
+
+		String route = route(path);
+
+		return ROUTES.contains(route) && METHODS.contains(method) ? "http." + method + " " + route : UNMATCHED_TIMER;
+	}
+
+
+	//The path with ids replaced by {id}, so every student or section shares
+	//	one timer per route
+	//
+	private static String route(String[] path){
+
+		StringBuilder route = new StringBuilder();
+
+		for(String part : path){
+			route.append('/').append(part.matches("\\d+") ? "{id}" : part);
+		}
+
+		return route.length() == 0 ? "/" : route.toString();
+	}
+
+
+	private static String[] segments(URI uri){
+
+		List<String> parts = new ArrayList<String>();
+
+		for(String part : uri.getPath().split("/")){
+			if(!part.isEmpty()){
+				parts.add(part);
+			}
+		}
+
+		return parts.toArray(new String[parts.size()]);
+	}
+
+
+	private static Map<String, String> query(URI uri) throws IOException{
+
+		Map<String, String> params = new HashMap<String, String>();
+		String raw = uri.getRawQuery();
+
+		if(raw == null){
+			return params;
+		}
+
+		for(String pair : raw.split("&")){
+			int equals = pair.indexOf('=');
+
+			if(equals > 0){
+				params.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"), URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+			}
+		}
+
+		return params;
+	}
+
+
+	private static Map<String, Object> body(HttpExchange exchange) throws IOException{
+
+		InputStream in = exchange.getRequestBody();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int read;
+
+		while((read = in.read(buffer)) > 0){
+			bytes.write(buffer, 0, read);
+		}
+
+		return Json.parseObject(new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+
+	private static String error(String message){
+		return new Json.Writer().beginObject().name("error").value(message).endObject().toString();
+	}
+
+
+	private static void send(HttpExchange exchange, int status, String json) throws IOException{
+
+		byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+
+		OutputStream out = exchange.getResponseBody();
+
+		try{
+			out.write(bytes);
+		}
+
+		finally{
+			out.close();
+		}
+	}
+}
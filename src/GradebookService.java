@@ -0,0 +1,253 @@
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+
+//Every student, course, enrollment and grade operation of the gradebook,
+//	with nothing to do with Swing.  The window and the HTTP API are both
+//	clients of this class, so anything a user can click can also be scripted.
+//
+//	Methods may be called from any thread and block on the database, so the
+//	window calls them from BackgroundTasks.  The repositories underneath
+//	share one connection pool.
+//
+public class GradebookService {
+
+	private final ConnectionPool pool;
+	private final StudentRepository studentRepository;
+	private final StudentDirectory students;
+	private final CourseRepository courses;
+	private final EnrollmentService enrollment;
+	private final GradeRepository grades;
+	private final GradeCalculator calculator;
+	private final SectionSummaryRepository summaries;
+
+
+	public GradebookService(ConnectionPool connectionPool){
+
+		pool = connectionPool;
+		studentRepository = new StudentRepository(pool);
+		students = new StudentDirectory(studentRepository);
+		courses = new CourseRepository(pool);
+		enrollment = new EnrollmentService(pool);
+		grades = new GradeRepository(pool);
+		calculator = new GradeCalculator(pool);
+		summaries = new SectionSummaryRepository(pool, calculator);
+
+		registerGauges(MetricsRegistry.getInstance());
+	}
+
+
+	//Show the pool, the student caches and the heap alongside the timings
+	//
+	private void registerGauges(MetricsRegistry metrics){
+
+		metrics.gauge("pool.active", new MetricsRegistry.Gauge(){
+			public double getValue(){
+				return pool.getActiveCount();
+			}
+		});
+
+		metrics.gauge("pool.idle", new MetricsRegistry.Gauge(){
+			public double getValue(){
+				return pool.getIdleCount();
+			}
+		});
+
+		metrics.gauge("pool.statementCacheHitRatio", new MetricsRegistry.Gauge(){
+			public double getValue(){
+				long hits = pool.getStatementCacheHits();
+				long total = hits + pool.getStatementCacheMisses();
+				return total == 0 ? 0 : hits / (double)total;
+			}
+		});
+
+		metrics.gauge("students.conflictRate", new MetricsRegistry.Gauge(){
+			public double getValue(){
+				return studentRepository.getConflictRate();
+			}
+		});
+
+		metrics.gauge("students.cachedDetails", new MetricsRegistry.Gauge(){
+			public double getValue(){
+				return students.getDetailCount();
+			}
+		});
+
+		metrics.gauge("jvm.heapUsedMB", new MetricsRegistry.Gauge(){
+			public double getValue(){
+				Runtime runtime = Runtime.getRuntime();
+				return (runtime.totalMemory() - runtime.freeMemory()) / (1024.0 * 1024.0);
+			}
+		});
+	}
+
+
+	//Bring the schema up to date.  Returns the number of migrations applied
+	//
+	public int migrate() throws SQLException{
+		return new SchemaMigrator(pool).migrate();
+	}
+
+
+	public ConnectionPool getPool(){
+		return pool;
+	}
+
+	public StudentRepository getStudentRepository(){
+		return studentRepository;
+	}
+
+	public StudentDirectory getStudentDirectory(){
+		return students;
+	}
+
+
+	public void shutdown(){
+		pool.shutdown();
+	}
+
+
+	//Students
+	//
+
+	//Summaries (id, names, active flag) of every active student, or of
+	//	every student, sorted by name
+	//
+	public List<Student> listStudents(boolean includeInactive) throws SQLException{
+		return includeInactive ? students.allStudents() : students.activeStudents();
+	}
+
+	public int countStudents(boolean includeInactive) throws SQLException{
+		return studentRepository.count(includeInactive);
+	}
+
+	public List<Student> studentsAfter(boolean includeInactive, Student after, int limit) throws SQLException{
+		return studentRepository.pageAfter(includeInactive, after, limit);
+	}
+
+	public List<Student> studentsBefore(boolean includeInactive, Student before, int limit) throws SQLException{
+		return studentRepository.pageBefore(includeInactive, before, limit);
+	}
+
+	public List<Student> studentsAt(boolean includeInactive, int offset, int limit) throws SQLException{
+		return studentRepository.pageAt(includeInactive, offset, limit);
+	}
+
+	public List<Student> searchStudents(String text, boolean includeInactive, int limit) throws SQLException{
+		return studentRepository.search(text, includeInactive, limit);
+	}
+
+	//Every column of one student, null if there is no such student
+	//
+	public Student findStudent(int id) throws SQLException{
+		return students.find(id);
+	}
+
+	public Student createStudent(Student s) throws SQLException{
+		return students.insert(s);
+	}
+
+	//Save the student if nobody else has since it was read, see
+	//	StudentRepository.update
+	//
+	public boolean updateStudent(Student s) throws SQLException{
+		return students.update(s);
+	}
+
+	public boolean deleteStudent(int id) throws SQLException{
+		return students.delete(id);
+	}
+
+	public StudentCsvImporter.ImportResult importStudents(File csv, File rejects, StudentCsvImporter.Progress progress)
+			throws IOException, SQLException{
+
+		try{
+			return new StudentCsvImporter(pool).importFile(csv, rejects, progress);
+		}
+
+		finally{
+			//Even a failed import may have committed some chunks
+			//
+			students.invalidate();
+		}
+	}
+
+
+	//Courses and sections
+	//
+
+	public List<Course> listCourses() throws SQLException{
+		return courses.listCourses();
+	}
+
+	public List<CourseSection> listSections() throws SQLException{
+		return courses.listSections();
+	}
+
+	public List<Student> listRoster(int classId) throws SQLException{
+		return courses.listRoster(classId);
+	}
+
+	public EnrollmentService.EnrollmentResult enroll(int classId, int[] studentIds) throws SQLException{
+		return enrollment.enroll(classId, studentIds);
+	}
+
+	public EnrollmentService.EnrollmentResult drop(int classId, int[] studentIds) throws SQLException{
+		return enrollment.drop(classId, studentIds);
+	}
+
+	public List<Integer> listWaitlist(int classId) throws SQLException{
+		return enrollment.listWaitlist(classId);
+	}
+
+
+	//Grades and reports
+	//
+
+	public GradeGridModel loadGradeGrid(int classId) throws SQLException{
+		return grades.loadClassGrid(classId);
+	}
+
+	//Points possible of each of the section's assignments, by assignment_id
+	//
+	public Map<Integer, Float> loadPointsPossible(int classId) throws SQLException{
+		return grades.loadPointsPossible(classId);
+	}
+
+	//Save the changed grades, then bring the report summaries of the sections
+	//	they belong to up to date while their grades are still in the page cache
+	//
+	public GradeRepository.SaveResult saveGrades(List<GradeChange> changes) throws SQLException{
+
+		GradeRepository.SaveResult result = grades.saveGrades(changes);
+		summaries.refreshDirty();
+
+		return result;
+	}
+
+	public SectionReport loadReport(int classId) throws SQLException{
+		return summaries.loadSection(classId);
+	}
+
+	public int rebuildSummaries() throws SQLException{
+		return summaries.rebuildAll();
+	}
+
+	public List<String> checkSummaries() throws SQLException{
+		return summaries.checkConsistency();
+	}
+
+	public ReportCardSpooler.SpoolResult spoolReportCards(int classId, File directory, ReportCardSpooler.Progress progress)
+			throws IOException, SQLException{
+		return new ReportCardSpooler(grades, summaries).spoolSection(classId, directory, progress);
+	}
+
+	//Export the term's grade grids, every term's if term is null
+	//
+	public TermExporter.ExportResult exportTerm(String term, File directory, int fetchSize) throws IOException, SQLException{
+		return new TermExporter(pool, fetchSize).exportTerm(term, directory);
+	}
+}
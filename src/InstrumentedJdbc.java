@@ -0,0 +1,339 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.regex.Pattern;
+
+
+//Times every SQL statement run on a connection.  The pool wraps each
+//	connection it opens with wrap(), and the statements and result sets it
+//	hands out are wrapped in turn, so no data access code has to change.
+//
+//	Each statement's time is recorded in the MetricsRegistry timer
+//	sql.<shape>, where the shape is the SQL with its literals replaced by ?
+//	and placeholder lists collapsed, so every run of a statement lands in
+//	the same timer whatever its parameters.  A query's time runs from the
+//	execute call through every ResultSet.next() until the last row or the
+//	close, counting only time spent in the driver and not the caller's own
+//	work between rows.  Failed statements also count in sql.errors.
+//
+//	Each statement is also a gradebook.Sql Flight Recorder event with its
+//	shape and row count, see FlightRecording.
+//
+//	The wrappers are dynamic proxies; each JDBC call through them costs a
+//	reflective call on top of SQLite's own work.  Run with
+//	-Dgradebook.metrics.sql=false to hand out the driver's connections
+//	as they are.
+//
+public final class InstrumentedJdbc {
+
+	private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+	private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+	private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\?(?:\\s*,\\s*\\?)+");
+	private static final Pattern SPACE = Pattern.compile("\\s+");
+
+	private static final int MAX_SHAPE_LENGTH = 300;
+
+
+	private InstrumentedJdbc(){
+	}
+
+
+	public static boolean isEnabled(){
+		return !"false".equals(System.getProperty("gradebook.metrics.sql"));
+	}
+
+
+	//c with every statement run on it timed in registry
+	//
+	public static Connection wrap(Connection c, MetricsRegistry registry){
+		return (Connection)proxy(Connection.class, new ConnectionHandler(c, registry));
+	}
+
+
+	//The statement shape sql is timed under
+	//
+	public static String shape(String sql){
+
+		String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+		shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+		shape = PLACEHOLDER_LIST.matcher(shape).replaceAll("?, ...");
+		shape = SPACE.matcher(shape).replaceAll(" ").trim();
+
+		return shape.length() > MAX_SHAPE_LENGTH ? shape.substring(0, MAX_SHAPE_LENGTH) + "..." : shape;
+	}
+
+
+	private static Object proxy(Class<?> type, InvocationHandler handler){
+		return Proxy.newProxyInstance(InstrumentedJdbc.class.getClassLoader(), new Class<?>[]{type}, handler);
+	}
+
+
+	//Call method on target, throwing what the target threw rather than the
+	//	reflection wrapper around it
+	//
+	private static Object call(Object target, Method method, Object[] args) throws Throwable{
+
+		try{
+			return method.invoke(target, args);
+		}
+
+		catch(InvocationTargetException e){
+			throw e.getCause();
+		}
+	}
+
+
+	//Proxies compare, hash and print by identity so the pool and the
+	//	statement caches can key maps on them.  Returns null for any other method
+	//
+	private static Object identity(Object proxy, Object target, Method method, Object[] args){
+
+		String name = method.getName();
+
+		if(name.equals("equals") && method.getParameterCount() == 1){
+			return proxy == args[0];
+		}
+
+		if(name.equals("hashCode") && method.getParameterCount() == 0){
+			return System.identityHashCode(proxy);
+		}
+
+		if(name.equals("toString") && method.getParameterCount() == 0){
+			return "instrumented " + target;
+		}
+
+		return null;
+	}
+
+
+	private static class ConnectionHandler implements InvocationHandler{
+
+		private final Connection target;
+		private final MetricsRegistry registry;
+
+		ConnectionHandler(Connection connection, MetricsRegistry metricsRegistry){
+			target = connection;
+			registry = metricsRegistry;
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable{
+
+			Object own = identity(proxy, target, method, args);
+
+			if(own != null){
+				return own;
+			}
+
+			Object result = call(target, method, args);
+			String name = method.getName();
+
+			if(name.equals("prepareStatement")){
+				StatementHandler handler = new StatementHandler((Statement)result, (Connection)proxy, registry, shape((String)args[0]));
+				return proxy(PreparedStatement.class, handler);
+			}
+
+			if(name.equals("createStatement")){
+				return proxy(Statement.class, new StatementHandler((Statement)result, (Connection)proxy, registry, null));
+			}
+
+			return result;
+		}
+	}
+
+
+	//Times the execute methods.  A prepared statement has its shape from the
+	//	start, a plain statement takes it from the SQL passed to execute
+	//
+	private static class StatementHandler implements InvocationHandler{
+
+		private final Statement target;
+		private final Connection connection;
+		private final MetricsRegistry registry;
+		private final String preparedShape;
+
+		//Shape of the SQL added to a plain statement's batch
+		//
+		private String batchShape;
+
+		StatementHandler(Statement statement, Connection owner, MetricsRegistry metricsRegistry, String shape){
+			target = statement;
+			connection = owner;
+			registry = metricsRegistry;
+			preparedShape = shape;
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable{
+
+			Object own = identity(proxy, target, method, args);
+
+			if(own != null){
+				return own;
+			}
+
+			String name = method.getName();
+
+			if(name.equals("getConnection")){
+				return connection;
+			}
+
+			if(name.equals("addBatch") && args != null && args.length == 1 && batchShape == null){
+				batchShape = "batch: " + shape((String)args[0]);
+			}
+
+			if(!name.startsWith("execute")){
+				return call(target, method, args);
+			}
+
+			String shape = preparedShape;
+
+			if(shape == null){
+				shape = args != null && args.length > 0 && args[0] instanceof String ? shape((String)args[0]) : batchShape;
+			}
+
+			if(name.equals("executeBatch") || name.equals("executeLargeBatch")){
+				batchShape = null;
+			}
+
+			if(shape == null){
+				shape = "(unknown)";
+			}
+
+			MetricsRegistry.Timer timer = registry.timer("sql." + shape);
+			FlightRecording.SqlEvent event = new FlightRecording.SqlEvent();
+			event.begin();
+			long start = System.nanoTime();
+			Object result;
+
+			try{
+				result = call(target, method, args);
+			}
+
+			catch(Throwable e){
+				long elapsed = System.nanoTime() - start;
+				registry.counter("sql.errors").increment();
+				timer.record(elapsed);
+				event.finish(shape, -1, elapsed, true);
+				throw e;
+			}
+
+			long elapsed = System.nanoTime() - start;
+
+			if(result instanceof ResultSet){
+				return proxy(ResultSet.class, new ResultSetHandler((ResultSet)result, proxy, timer, event, shape, elapsed));
+			}
+
+			timer.record(elapsed);
+			event.finish(shape, rowsChanged(result), elapsed, false);
+			return result;
+		}
+	}
+
+
+	//The rows an executeUpdate or executeBatch changed, -1 for execute(),
+	//	which only says whether there is a result set
+	//
+	private static long rowsChanged(Object result){
+
+		if(result instanceof Number){
+			return ((Number)result).longValue();
+		}
+
+		long rows = -1;
+
+		if(result instanceof int[]){
+			rows = 0;
+
+			for(int count : (int[])result){
+				rows += Math.max(0, count);
+			}
+		}
+
+		if(result instanceof long[]){
+			rows = 0;
+
+			for(long count : (long[])result){
+				rows += Math.max(0, count);
+			}
+		}
+
+		return rows;
+	}
+
+
+	//Adds the time spent fetching rows to the query's execute time, and
+	//	records the total and the rows read once the rows run out or the
+	//	result set is closed
+	//
+	private static class ResultSetHandler implements InvocationHandler{
+
+		private final ResultSet target;
+		private final Object statement;
+		private final MetricsRegistry.Timer timer;
+		private final FlightRecording.SqlEvent event;
+		private final String shape;
+		private long nanos;
+		private long rows = 0;
+		private boolean recorded = false;
+
+		ResultSetHandler(ResultSet resultSet, Object owner, MetricsRegistry.Timer queryTimer, FlightRecording.SqlEvent queryEvent,
+				String queryShape, long executeNanos){
+			target = resultSet;
+			statement = owner;
+			timer = queryTimer;
+			event = queryEvent;
+			shape = queryShape;
+			nanos = executeNanos;
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable{
+
+			Object own = identity(proxy, target, method, args);
+
+			if(own != null){
+				return own;
+			}
+
+			String name = method.getName();
+
+			if(name.equals("getStatement")){
+				return statement;
+			}
+
+			if(name.equals("next")){
+				long start = System.nanoTime();
+				Object more = call(target, method, args);
+				nanos += System.nanoTime() - start;
+
+				if(Boolean.TRUE.equals(more)){
+					rows++;
+				}
+
+				else{
+					record();
+				}
+
+				return more;
+			}
+
+			if(name.equals("close")){
+				record();
+			}
+
+			return call(target, method, args);
+		}
+
+		private void record(){
+
+			if(!recorded){
+				recorded = true;
+				timer.record(nanos);
+				event.finish(shape, rows, nanos, false);
+			}
+		}
+	}
+}
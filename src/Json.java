@@ -0,0 +1,417 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+//Just enough JSON for the HTTP API, without pulling in a library: a
+//	streaming writer, and a parser that turns a document into Maps, Lists,
+//	Strings, Doubles, Booleans and nulls.
+//
+public final class Json {
+
+	private Json(){
+	}
+
+
+	//Parse a whole document.  Throws IllegalArgumentException if it is not
+	//	valid JSON
+	//
+	public static Object parse(String text){
+
+		Parser parser = new Parser(text);
+		Object value = parser.value();
+		parser.skipSpace();
+
+		if(parser.at < text.length()){
+			throw parser.error("unexpected text after the document");
+		}
+
+		return value;
+	}
+
+
+	//Parse a document that must be an object
+	//
+	@SuppressWarnings("unchecked")
+	public static Map<String, Object> parseObject(String text){
+
+		Object value = parse(text);
+
+		if(!(value instanceof Map)){
+			throw new IllegalArgumentException("Expected a JSON object");
+		}
+
+		return (Map<String, Object>)value;
+	}
+
+
+	//Writes one JSON document into a StringBuilder.  Commas between members
+	//	and elements are put in automatically
+	//
+	public static class Writer{
+
+		private final StringBuilder out = new StringBuilder(256);
+
+		//One entry per open object or array: has it had a member yet
+		//
+		private boolean[] started = new boolean[16];
+		private int depth = 0;
+		private boolean afterName = false;
+
+		public Writer beginObject(){
+			separate();
+			out.append('{');
+			open();
+			return this;
+		}
+
+		public Writer endObject(){
+			depth--;
+			out.append('}');
+			return this;
+		}
+
+		public Writer beginArray(){
+			separate();
+			out.append('[');
+			open();
+			return this;
+		}
+
+		public Writer endArray(){
+			depth--;
+			out.append(']');
+			return this;
+		}
+
+		public Writer name(String name){
+			separate();
+			quote(name);
+			out.append(':');
+			afterName = true;
+			return this;
+		}
+
+		public Writer value(String value){
+			separate();
+
+			if(value == null){
+				out.append("null");
+			}
+
+			else{
+				quote(value);
+			}
+
+			return this;
+		}
+
+		public Writer value(long value){
+			separate();
+			out.append(value);
+			return this;
+		}
+
+		//NaN and infinities have no JSON form and are written as null
+		//
+		public Writer value(double value){
+			separate();
+
+			if(Double.isNaN(value) || Double.isInfinite(value)){
+				out.append("null");
+			}
+
+			else if(value == (long)value){
+				out.append((long)value);
+			}
+
+			else{
+				out.append(value);
+			}
+
+			return this;
+		}
+
+		public Writer value(boolean value){
+			separate();
+			out.append(value);
+			return this;
+		}
+
+		public Writer nullValue(){
+			separate();
+			out.append("null");
+			return this;
+		}
+
+		public String toString(){
+			return out.toString();
+		}
+
+		private void open(){
+
+			if(depth == started.length){
+				started = Arrays.copyOf(started, depth * 2);
+			}
+
+			started[depth++] = false;
+		}
+
+		private void separate(){
+
+			if(afterName){
+				afterName = false;
+				return;
+			}
+
+			if(depth > 0){
+				if(started[depth - 1]){
+					out.append(',');
+				}
+
+				started[depth - 1] = true;
+			}
+		}
+
+		private void quote(String text){
+
+			out.append('"');
+
+			for(int i = 0; i < text.length(); i++){
+				char ch = text.charAt(i);
+
+				switch(ch){
+					case '"': out.append("\\\""); break;
+					case '\\': out.append("\\\\"); break;
+					case '\n': out.append("\\n"); break;
+					case '\r': out.append("\\r"); break;
+					case '\t': out.append("\\t"); break;
+
+					default:
+						if(ch < 0x20){
+							out.append(String.format("\\u%04x", (int)ch));
+						}
+
+						else{
+							out.append(ch);
+						}
+				}
+			}
+
+			out.append('"');
+		}
+	}
+
+
+	//Recursive descent over the document text
+	//
+	private static class Parser{
+
+		private final String text;
+		private int at = 0;
+
+		Parser(String document){
+			text = document;
+		}
+
+		Object value(){
+
+			skipSpace();
+
+			if(at >= text.length()){
+				throw error("unexpected end of the document");
+			}
+
+			char ch = text.charAt(at);
+
+			switch(ch){
+				case '{': return object();
+				case '[': return array();
+				case '"': return string();
+				case 't': return literal("true", Boolean.TRUE);
+				case 'f': return literal("false", Boolean.FALSE);
+				case 'n': return literal("null", null);
+
+				default:
+					if(ch == '-' || (ch >= '0' && ch <= '9')){
+						return number();
+					}
+
+					throw error("unexpected character '" + ch + "'");
+			}
+		}
+
+		private Map<String, Object> object(){
+
+			Map<String, Object> members = new LinkedHashMap<String, Object>();
+			at++;
+			skipSpace();
+
+			if(peek() == '}'){
+				at++;
+				return members;
+			}
+
+			while(true){
+				skipSpace();
+
+				if(peek() != '"'){
+					throw error("expected a member name");
+				}
+
+				String name = string();
+				skipSpace();
+				expect(':');
+				members.put(name, value());
+				skipSpace();
+
+				if(peek() == ','){
+					at++;
+				}
+
+				else{
+					expect('}');
+					return members;
+				}
+			}
+		}
+
+		private List<Object> array(){
+
+			List<Object> elements = new ArrayList<Object>();
+			at++;
+			skipSpace();
+
+			if(peek() == ']'){
+				at++;
+				return elements;
+			}
+
+			while(true){
+				elements.add(value());
+				skipSpace();
+
+				if(peek() == ','){
+					at++;
+				}
+
+				else{
+					expect(']');
+					return elements;
+				}
+			}
+		}
+
+		private String string(){
+
+			StringBuilder value = new StringBuilder();
+			at++;
+
+			while(true){
+				if(at >= text.length()){
+					throw error("unterminated string");
+				}
+
+				char ch = text.charAt(at++);
+
+				if(ch == '"'){
+					return value.toString();
+				}
+
+				if(ch != '\\'){
+					value.append(ch);
+					continue;
+				}
+
+				if(at >= text.length()){
+					throw error("unterminated string");
+				}
+
+				char escape = text.charAt(at++);
+
+				switch(escape){
+					case '"': value.append('"'); break;
+					case '\\': value.append('\\'); break;
+					case '/': value.append('/'); break;
+					case 'b': value.append('\b'); break;
+					case 'f': value.append('\f'); break;
+					case 'n': value.append('\n'); break;
+					case 'r': value.append('\r'); break;
+					case 't': value.append('\t'); break;
+
+					case 'u':
+						if(at + 4 > text.length()){
+							throw error("bad unicode escape");
+						}
+
+						try{
+							value.append((char)Integer.parseInt(text.substring(at, at + 4), 16));
+						}
+
+						catch(NumberFormatException e){
+							throw error("bad unicode escape");
+						}
+
+						at += 4;
+						break;
+
+					default:
+						throw error("bad escape '\\" + escape + "'");
+				}
+			}
+		}
+
+		private Double number(){
+
+			int start = at;
+
+			while(at < text.length() && "+-0123456789.eE".indexOf(text.charAt(at)) >= 0){
+				at++;
+			}
+
+			try{
+				return Double.valueOf(text.substring(start, at));
+			}
+
+			catch(NumberFormatException e){
+				throw error("bad number");
+			}
+		}
+
+		private Object literal(String word, Object value){
+
+			if(!text.startsWith(word, at)){
+				throw error("unexpected character '" + text.charAt(at) + "'");
+			}
+
+			at += word.length();
+
+			return value;
+		}
+
+		private char peek(){
+			return at < text.length() ? text.charAt(at) : '\0';
+		}
+
+		private void expect(char ch){
+
+			if(peek() != ch){
+				throw error("expected '" + ch + "'");
+			}
+
+			at++;
+		}
+
+		void skipSpace(){
+			while(at < text.length() && Character.isWhitespace(text.charAt(at))){
+				at++;
+			}
+		}
+
+		IllegalArgumentException error(String problem){
+			return new IllegalArgumentException("Bad JSON at character " + at + ": " + problem);
+		}
+	}
+}
@@ -0,0 +1,115 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+//Histogram of durations with bounded relative error, in the style of
+//	HdrHistogram.  Durations are counted in microseconds: every value below
+//	16 has a bucket of its own, and above that each power of two is split
+//	into 16 equal buckets, so a bucket is never wider than a sixteenth of
+//	the values in it and a percentile read back is within about 6% of the
+//	true value.  Values from 1 microsecond to about 19 hours fit in 544
+//	buckets.  Recording is lock free and safe from any thread.
+//
+public class LatencyHistogram {
+
+	private static final int SUB_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int MAX_EXPONENT = 36;
+	private static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BITS + 1) * SUB_BUCKETS;
+	private static final long MAX_MICROS = (1L << (MAX_EXPONENT + 1)) - 1;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+
+	public void record(long nanos){
+		counts.incrementAndGet(index(Math.min(MAX_MICROS, Math.max(0, nanos / 1000))));
+	}
+
+
+	public void reset(){
+
+		for(int i = 0; i < BUCKETS; i++){
+			counts.set(i, 0);
+		}
+	}
+
+
+	//The counts as they are now, for reading several percentiles that agree
+	//	with each other
+	//
+	public long[] snapshot(){
+
+		long[] copy = new long[BUCKETS];
+
+		for(int i = 0; i < BUCKETS; i++){
+			copy[i] = counts.get(i);
+		}
+
+		return copy;
+	}
+
+
+	//The duration in milliseconds that percentile percent of the recorded
+	//	values are at or below, 0 if nothing has been recorded
+	//
+	public static double percentileMillis(long[] snapshot, double percent){
+
+		long total = 0;
+
+		for(long count : snapshot){
+			total += count;
+		}
+
+		if(total == 0){
+			return 0;
+		}
+
+		long rank = Math.max(1, (long)Math.ceil(percent / 100.0 * total));
+		long seen = 0;
+
+		for(int i = 0; i < snapshot.length; i++){
+			seen += snapshot[i];
+
+			if(seen >= rank){
+				return (lowerBound(i) + upperBound(i)) / 2.0 / 1000.0;
+			}
+		}
+
+		return upperBound(snapshot.length - 1) / 1000.0;
+	}
+
+
+	public double getPercentileMillis(double percent){
+		return percentileMillis(snapshot(), percent);
+	}
+
+
+	private static int index(long micros){
+
+		if(micros < SUB_BUCKETS){
+			return (int)micros;
+		}
+
+		int exponent = 63 - Long.numberOfLeadingZeros(micros);
+		int sub = (int)(micros >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+
+		return SUB_BUCKETS + (exponent - SUB_BITS) * SUB_BUCKETS + sub;
+	}
+
+
+	private static long lowerBound(int index){
+
+		if(index < SUB_BUCKETS){
+			return index;
+		}
+
+		int exponent = (index - SUB_BUCKETS) / SUB_BUCKETS + SUB_BITS;
+		int sub = (index - SUB_BUCKETS) % SUB_BUCKETS;
+
+		return (long)(SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+	}
+
+
+	private static long upperBound(int index){
+		return index + 1 < BUCKETS ? lowerBound(index + 1) - 1 : MAX_MICROS;
+	}
+}
@@ -0,0 +1,86 @@
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+
+//Maps a percentage to a letter grade.  The scale is held as two parallel
+//	arrays sorted by cutoff, highest first, so a lookup is a short scan
+//	over a handful of floats.
+//
+public class LetterScale {
+
+	private static final String LETTERS =
+			"SELECT letter, min_percent FROM letter";
+
+	private final float[] cutoffs;
+	private final String[] letters;
+
+
+	//Letters and the minimum percentage for each, in any order
+	//
+	public LetterScale(List<String> letterNames, List<Float> minimums){
+
+		int n = letterNames.size();
+		List<Integer> order = new ArrayList<Integer>();
+
+		for(int i = 0; i < n; i++){
+			int position = 0;
+
+			while(position < order.size() && minimums.get(order.get(position)) >= minimums.get(i)){
+				position++;
+			}
+
+			order.add(position, i);
+		}
+
+		cutoffs = new float[n];
+		letters = new String[n];
+
+		for(int i = 0; i < n; i++){
+			cutoffs[i] = minimums.get(order.get(i));
+			letters[i] = letterNames.get(order.get(i));
+		}
+	}
+
+
+	//The scale in the letter table, read on a connection the caller has
+	//	borrowed from pool
+	//
+	static LetterScale load(ConnectionPool pool, Connection c) throws SQLException{
+
+		List<String> letters = new ArrayList<String>();
+		List<Float> minimums = new ArrayList<Float>();
+
+		ResultSet rs = pool.prepare(c, LETTERS).executeQuery();
+
+		try{
+			while(rs.next()){
+				letters.add(rs.getString("letter"));
+				minimums.add(rs.getFloat("min_percent"));
+			}
+		}
+
+		finally{
+			rs.close();
+		}
+
+		return new LetterScale(letters, minimums);
+	}
+
+
+	//Letter for a percentage between 0 and 100.  Anything below the lowest
+	//	cutoff gets the lowest letter
+	//
+	public String letterFor(float percentage){
+
+		for(int i = 0; i < cutoffs.length; i++){
+			if(percentage >= cutoffs[i]){
+				return letters[i];
+			}
+		}
+
+		return letters.length == 0 ? "" : letters[letters.length - 1];
+	}
+}
@@ -1,9 +1,11 @@
 import java.awt.BorderLayout;
 import java.awt.GridLayout;
 import java.awt.event.ActionListener;
+import java.util.List;
 import javax.swing.JButton;
 import javax.swing.JLabel;
 import javax.swing.JList;
+import javax.swing.ListModel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTextField;
@@ -23,6 +25,11 @@ public class ManageClassesFrame extends JPanel{
 					btnDeleteStudent;
 	
 	private JScrollPane classList, classRoster;
+	
+	private JList<CourseSection> classJList;
+	private JList<Student> rosterJList;
+	
+	private JLabel lblMaxStudents;
 
 	public ManageClassesFrame(){
 		//Create each of the panels
@@ -46,7 +53,7 @@ public class ManageClassesFrame extends JPanel{
 		JLabel lblClassNumber = new JLabel("Class Number");
 		JLabel lblCourseNumber = new JLabel("Course Number");
 		JLabel lblMeetingDay = new JLabel("Meeting Day");
-		JLabel lblMaxStudents = new JLabel("Max Students");
+		lblMaxStudents = new JLabel("Max Students");
 				
 				
 		//Create each of the JText fields for different
@@ -84,17 +91,14 @@ public class ManageClassesFrame extends JPanel{
 		btnDeleteStudent = new JButton("Delete Student");
 				
 		//TEMPORARY CODE*******************
-		String[] listOfClasses = {"Class 1", "Class 2", "Class 3", "Class 4", "Class 5", "Class 6"};
-		String[] listOfStudents = {"Student 1", "Student 2", "Student 3", "Student 4", "Student 5"};
-		
 		classList = new JScrollPane();
 		classRoster = new JScrollPane();
 				
-		JList<String> list = new JList<String>(listOfClasses);
-		JList<String> list2 = new JList<String>(listOfStudents);
+		classJList = new JList<CourseSection>();
+		rosterJList = new JList<Student>();
 		
-		classList.setViewportView(list);
-		classRoster.setViewportView(list2);		
+		classList.setViewportView(classJList);
+		classRoster.setViewportView(rosterJList);		
 
 		//Initialize the text fields with placeholder info
 		//
@@ -188,4 +192,32 @@ public class ManageClassesFrame extends JPanel{
 		btnCancelToHome.addActionListener(hal);
 	}
 	
+	public void setClassList(ListModel<CourseSection> classes){
+		classJList.setModel(classes);
+	}
+	
+	public CourseSection getSelectedClass(){
+		return classJList.getSelectedValue();
+	}
+	
+	public void setRosterList(ListModel<Student> roster){
+		rosterJList.setModel(roster);
+	}
+	
+	public List<Student> getSelectedRosterStudents(){
+		return rosterJList.getSelectedValuesList();
+	}
+	
+	
+	//Show the section's details, with how many of its seats are taken
+	//
+	public void displayClassInfo(CourseSection section){
+		
+		classID.setText(section.getID() + "");
+		txtCourseNum.setText(section.getCourseNumber());
+		txtMeetingDay.setText(section.getMeetingDay());
+		txtMaxStudents.setText(section.getMaxStudents() + "");
+		lblMaxStudents.setText("Max Students (" + section.getEnrollment() + " enrolled)");
+	}
+	
 }
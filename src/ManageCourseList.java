@@ -4,6 +4,7 @@ import java.awt.event.ActionListener;
 import javax.swing.JButton;
 import javax.swing.JLabel;
 import javax.swing.JList;
+import javax.swing.ListModel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTextField;
@@ -24,6 +25,8 @@ public class ManageCourseList extends JPanel{
 
 	private JScrollPane courseList, assignmentList;
 	
+	private JList<Course> courseJList;
+	
 
 
 	public ManageCourseList(){
@@ -91,16 +94,15 @@ public class ManageCourseList extends JPanel{
 
 						
 		//TEMPORARY CODE*******************
-		String[] listOfCourses = {"Course 1", "Course 2", "Course 3", "Course 4", "Course 5", "Course 6"};
 		String[] listOfAssignments = {"Assignment1", "Assignment 2", "Assignment 3"};
 				
 		courseList = new JScrollPane();
 		assignmentList = new JScrollPane();
 						
-		JList<String> list = new JList<String>(listOfCourses);
+		courseJList = new JList<Course>();
 		JList<String> list2 = new JList<String>(listOfAssignments);
 				
-		courseList.setViewportView(list);
+		courseList.setViewportView(courseJList);
 		assignmentList.setViewportView(list2);
 
 		//Initialize the text fields with placeholder info
@@ -196,4 +198,12 @@ public class ManageCourseList extends JPanel{
 	public void homeButtonActionListener(ActionListener hal){
 		btnCancelToHome.addActionListener(hal);
 	}
+	
+	public void setCourseList(ListModel<Course> courses){
+		courseJList.setModel(courses);
+	}
+	
+	public Course getSelectedCourse(){
+		return courseJList.getSelectedValue();
+	}
 }
@@ -3,15 +3,16 @@ import javax.swing.JPanel;
 import javax.swing.border.EmptyBorder;
 import java.awt.GridLayout;
 import javax.swing.JScrollPane;
-import javax.swing.DefaultListModel;
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
 
 import java.awt.event.ActionListener;
 import javax.swing.JList;
+import javax.swing.ListModel;
 import javax.swing.JLabel;
 import javax.swing.JTextField;
 import javax.swing.ListSelectionModel;
+import javax.swing.event.DocumentListener;
 
 public class ManageStudentsFrame extends JPanel {
 
@@ -21,13 +22,13 @@ public class ManageStudentsFrame extends JPanel {
 					homeButtonPanel;
 	
 	private JTextField 	txtFirstname, txtLastname, txtId, 
-						txtCity, txtState, txtZip, txtAddress, txtDob;
+						txtCity, txtState, txtZip, txtAddress, txtDob, txtSearch;
 	
 	private JList<Student> list;
 	
 	private JCheckBox includeInactive;
 	
-	private JButton btnLoadStudentInfo, btnSubmitAboveChanges, btnCancelToHome, btnNewStudent, btnDeleteStudent;
+	private JButton btnLoadStudentInfo, btnSubmitAboveChanges, btnCancelToHome, btnNewStudent, btnDeleteStudent, btnImportStudents;
 
 
 	public ManageStudentsFrame() {
@@ -69,6 +70,9 @@ public class ManageStudentsFrame extends JPanel {
 		txtZip = new JTextField();
 		txtDob = new JTextField();
 		
+		txtSearch = new JTextField();
+		txtSearch.setToolTipText("Search by name, ID number, city or zip");
+		
 		includeInactive = new JCheckBox("Show Inactive");
 		includeInactive.setSelected(false);
 		
@@ -91,11 +95,17 @@ public class ManageStudentsFrame extends JPanel {
 		btnCancelToHome = new JButton("Home Screen");
 		btnNewStudent = new JButton("Add New Student");
 		btnDeleteStudent = new JButton("Delete Selected Student");
+		btnImportStudents = new JButton("Import CSV");
 		
 		JScrollPane scrollPane_1 = new JScrollPane();
 		
 		list = new JList<Student>();
 		list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+		
+		//Give the list a fixed row size so it never has to measure every
+		//	row, only the rows on screen are ever asked for
+		//
+		list.setPrototypeCellValue(new Student(0, "Firstname", "Lastname-Lastname"));
 		scrollPane_1.setViewportView(list);
 		
 
@@ -128,10 +138,16 @@ public class ManageStudentsFrame extends JPanel {
 		
 		//Populate each of the panels
 		//
-		leftContentPanel.add(scrollPane_1);
+		JPanel searchPanel = new JPanel(new BorderLayout(5, 0));
+		searchPanel.add(new JLabel("Search"), BorderLayout.WEST);
+		searchPanel.add(txtSearch, BorderLayout.CENTER);
+		
+		leftContentPanel.add(searchPanel, BorderLayout.NORTH);
+		leftContentPanel.add(scrollPane_1, BorderLayout.CENTER);
 		
 		leftButtonPanel.add(includeInactive);
 		leftButtonPanel.add(btnNewStudent);
+		leftButtonPanel.add(btnImportStudents);
 		leftButtonPanel.add(btnLoadStudentInfo);
 		
 		
@@ -195,7 +211,11 @@ public class ManageStudentsFrame extends JPanel {
 		btnDeleteStudent.addActionListener(dsal);
 	}
 	
-	public void setStudentList(DefaultListModel<Student> students){
+	public void importActionListener(ActionListener ial){
+		btnImportStudents.addActionListener(ial);
+	}
+	
+	public void setStudentList(ListModel<Student> students){
 		list.setModel(students);
 		
 	}
@@ -204,10 +224,33 @@ public class ManageStudentsFrame extends JPanel {
 		includeInactive.addActionListener(ial);
 	}
 	
+	public void searchListener(DocumentListener sdl){
+		txtSearch.getDocument().addDocumentListener(sdl);
+	}
+	
+	public String getSearchText(){
+		return txtSearch.getText().trim();
+	}
+	
 	public int getSelectedStudentIndex(){
 		return list.getSelectedIndex();
 	}
 	
+	public Student getSelectedStudent(){
+		return list.getSelectedValue();
+	}
+	
+	
+	//Select the student at the given row and scroll it into view
+	//
+	public void selectStudentIndex(int index){
+		
+		if(index >= 0){
+			list.setSelectedIndex(index);
+			list.ensureIndexIsVisible(index);
+		}
+	}
+	
 	public void displayStudentInfo(Student selected){
 		
 		txtId.setText(selected.getID() + "");
@@ -0,0 +1,479 @@
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+//Counters, timers and gauges for everything the gradebook does, so "the
+//	app is slow" comes with numbers.  Every button's ActionListener is
+//	timed (action.*), every background task from start to finish (task.*),
+//	and every SQL statement by its shape (sql.*, see InstrumentedJdbc).
+//	The Diagnostics card shows the registry live, and startDumping() writes
+//	it to a file every so often.
+//
+//	Metrics are created the first time they are asked for and live as long
+//	as the registry.  Everything here is safe to use from any thread.
+//
+public class MetricsRegistry {
+
+	//At most this many sql.* timers, so statements built with varying text
+	//	can not grow the registry without bound.  Later ones all share
+	//	OVERFLOW_TIMER.  Other timers are not capped, so their names must come
+	//	from a fixed set: GradebookHttpServer times unknown routes as
+	//	http.unmatched, and tasks are timed by their name, not their
+	//	description
+	//
+	private static final int MAX_SQL_TIMERS = 500;
+	private static final String SQL_PREFIX = "sql.";
+	private static final String OVERFLOW_TIMER = "sql.(other statements)";
+
+	//The dump file starts over, keeping the previous one as .old, past this size
+	//
+	private static final long MAX_DUMP_BYTES = 5 * 1024 * 1024;
+
+	private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+	private static MetricsRegistry instance;
+
+	private final Map<String, Counter> counters = new ConcurrentHashMap<String, Counter>();
+	private final Map<String, Timer> timers = new ConcurrentHashMap<String, Timer>();
+	private final Map<String, Gauge> gauges = new ConcurrentHashMap<String, Gauge>();
+	private final AtomicInteger sqlTimers = new AtomicInteger();
+
+	private final long created = System.nanoTime();
+	private ScheduledExecutorService dumper;
+	private File dumpFile;
+	private boolean dumpOnExit = false;
+
+
+	//A value read when the metrics are shown or dumped, such as the number
+	//	of idle connections
+	//
+	public interface Gauge{
+		double getValue();
+	}
+
+
+	//Get the registry shared by the whole application
+	//
+	public static synchronized MetricsRegistry getInstance(){
+
+		if(instance == null){
+			instance = new MetricsRegistry();
+		}
+
+		return instance;
+	}
+
+
+	public Counter counter(String name){
+
+		Counter counter = counters.get(name);
+
+		if(counter == null){
+			Counter created = new Counter(name);
+			counter = counters.putIfAbsent(name, created);
+
+			if(counter == null){
+				counter = created;
+			}
+		}
+
+		return counter;
+	}
+
+
+	public Timer timer(String name){
+
+		Timer timer = timers.get(name);
+
+		if(timer == null){
+			boolean sql = name.startsWith(SQL_PREFIX) && !name.equals(OVERFLOW_TIMER);
+
+			if(sql && sqlTimers.get() >= MAX_SQL_TIMERS){
+				return timer(OVERFLOW_TIMER);
+			}
+
+			Timer created = new Timer(name);
+			timer = timers.putIfAbsent(name, created);
+
+			if(timer == null){
+				timer = created;
+
+				if(sql){
+					sqlTimers.incrementAndGet();
+				}
+			}
+		}
+
+		return timer;
+	}
+
+
+	//Register a gauge, replacing any gauge of the same name
+	//
+	public void gauge(String name, Gauge gauge){
+		gauges.put(name, gauge);
+	}
+
+
+	//Wrap listener so every actionPerformed is timed as action.<name>, and
+	//	counted in action.<name>.errors if it throws
+	//
+	public ActionListener instrument(final String name, final ActionListener listener){
+
+		final Timer timer = timer("action." + name);
+		final Counter errors = counter("action." + name + ".errors");
+
+		return new ActionListener(){
+			public void actionPerformed(ActionEvent e){
+
+				long start = System.nanoTime();
+
+				try{
+					listener.actionPerformed(e);
+				}
+
+				catch(RuntimeException ex){
+					errors.increment();
+					throw ex;
+				}
+
+				finally{
+					timer.record(System.nanoTime() - start);
+				}
+			}
+		};
+	}
+
+
+	//Zero every counter and timer.  Gauges are read live and are left alone
+	//
+	public void reset(){
+
+		for(Counter counter : counters.values()){
+			counter.reset();
+		}
+
+		for(Timer timer : timers.values()){
+			timer.reset();
+		}
+	}
+
+
+	//The timers sorted by name
+	//
+	public List<Timer> getTimers(){
+
+		List<Timer> list = new ArrayList<Timer>(timers.values());
+		Collections.sort(list);
+
+		return list;
+	}
+
+
+	public List<Counter> getCounters(){
+
+		List<Counter> list = new ArrayList<Counter>(counters.values());
+		Collections.sort(list);
+
+		return list;
+	}
+
+
+	//The gauge names sorted
+	//
+	public List<String> getGaugeNames(){
+
+		List<String> names = new ArrayList<String>(gauges.keySet());
+		Collections.sort(names);
+
+		return names;
+	}
+
+
+	//The gauge's current value, NaN if there is no such gauge or reading it failed
+	//
+	public double readGauge(String name){
+
+		Gauge gauge = gauges.get(name);
+
+		if(gauge == null){
+			return Double.NaN;
+		}
+
+		try{
+			return gauge.getValue();
+		}
+
+		catch(RuntimeException e){
+			return Double.NaN;
+		}
+	}
+
+
+	//Append a snapshot of every metric to file every periodSeconds, and
+	//	once more when the JVM exits.  Calling it again replaces the schedule
+	//
+	public synchronized void startDumping(final File file, long periodSeconds){
+
+		stopDumping();
+
+		dumper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory(){
+			public Thread newThread(Runnable r){
+				Thread t = new Thread(r, "metrics-dump");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+
+		dumper.scheduleAtFixedRate(new Runnable(){
+			public void run(){
+				dumpQuietly(file);
+			}
+		}, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+
+		dumpFile = file;
+
+		if(!dumpOnExit){
+			dumpOnExit = true;
+
+			Runtime.getRuntime().addShutdownHook(new Thread(new Runnable(){
+				public void run(){
+					File last = getDumpFile();
+
+					if(last != null){
+						dumpQuietly(last);
+					}
+				}
+			}));
+		}
+	}
+
+
+	public synchronized void stopDumping(){
+
+		if(dumper != null){
+			dumper.shutdownNow();
+			dumper = null;
+		}
+
+		dumpFile = null;
+	}
+
+
+	//The file being dumped to, null if the metrics are not being dumped
+	//
+	public synchronized File getDumpFile(){
+		return dumpFile;
+	}
+
+
+	//Append a snapshot of every metric to file
+	//
+	public synchronized void dump(File file) throws IOException{
+
+		if(file.length() > MAX_DUMP_BYTES){
+			File old = new File(file.getPath() + ".old");
+			old.delete();
+			file.renameTo(old);
+		}
+
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+
+		try{
+			out.print(toString());
+			out.println();
+		}
+
+		finally{
+			out.close();
+		}
+	}
+
+
+	//Every metric as text, one per line
+	//
+	public String toString(){
+
+		StringBuilder text = new StringBuilder();
+
+		text.append(String.format("# %s, up %.0f s%n", LocalDateTime.now().format(TIMESTAMP),
+				(System.nanoTime() - created) / 1000000000.0));
+
+		for(Timer timer : getTimers()){
+			if(timer.getCount() > 0){
+				text.append(timer).append(System.lineSeparator());
+			}
+		}
+
+		for(Counter counter : getCounters()){
+			if(counter.get() > 0){
+				text.append(counter).append(System.lineSeparator());
+			}
+		}
+
+		for(String name : getGaugeNames()){
+			text.append(String.format("%s = %.3f%n", name, readGauge(name)));
+		}
+
+		return text.toString();
+	}
+
+
+	private void dumpQuietly(File file){
+
+		try{
+			dump(file);
+		}
+
+		catch(IOException e){
+			System.err.println(e);
+		}
+	}
+
+
+	//A count of something that happened
+	//
+	public static class Counter implements Comparable<Counter>{
+
+		private final String name;
+		private final AtomicLong count = new AtomicLong();
+
+		private Counter(String counterName){
+			name = counterName;
+		}
+
+		public void increment(){
+			count.incrementAndGet();
+		}
+
+		public void add(long amount){
+			count.addAndGet(amount);
+		}
+
+		public long get(){
+			return count.get();
+		}
+
+		public String getName(){
+			return name;
+		}
+
+		private void reset(){
+			count.set(0);
+		}
+
+		public int compareTo(Counter other){
+			return name.compareTo(other.name);
+		}
+
+		public String toString(){
+			return name + " = " + count.get();
+		}
+	}
+
+
+	//How often something took how long, with a latency histogram for the
+	//	percentiles
+	//
+	public static class Timer implements Comparable<Timer>{
+
+		private final String name;
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong totalNanos = new AtomicLong();
+		private final AtomicLong maxNanos = new AtomicLong();
+		private final LatencyHistogram histogram = new LatencyHistogram();
+
+		private Timer(String timerName){
+			name = timerName;
+		}
+
+		public void record(long nanos){
+
+			count.incrementAndGet();
+			totalNanos.addAndGet(nanos);
+			histogram.record(nanos);
+
+			long max;
+			while(nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)){
+				//another thread raised the max first, try again
+			}
+		}
+
+		public String getName(){
+			return name;
+		}
+
+		public long getCount(){
+			return count.get();
+		}
+
+		public double getTotalMillis(){
+			return totalNanos.get() / 1000000.0;
+		}
+
+		public double getMeanMillis(){
+
+			long n = count.get();
+
+			return n == 0 ? 0 : totalNanos.get() / (double)n / 1000000.0;
+		}
+
+		public double getMaxMillis(){
+			return maxNanos.get() / 1000000.0;
+		}
+
+		//The 50th, 95th and 99th percentiles in milliseconds, read together.
+		//	A histogram bucket can reach past the slowest value in it, so
+		//	they are capped at the max
+		//
+		public double[] getPercentilesMillis(){
+
+			long[] snapshot = histogram.snapshot();
+			double max = getMaxMillis();
+
+			return new double[]{
+				Math.min(max, LatencyHistogram.percentileMillis(snapshot, 50)),
+				Math.min(max, LatencyHistogram.percentileMillis(snapshot, 95)),
+				Math.min(max, LatencyHistogram.percentileMillis(snapshot, 99))
+			};
+		}
+
+		private void reset(){
+			count.set(0);
+			totalNanos.set(0);
+			maxNanos.set(0);
+			histogram.reset();
+		}
+
+		public int compareTo(Timer other){
+			return name.compareTo(other.name);
+		}
+
+		public String toString(){
+
+			double[] p = getPercentilesMillis();
+
+			return String.format("%s: count=%d mean=%.3fms p50=%.3fms p95=%.3fms p99=%.3fms max=%.3fms total=%.1fms",
+					name, getCount(), getMeanMillis(), p[0], p[1], p[2], getMaxMillis(), getTotalMillis());
+		}
+	}
+}
@@ -0,0 +1,280 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import javax.swing.AbstractListModel;
+import javax.swing.SwingUtilities;
+
+
+//List model for very large rosters.  Only the row count is loaded up front,
+//	rows are fetched a page at a time with keyset pagination when the JList
+//	asks for them, and at most MAX_PAGES pages are kept in memory.  Rows that
+//	have not arrived yet show as a "Loading..." placeholder.  When a page is
+//	loaded its neighbours are prefetched so scrolling does not stall.
+//
+//	Like every Swing model this must be used from the EDT.  Page queries run
+//	on a single background thread and hand their rows back with invokeLater.
+//
+public class PagedStudentListModel extends AbstractListModel<Student> {
+
+	private static final long serialVersionUID = 1L;
+
+	static final int PAGE_SIZE = 100;
+	private static final int MAX_PAGES = 20;
+
+	//Placeholder row shown until the page holding it is loaded
+	//
+	private static final Student LOADING = new Student(-1, "", ""){
+		public String toString(){
+			return "Loading...";
+		}
+	};
+
+	private static ExecutorService fetcher;
+
+	private final GradebookService service;
+	private final boolean includeInactive;
+
+	private int size = 0;
+
+	//Loaded pages, least recently used first
+	//
+	private final LinkedHashMap<Integer, List<Student>> pages;
+
+	//First and last row of every page seen so far.  These are what keyset
+	//	pagination seeks from, and are kept after the page itself is evicted
+	//
+	private final Map<Integer, Student> firstKeys = new HashMap<Integer, Student>();
+	private final Map<Integer, Student> lastKeys = new HashMap<Integer, Student>();
+
+	private final Set<Integer> pending = new HashSet<Integer>();
+
+	//Bumped by refresh() so pages fetched before it are thrown away
+	//
+	private int generation = 0;
+
+
+	public PagedStudentListModel(GradebookService gradebookService, boolean inactive){
+
+		service = gradebookService;
+		includeInactive = inactive;
+
+		pages = new LinkedHashMap<Integer, List<Student>>(MAX_PAGES, 0.75f, true){
+			private static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry(Map.Entry<Integer, List<Student>> eldest){
+				return size() > MAX_PAGES;
+			}
+		};
+	}
+
+
+	public int getSize(){
+		return size;
+	}
+
+
+	//Row at index, or the loading placeholder if its page is not in memory yet
+	//
+	public Student getElementAt(int index){
+
+		int page = index / PAGE_SIZE;
+		List<Student> rows = pages.get(page);
+
+		if(rows == null){
+			request(page, true);
+			return LOADING;
+		}
+
+		int offset = index % PAGE_SIZE;
+
+		return offset < rows.size() ? rows.get(offset) : LOADING;
+	}
+
+
+	//Is the row a placeholder rather than a real student
+	//
+	public static boolean isPlaceholder(Student s){
+		return s == LOADING;
+	}
+
+
+	public boolean includesInactive(){
+		return includeInactive;
+	}
+
+
+	//Set the row count for a freshly opened roster.  The count is queried
+	//	by the caller off the EDT, rows are loaded as they are displayed
+	//
+	public void open(int rowCount){
+
+		int oldSize = size;
+
+		clear();
+		size = rowCount;
+
+		if(oldSize > 0){
+			fireIntervalRemoved(this, 0, oldSize - 1);
+		}
+
+		if(size > 0){
+			fireIntervalAdded(this, 0, size - 1);
+		}
+	}
+
+
+	//Forget every loaded page and re-count the roster, used after a student
+	//	is added, edited or deleted
+	//
+	public void refresh(){
+
+		final int expected = ++generation;
+
+		executor().execute(new Runnable(){
+			public void run(){
+				try{
+					final int rowCount = service.countStudents(includeInactive);
+
+					SwingUtilities.invokeLater(new Runnable(){
+						public void run(){
+							if(expected == generation){
+								open(rowCount);
+							}
+						}
+					});
+				}
+
+				catch(Exception e){
+					System.err.println(e);
+				}
+			}
+		});
+	}
+
+
+	private void clear(){
+
+		generation++;
+		pages.clear();
+		firstKeys.clear();
+		lastKeys.clear();
+		pending.clear();
+	}
+
+
+	//Queue a page fetch unless it is already loaded or on its way.  Pages
+	//	the list is displaying prefetch their neighbours once they arrive,
+	//	prefetched pages do not, so prefetching never runs ahead on its own
+	//
+	private void request(final int page, final boolean displayed){
+
+		if(page < 0 || page * PAGE_SIZE >= size || pages.containsKey(page) || !pending.add(page)){
+			return;
+		}
+
+		final int expected = generation;
+		final Student after = lastKeys.get(page - 1);
+		final Student before = firstKeys.get(page + 1);
+
+		executor().execute(new Runnable(){
+			public void run(){
+				try{
+					final List<Student> rows = fetch(page, after, before);
+
+					SwingUtilities.invokeLater(new Runnable(){
+						public void run(){
+							loaded(expected, page, rows, displayed);
+						}
+					});
+				}
+
+				catch(Exception e){
+					System.err.println(e);
+
+					SwingUtilities.invokeLater(new Runnable(){
+						public void run(){
+							pending.remove(page);
+						}
+					});
+				}
+			}
+		});
+	}
+
+
+	//Seek from a known neighbour if possible, otherwise jump by offset
+	//
+	private List<Student> fetch(int page, Student after, Student before) throws Exception{
+
+		if(page == 0){
+			return service.studentsAfter(includeInactive, null, PAGE_SIZE);
+		}
+
+		if(after != null){
+			return service.studentsAfter(includeInactive, after, PAGE_SIZE);
+		}
+
+		if(before != null){
+			return service.studentsBefore(includeInactive, before, PAGE_SIZE);
+		}
+
+		return service.studentsAt(includeInactive, page * PAGE_SIZE, PAGE_SIZE);
+	}
+
+
+	private void loaded(int expected, int page, List<Student> rows, boolean displayed){
+
+		if(expected != generation){
+			return;
+		}
+
+		pending.remove(page);
+
+		if(rows.isEmpty()){
+			return;
+		}
+
+		pages.put(page, new ArrayList<Student>(rows));
+		firstKeys.put(page, rows.get(0));
+		lastKeys.put(page, rows.get(rows.size() - 1));
+
+		int first = page * PAGE_SIZE;
+		int last = Math.min(size, first + PAGE_SIZE) - 1;
+
+		if(first <= last){
+			fireContentsChanged(this, first, last);
+		}
+
+		//Prefetch the neighbours, now that their keyset anchors are known
+		//
+		if(displayed){
+			request(page + 1, false);
+			request(page - 1, false);
+		}
+	}
+
+
+	//One daemon thread shared by every paged list
+	//
+	private static synchronized ExecutorService executor(){
+
+		if(fetcher == null){
+			fetcher = Executors.newSingleThreadExecutor(new ThreadFactory(){
+				public Thread newThread(Runnable r){
+					Thread t = new Thread(r, "student-pages");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+
+		return fetcher;
+	}
+}
@@ -0,0 +1,232 @@
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import javax.imageio.ImageIO;
+
+
+//Spools a report card for every student in a section to PNG page images
+//	on disk, ready to be printed or mailed as a batch.
+//
+//	The number of pages each card needs is known before anything is drawn
+//	(the assignment list is split into fixed size pages), and each page is
+//	drawn into a single reused image and written out before the next one,
+//	so memory does not grow with the size of the section.
+//
+public class ReportCardSpooler {
+
+	//US letter at 100 dpi
+	//
+	private static final int PAGE_WIDTH = 850;
+	private static final int PAGE_HEIGHT = 1100;
+	private static final int MARGIN = 75;
+	private static final int LINE_HEIGHT = 22;
+
+	//Lines on a page, and how many of them are left for assignments on the
+	//	first page (after the title, name and column header) and on later
+	//	pages (after the column header).  The totals take TOTAL_LINES at the
+	//	end of the last page
+	//
+	private static final int LINES_PER_PAGE = (PAGE_HEIGHT - 2 * MARGIN) / LINE_HEIGHT - 1;
+	private static final int FIRST_PAGE_ROWS = LINES_PER_PAGE - 5;
+	private static final int OTHER_PAGE_ROWS = LINES_PER_PAGE - 2;
+	private static final int TOTAL_LINES = 3;
+
+	private static final Font TITLE_FONT = new Font(Font.SERIF, Font.BOLD, 24);
+	private static final Font HEADER_FONT = new Font(Font.SANS_SERIF, Font.BOLD, 14);
+	private static final Font BODY_FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 14);
+
+	private final GradeRepository grades;
+	private final SectionSummaryRepository summaries;
+
+
+	//Told after every page is written
+	//
+	public interface Progress{
+		void pageWritten(int pagesDone, int pagesTotal);
+	}
+
+
+	public ReportCardSpooler(GradeRepository gradeRepository, SectionSummaryRepository summaryRepository){
+		grades = gradeRepository;
+		summaries = summaryRepository;
+	}
+
+
+	//Write class<id>-student<id>-<page>.png into directory for every page
+	//	of every student's report card in the section
+	//
+	public SpoolResult spoolSection(int classId, File directory, Progress progress) throws IOException, SQLException{
+
+		long start = System.nanoTime();
+
+		GradeGridModel grid = grades.loadClassGrid(classId);
+		SectionReport report = summaries.loadSection(classId);
+
+		Map<Integer, Integer> reportRow = new HashMap<Integer, Integer>();
+		for(int row = 0; row < report.getStudentCount(); row++){
+			reportRow.put(report.getStudentID(row), row);
+		}
+
+		//Page breaks for every card, worked out before anything is drawn
+		//
+		int assignments = grid.getAssignmentCount();
+		int pagesPerCard = pagesFor(assignments);
+		int total = pagesPerCard * grid.getRowCount();
+
+		BufferedImage page = new BufferedImage(PAGE_WIDTH, PAGE_HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+		Graphics2D g = page.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+
+		int written = 0;
+
+		try{
+			for(int row = 0; row < grid.getRowCount(); row++){
+				Student student = grid.getStudent(row);
+				Integer summary = reportRow.get(student.getID());
+
+				for(int p = 0; p < pagesPerCard; p++){
+					drawPage(g, grid, row, report, summary == null ? -1 : summary, p, pagesPerCard);
+
+					File file = new File(directory, "class" + classId + "-student" + student.getID() + "-" + (p + 1) + ".png");
+					ImageIO.write(page, "png", file);
+					written++;
+
+					if(progress != null){
+						progress.pageWritten(written, total);
+					}
+				}
+			}
+		}
+
+		finally{
+			g.dispose();
+		}
+
+		return new SpoolResult(grid.getRowCount(), written, System.nanoTime() - start);
+	}
+
+
+	//Pages a card with this many assignments needs
+	//
+	static int pagesFor(int assignments){
+
+		int rows = assignments + TOTAL_LINES;
+
+		if(rows <= FIRST_PAGE_ROWS){
+			return 1;
+		}
+
+		return 1 + (rows - FIRST_PAGE_ROWS + OTHER_PAGE_ROWS - 1) / OTHER_PAGE_ROWS;
+	}
+
+
+	private void drawPage(Graphics2D g, GradeGridModel grid, int row, SectionReport report, int summary,
+							int pageIndex, int pageCount){
+
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, PAGE_WIDTH, PAGE_HEIGHT);
+		g.setColor(Color.BLACK);
+
+		int line = 0;
+		int pointsX = PAGE_WIDTH - MARGIN - 220;
+		int possibleX = PAGE_WIDTH - MARGIN - 100;
+
+		if(pageIndex == 0){
+			g.setFont(TITLE_FONT);
+			g.drawString("Report Card", MARGIN, y(line++) + 6);
+			line++;
+
+			g.setFont(BODY_FONT);
+			g.drawString(grid.getStudent(row).toString() + "    ID " + grid.getStudent(row).getID(), MARGIN, y(line++));
+			g.drawString("Class " + grid.getClassID(), MARGIN, y(line++));
+		}
+
+		else{
+			line = 1;
+		}
+
+		g.setFont(HEADER_FONT);
+		g.drawString("Assignment", MARGIN, y(line));
+		g.drawString("Points", pointsX, y(line));
+		g.drawString("Possible", possibleX, y(line));
+		line++;
+
+		//The assignments this page holds
+		//
+		g.setFont(BODY_FONT);
+		FontMetrics metrics = g.getFontMetrics();
+		int first = pageIndex == 0 ? 0 : FIRST_PAGE_ROWS + (pageIndex - 1) * OTHER_PAGE_ROWS;
+		int last = Math.min(grid.getAssignmentCount(), pageIndex == 0 ? FIRST_PAGE_ROWS : first + OTHER_PAGE_ROWS);
+
+		for(int a = first; a < last; a++){
+			float points = grid.getPoints(row, a);
+
+			g.drawString(ReportPrinter.clip(grid.getAssignmentName(a), metrics, pointsX - MARGIN - 10), MARGIN, y(line));
+			g.drawString(Float.isNaN(points) ? "-" : SectionReport.format(points), pointsX, y(line));
+			g.drawString(SectionReport.format(grid.getPointsPossible(a)), possibleX, y(line));
+			line++;
+		}
+
+		if(pageIndex == pageCount - 1 && summary >= 0){
+			line++;
+			g.setFont(HEADER_FONT);
+			g.drawString("Total", MARGIN, y(line));
+			g.drawString(report.getValueAt(summary, 1).toString(), pointsX, y(line));
+			g.drawString(report.getValueAt(summary, 2).toString(), possibleX, y(line));
+			line++;
+
+			g.setFont(BODY_FONT);
+			g.drawString("Grade " + report.getValueAt(summary, 3) + "  " + report.getLetter(summary)
+					+ (report.getRank(summary) > 0 ? "    Rank " + report.getRank(summary) + " of " + report.getStudentCount() : ""),
+					MARGIN, y(line));
+		}
+
+		String footer = "Page " + (pageIndex + 1) + " of " + pageCount;
+		g.drawString(footer, PAGE_WIDTH - MARGIN - metrics.stringWidth(footer), PAGE_HEIGHT - MARGIN / 2);
+	}
+
+
+	private static int y(int line){
+		return MARGIN + (line + 1) * LINE_HEIGHT;
+	}
+
+
+	//Cards and pages written by one spool, and how long it took
+	//
+	public static class SpoolResult{
+
+		private final int cards, pages;
+		private final long nanos;
+
+		SpoolResult(int cardCount, int pageCount, long elapsedNanos){
+			cards = cardCount;
+			pages = pageCount;
+			nanos = elapsedNanos;
+		}
+
+		public int getCards(){
+			return cards;
+		}
+
+		public int getPages(){
+			return pages;
+		}
+
+		public double getPagesPerSecond(){
+			return nanos == 0 ? 0 : pages / (nanos / 1000000000.0);
+		}
+
+		public String toString(){
+			return String.format("Spooled %d report cards (%d pages) in %.1f s, %.1f pages/s",
+					cards, pages, nanos / 1000000000.0, getPagesPerSecond());
+		}
+	}
+}
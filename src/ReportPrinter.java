@@ -0,0 +1,153 @@
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.print.PageFormat;
+import java.awt.print.Pageable;
+import java.awt.print.Printable;
+
+
+//Prints a section report as a paginated table.  The rows that fit on a
+//	page are worked out once, up front, from the page size and line height,
+//	so the printer can ask for any page in any order and each page draws
+//	only its own rows straight from the report's arrays.  Nothing is laid
+//	out as Swing components, and printing runs on whatever thread calls
+//	PrinterJob.print(), normally a background task.
+//
+public class ReportPrinter implements Pageable, Printable {
+
+	private static final Font TITLE_FONT = new Font(Font.SANS_SERIF, Font.BOLD, 12);
+	private static final Font HEADER_FONT = new Font(Font.SANS_SERIF, Font.BOLD, 9);
+	private static final Font BODY_FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 9);
+
+	private static final int LINE_HEIGHT = 14;
+	private static final int TITLE_HEIGHT = 2 * LINE_HEIGHT;
+	private static final int FOOTER_HEIGHT = LINE_HEIGHT;
+
+	//Column widths as a share of the printable width, matching
+	//	the report table's columns
+	//
+	private static final float[] COLUMN_SHARE = {0.34f, 0.10f, 0.16f, 0.14f, 0.15f, 0.11f};
+
+	private final SectionReport report;
+	private final PageFormat format;
+	private final String title;
+	private final int rowsPerPage;
+	private final int pages;
+
+
+	public ReportPrinter(SectionReport sectionReport, PageFormat pageFormat, String reportTitle){
+
+		report = sectionReport;
+		format = pageFormat;
+		title = reportTitle;
+
+		//Page breaks: the title, column header and footer take a fixed
+		//	amount of every page and the rest is filled with rows
+		//
+		int body = (int)format.getImageableHeight() - TITLE_HEIGHT - LINE_HEIGHT - FOOTER_HEIGHT;
+		rowsPerPage = Math.max(1, body / LINE_HEIGHT);
+		pages = Math.max(1, (report.getRowCount() + rowsPerPage - 1) / rowsPerPage);
+	}
+
+
+	public int getNumberOfPages(){
+		return pages;
+	}
+
+	public PageFormat getPageFormat(int pageIndex){
+		return format;
+	}
+
+	public Printable getPrintable(int pageIndex){
+		return this;
+	}
+
+	public int getRowsPerPage(){
+		return rowsPerPage;
+	}
+
+
+	public int print(Graphics graphics, PageFormat pageFormat, int pageIndex){
+
+		if(pageIndex >= pages){
+			return NO_SUCH_PAGE;
+		}
+
+		Graphics2D g = (Graphics2D)graphics;
+		g.translate(pageFormat.getImageableX(), pageFormat.getImageableY());
+		g.setColor(Color.BLACK);
+
+		int width = (int)pageFormat.getImageableWidth();
+		int[] columnX = columnPositions(width);
+
+		g.setFont(TITLE_FONT);
+		g.drawString(title, 0, LINE_HEIGHT);
+
+		int y = TITLE_HEIGHT + LINE_HEIGHT - 3;
+
+		g.setFont(HEADER_FONT);
+		for(int column = 0; column < columnX.length; column++){
+			g.drawString(clip(report.getColumnName(column), g.getFontMetrics(), room(columnX, column, width)), columnX[column], y);
+		}
+
+		g.drawLine(0, y + 3, width, y + 3);
+
+		g.setFont(BODY_FONT);
+		FontMetrics metrics = g.getFontMetrics();
+		int first = pageIndex * rowsPerPage;
+		int last = Math.min(report.getRowCount(), first + rowsPerPage);
+
+		for(int row = first; row < last; row++){
+			y += LINE_HEIGHT;
+
+			for(int column = 0; column < columnX.length; column++){
+				g.drawString(clip(report.getValueAt(row, column).toString(), metrics, room(columnX, column, width)), columnX[column], y);
+			}
+		}
+
+		String footer = "Page " + (pageIndex + 1) + " of " + pages;
+		g.drawString(footer, width - metrics.stringWidth(footer), (int)pageFormat.getImageableHeight() - 3);
+
+		return PAGE_EXISTS;
+	}
+
+
+	private static int[] columnPositions(int width){
+
+		int[] x = new int[COLUMN_SHARE.length];
+		float left = 0;
+
+		for(int column = 0; column < x.length; column++){
+			x[column] = (int)left;
+			left += COLUMN_SHARE[column] * width;
+		}
+
+		return x;
+	}
+
+
+	//Width available to a column's text, leaving a small gap before the next
+	//
+	private static int room(int[] columnX, int column, int width){
+		return (column + 1 < columnX.length ? columnX[column + 1] : width) - columnX[column] - 4;
+	}
+
+
+	//Shorten text that would run into the next column
+	//
+	static String clip(String text, FontMetrics metrics, int room){
+
+		if(metrics.stringWidth(text) <= room){
+			return text;
+		}
+
+		int end = text.length();
+		while(end > 0 && metrics.stringWidth(text.substring(0, end) + "...") > room){
+			end--;
+		}
+
+		return text.substring(0, end) + "...";
+	}
+}
@@ -0,0 +1,339 @@
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+
+//Applies versioned schema changes to the gradebook database at startup.
+//	The version the database is at is kept in SQLite's user_version pragma,
+//	and every migration newer than that is run in order, each one in its own
+//	transaction.  To change the schema add a new Migration to the end of
+//	MIGRATIONS, never edit one that has already shipped.
+//
+public class SchemaMigrator {
+
+	private static final Migration[] MIGRATIONS = {
+
+		new Migration(1, "baseline student table",
+			"CREATE TABLE IF NOT EXISTS student ("
+			+ "id_num INTEGER PRIMARY KEY, "
+			+ "first_name TEXT, "
+			+ "last_name TEXT, "
+			+ "address TEXT, "
+			+ "city TEXT, "
+			+ "state TEXT, "
+			+ "zip INTEGER, "
+			+ "dob TEXT, "
+			+ "active INTEGER NOT NULL DEFAULT 1)"),
+
+		//Covering indexes for the roster queries.  The active roster is read
+		//	straight out of the first index in name order, and the
+		//	"show inactive" list out of the second, without touching the table
+		//
+		new Migration(2, "roster indexes",
+			"CREATE INDEX IF NOT EXISTS idx_student_active_name ON student (active, last_name, first_name, id_num)",
+			"CREATE INDEX IF NOT EXISTS idx_student_name ON student (last_name, first_name, id_num)",
+			"ANALYZE student"),
+
+		//The student directory loads everybody with their active flag, so
+		//	the all-students index carries it to stay covering
+		//
+		new Migration(3, "active flag in all-students index",
+			"DROP INDEX IF EXISTS idx_student_name",
+			"CREATE INDEX IF NOT EXISTS idx_student_name ON student (last_name, first_name, id_num, active)"),
+
+		//Full text index for the student search box.  It is an external content
+		//	table over student, so it only stores the index and the triggers keep
+		//	it in sync.  The prefix indexes make one to three letter prefix
+		//	queries a single lookup
+		//
+		new Migration(4, "student search index",
+			"CREATE VIRTUAL TABLE IF NOT EXISTS student_fts USING fts5("
+			+ "first_name, last_name, id_num, city, zip, "
+			+ "content = 'student', content_rowid = 'id_num', prefix = '1 2 3')",
+			"CREATE TRIGGER IF NOT EXISTS student_fts_insert AFTER INSERT ON student BEGIN "
+			+ "INSERT INTO student_fts (rowid, first_name, last_name, id_num, city, zip) "
+			+ "VALUES (new.id_num, new.first_name, new.last_name, new.id_num, new.city, new.zip); END",
+			"CREATE TRIGGER IF NOT EXISTS student_fts_delete AFTER DELETE ON student BEGIN "
+			+ "INSERT INTO student_fts (student_fts, rowid, first_name, last_name, id_num, city, zip) "
+			+ "VALUES ('delete', old.id_num, old.first_name, old.last_name, old.id_num, old.city, old.zip); END",
+			"CREATE TRIGGER IF NOT EXISTS student_fts_update AFTER UPDATE OF first_name, last_name, city, zip ON student BEGIN "
+			+ "INSERT INTO student_fts (student_fts, rowid, first_name, last_name, id_num, city, zip) "
+			+ "VALUES ('delete', old.id_num, old.first_name, old.last_name, old.id_num, old.city, old.zip); "
+			+ "INSERT INTO student_fts (rowid, first_name, last_name, id_num, city, zip) "
+			+ "VALUES (new.id_num, new.first_name, new.last_name, new.id_num, new.city, new.zip); END",
+			"INSERT INTO student_fts (student_fts) VALUES ('rebuild')"),
+
+		//Courses, class sections, rosters, assignments and grades.  A course
+		//	is taught as one or more sections (classes), assignments belong to a
+		//	section and have a type (Quiz, Homework...), and assignment_link
+		//	holds one student's points on one assignment
+		//
+		new Migration(5, "course, assignment and grade tables",
+			"CREATE TABLE IF NOT EXISTS courses ("
+			+ "course_id INTEGER PRIMARY KEY, "
+			+ "course_number TEXT, "
+			+ "course_name TEXT, "
+			+ "description TEXT)",
+			"CREATE TABLE IF NOT EXISTS course_sections ("
+			+ "class_id INTEGER PRIMARY KEY, "
+			+ "course_id INTEGER NOT NULL REFERENCES courses (course_id), "
+			+ "meeting_day TEXT, "
+			+ "max_students INTEGER NOT NULL DEFAULT 30)",
+			"CREATE TABLE IF NOT EXISTS course_roster ("
+			+ "class_id INTEGER NOT NULL REFERENCES course_sections (class_id), "
+			+ "student_id INTEGER NOT NULL REFERENCES student (id_num), "
+			+ "course_id INTEGER, "
+			+ "PRIMARY KEY (class_id, student_id)) WITHOUT ROWID",
+			"CREATE TABLE IF NOT EXISTS type ("
+			+ "type_id INTEGER PRIMARY KEY, "
+			+ "type TEXT NOT NULL, "
+			+ "weight REAL NOT NULL DEFAULT 1)",
+			"CREATE TABLE IF NOT EXISTS assignments ("
+			+ "assignment_id INTEGER PRIMARY KEY, "
+			+ "class_id INTEGER NOT NULL REFERENCES course_sections (class_id), "
+			+ "type_id INTEGER REFERENCES type (type_id), "
+			+ "name TEXT, "
+			+ "points_possible REAL NOT NULL DEFAULT 100)",
+			"CREATE TABLE IF NOT EXISTS assignment_link ("
+			+ "assignment_id INTEGER NOT NULL REFERENCES assignments (assignment_id), "
+			+ "student_id INTEGER NOT NULL REFERENCES student (id_num), "
+			+ "points REAL, "
+			+ "PRIMARY KEY (assignment_id, student_id)) WITHOUT ROWID",
+			"CREATE INDEX IF NOT EXISTS idx_roster_student ON course_roster (student_id)",
+			"CREATE INDEX IF NOT EXISTS idx_assignments_class ON assignments (class_id, assignment_id)",
+			"CREATE INDEX IF NOT EXISTS idx_sections_course ON course_sections (course_id)"),
+
+		//Letter grade scale: a percentage earns the letter with the highest
+		//	min_percent it reaches.  Seeded with the usual 90/80/70/60 scale
+		//	unless the table already has a scale in it
+		//
+		new Migration(6, "letter grade scale",
+			"CREATE TABLE IF NOT EXISTS letter ("
+			+ "letter TEXT PRIMARY KEY, "
+			+ "min_percent REAL NOT NULL)",
+			"INSERT INTO letter (letter, min_percent) SELECT * FROM ("
+			+ "SELECT 'A', 90 UNION ALL SELECT 'B', 80 UNION ALL SELECT 'C', 70 "
+			+ "UNION ALL SELECT 'D', 60 UNION ALL SELECT 'F', 0) "
+			+ "WHERE NOT EXISTS (SELECT 1 FROM letter)"),
+
+		//Materialized report grades, one row per student per section, and the
+		//	sections whose rows are out of date.  The triggers mark a section
+		//	dirty whenever a grade, assignment, type weight, roster entry or the
+		//	letter scale changes, and SectionSummaryRepository recomputes only
+		//	the dirty sections.  Every existing section starts out dirty.
+		//	Grades are saved with an upsert, whose DO UPDATE would override an
+		//	OR IGNORE in the triggers it fires, so the grade triggers use an
+		//	ON CONFLICT DO NOTHING of their own
+		//
+		new Migration(7, "section grade summary",
+			"CREATE TABLE IF NOT EXISTS section_grade_summary ("
+			+ "class_id INTEGER NOT NULL, "
+			+ "student_id INTEGER NOT NULL, "
+			+ "points_earned REAL NOT NULL, "
+			+ "points_possible REAL NOT NULL, "
+			+ "percentage REAL, "
+			+ "letter TEXT, "
+			+ "rank INTEGER, "
+			+ "PRIMARY KEY (class_id, student_id)) WITHOUT ROWID",
+			"CREATE TABLE IF NOT EXISTS section_summary_dirty ("
+			+ "class_id INTEGER PRIMARY KEY)",
+			"CREATE TRIGGER IF NOT EXISTS summary_grade_insert AFTER INSERT ON assignment_link BEGIN "
+			+ "INSERT INTO section_summary_dirty (class_id) "
+			+ "SELECT class_id FROM assignments WHERE assignment_id = new.assignment_id "
+			+ "ON CONFLICT (class_id) DO NOTHING; END",
+			"CREATE TRIGGER IF NOT EXISTS summary_grade_update AFTER UPDATE ON assignment_link BEGIN "
+			+ "INSERT INTO section_summary_dirty (class_id) "
+			+ "SELECT class_id FROM assignments WHERE assignment_id IN (old.assignment_id, new.assignment_id) "
+			+ "ON CONFLICT (class_id) DO NOTHING; END",
+			"CREATE TRIGGER IF NOT EXISTS summary_grade_delete AFTER DELETE ON assignment_link BEGIN "
+			+ "INSERT INTO section_summary_dirty (class_id) "
+			+ "SELECT class_id FROM assignments WHERE assignment_id = old.assignment_id "
+			+ "ON CONFLICT (class_id) DO NOTHING; END",
+			"CREATE TRIGGER IF NOT EXISTS summary_assignment_insert AFTER INSERT ON assignments BEGIN "
+			+ "INSERT OR IGNORE INTO section_summary_dirty (class_id) VALUES (new.class_id); END",
+			"CREATE TRIGGER IF NOT EXISTS summary_assignment_update "
+			+ "AFTER UPDATE OF class_id, type_id, points_possible ON assignments BEGIN "
+			+ "INSERT OR IGNORE INTO section_summary_dirty (class_id) VALUES (old.class_id); "
+			+ "INSERT OR IGNORE INTO section_summary_dirty (class_id) VALUES (new.class_id); END",
+			"CREATE TRIGGER IF NOT EXISTS summary_assignment_delete AFTER DELETE ON assignments BEGIN "
+			+ "INSERT OR IGNORE INTO section_summary_dirty (class_id) VALUES (old.class_id); END",
+			"CREATE TRIGGER IF NOT EXISTS summary_weight_update AFTER UPDATE OF weight ON type BEGIN "
+			+ "INSERT OR IGNORE INTO section_summary_dirty (class_id) "
+			+ "SELECT DISTINCT class_id FROM assignments WHERE type_id = new.type_id; END",
+			"CREATE TRIGGER IF NOT EXISTS summary_roster_insert AFTER INSERT ON course_roster BEGIN "
+			+ "INSERT OR IGNORE INTO section_summary_dirty (class_id) VALUES (new.class_id); END",
+			"CREATE TRIGGER IF NOT EXISTS summary_roster_update AFTER UPDATE ON course_roster BEGIN "
+			+ "INSERT OR IGNORE INTO section_summary_dirty (class_id) VALUES (old.class_id); "
+			+ "INSERT OR IGNORE INTO section_summary_dirty (class_id) VALUES (new.class_id); END",
+			"CREATE TRIGGER IF NOT EXISTS summary_roster_delete AFTER DELETE ON course_roster BEGIN "
+			+ "INSERT OR IGNORE INTO section_summary_dirty (class_id) VALUES (old.class_id); END",
+			"CREATE TRIGGER IF NOT EXISTS summary_letter_change AFTER UPDATE ON letter BEGIN "
+			+ "INSERT OR IGNORE INTO section_summary_dirty (class_id) SELECT class_id FROM course_sections; END",
+			"CREATE TRIGGER IF NOT EXISTS summary_letter_insert AFTER INSERT ON letter BEGIN "
+			+ "INSERT OR IGNORE INTO section_summary_dirty (class_id) SELECT class_id FROM course_sections; END",
+			"CREATE TRIGGER IF NOT EXISTS summary_letter_delete AFTER DELETE ON letter BEGIN "
+			+ "INSERT OR IGNORE INTO section_summary_dirty (class_id) SELECT class_id FROM course_sections; END",
+			"INSERT OR IGNORE INTO section_summary_dirty (class_id) SELECT class_id FROM course_sections"),
+
+		//The term a section is taught in (e.g. "2026FA"), which is how
+		//	exports to the SIS select sections
+		//
+		new Migration(8, "section terms",
+			"ALTER TABLE course_sections ADD COLUMN term TEXT",
+			"CREATE INDEX IF NOT EXISTS idx_sections_term ON course_sections (term, class_id)"),
+
+		//Students waiting for a seat in a full section, first come first
+		//	served in waitlist_id order
+		//
+		new Migration(9, "course waitlist",
+			"CREATE TABLE IF NOT EXISTS course_waitlist ("
+			+ "waitlist_id INTEGER PRIMARY KEY, "
+			+ "class_id INTEGER NOT NULL REFERENCES course_sections (class_id), "
+			+ "student_id INTEGER NOT NULL REFERENCES student (id_num), "
+			+ "UNIQUE (class_id, student_id))",
+			"CREATE INDEX IF NOT EXISTS idx_waitlist_order ON course_waitlist (class_id, waitlist_id)"),
+
+		//Row version for optimistic concurrency.  Every write to a student
+		//	bumps it, and an edit only saves if the row still has the version
+		//	the edit started from
+		//
+		new Migration(10, "student row version",
+			"ALTER TABLE student ADD COLUMN version INTEGER NOT NULL DEFAULT 0"),
+
+		//A count of writes to the student table, bumped by triggers, so the
+		//	student directory can tell whether anyone else has written to it
+		//	with a single row lookup instead of reading the table
+		//
+		new Migration(11, "student change counter",
+			"CREATE TABLE IF NOT EXISTS student_changes (id INTEGER PRIMARY KEY CHECK (id = 1), changes INTEGER NOT NULL)",
+			"INSERT OR IGNORE INTO student_changes (id, changes) VALUES (1, 0)",
+			"CREATE TRIGGER IF NOT EXISTS student_changes_insert AFTER INSERT ON student BEGIN "
+			+ "UPDATE student_changes SET changes = changes + 1 WHERE id = 1; END",
+			"CREATE TRIGGER IF NOT EXISTS student_changes_update AFTER UPDATE ON student BEGIN "
+			+ "UPDATE student_changes SET changes = changes + 1 WHERE id = 1; END",
+			"CREATE TRIGGER IF NOT EXISTS student_changes_delete AFTER DELETE ON student BEGIN "
+			+ "UPDATE student_changes SET changes = changes + 1 WHERE id = 1; END")
+	};
+
+	private final ConnectionPool pool;
+
+
+	public SchemaMigrator(ConnectionPool connectionPool){
+		pool = connectionPool;
+	}
+
+
+	//Bring the database up to the newest schema version.  Returns the
+	//	number of migrations that were applied
+	//
+	public int migrate() throws SQLException{
+
+		Connection c = pool.getConnection();
+		int applied = 0;
+
+		try{
+			Statement stmt = c.createStatement();
+
+			try{
+				int current = currentVersion(stmt);
+
+				for(Migration m : MIGRATIONS){
+					if(m.version > current){
+						apply(stmt, m);
+						applied++;
+					}
+				}
+			}
+
+			finally{
+				stmt.close();
+			}
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+
+		return applied;
+	}
+
+
+	//The newest version this build knows about
+	//
+	public static int latestVersion(){
+		return MIGRATIONS[MIGRATIONS.length - 1].version;
+	}
+
+
+	private int currentVersion(Statement stmt) throws SQLException{
+
+		ResultSet rs = stmt.executeQuery("PRAGMA user_version");
+
+		try{
+			return rs.next() ? rs.getInt(1) : 0;
+		}
+
+		finally{
+			rs.close();
+		}
+	}
+
+
+	//Run every statement of the migration and bump user_version in a single
+	//	transaction, so a failed migration leaves the database untouched
+	//
+	private void apply(Statement stmt, Migration m) throws SQLException{
+
+		boolean committed = false;
+
+		stmt.execute("BEGIN IMMEDIATE");
+
+		try{
+			for(String sql : m.statements){
+				stmt.execute(sql);
+			}
+
+			stmt.execute("PRAGMA user_version = " + m.version);
+			stmt.execute("COMMIT");
+			committed = true;
+		}
+
+		catch(SQLException e){
+			throw new SQLException("Schema migration " + m.version + " (" + m.description + ") failed", e);
+		}
+
+		finally{
+			//Rolled back whatever was thrown; a failed rollback is only
+			//	reported so it does not hide the migration's own error
+			//
+			if(!committed){
+				try{
+					stmt.execute("ROLLBACK");
+				}
+
+				catch(SQLException e){
+					System.err.println(e);
+				}
+			}
+		}
+
+		System.out.println("Applied schema migration " + m.version + ": " + m.description);
+	}
+
+
+	//One versioned schema change
+	//
+	private static class Migration{
+
+		private final int version;
+		private final String description;
+		private final String[] statements;
+
+		Migration(int migrationVersion, String migrationDescription, String... sql){
+			version = migrationVersion;
+			description = migrationDescription;
+			statements = sql;
+		}
+	}
+}
@@ -0,0 +1,118 @@
+import javax.swing.table.AbstractTableModel;
+
+
+//Computed grades for every student in one class section, and the table
+//	model GenerateReportFrame shows them with.  The numbers are held in
+//	primitive arrays (one entry per student) and only turned into text when
+//	a cell is drawn.
+//
+public class SectionReport extends AbstractTableModel {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final String[] COLUMNS = {"Student Name", "Points",
+							"Possible Points", "Percentage", "Letter Grade", "Rank"};
+
+	private final int classId;
+	private final int[] studentIds;
+	private final String[] names;
+	private final float[] earned, possible, percentage;
+	private final String[] letters;
+	private final int[] ranks;
+
+
+	public SectionReport(int sectionId, int[] ids, String[] studentNames, float[] pointsEarned,
+							float[] pointsPossible, float[] percent, String[] letterGrades, int[] rank){
+		classId = sectionId;
+		studentIds = ids;
+		names = studentNames;
+		earned = pointsEarned;
+		possible = pointsPossible;
+		percentage = percent;
+		letters = letterGrades;
+		ranks = rank;
+	}
+
+
+	public int getClassID(){
+		return classId;
+	}
+
+	public int getStudentCount(){
+		return studentIds.length;
+	}
+
+	public int getStudentID(int row){
+		return studentIds[row];
+	}
+
+	public String getStudentName(int row){
+		return names[row];
+	}
+
+	public float getPointsEarned(int row){
+		return earned[row];
+	}
+
+	public float getPointsPossible(int row){
+		return possible[row];
+	}
+
+	//NaN if the student has nothing graded yet
+	//
+	public float getPercentage(int row){
+		return percentage[row];
+	}
+
+	public String getLetter(int row){
+		return letters[row];
+	}
+
+	//1 is the top score, 0 if the student has nothing graded yet
+	//
+	public int getRank(int row){
+		return ranks[row];
+	}
+
+
+	public int getRowCount(){
+		return studentIds.length;
+	}
+
+	public int getColumnCount(){
+		return COLUMNS.length;
+	}
+
+	public String getColumnName(int column){
+		return COLUMNS[column];
+	}
+
+
+	public Object getValueAt(int row, int column){
+
+		switch(column){
+			case 0:
+				return names[row];
+			case 1:
+				return format(earned[row]);
+			case 2:
+				return format(possible[row]);
+			case 3:
+				return Float.isNaN(percentage[row]) ? "" : String.format("%.1f%%", percentage[row]);
+			case 4:
+				return letters[row];
+			default:
+				return ranks[row] == 0 ? "" : Integer.toString(ranks[row]);
+		}
+	}
+
+
+	static String format(float points){
+
+		if(points == (int)points){
+			return Integer.toString((int)points);
+		}
+
+		return String.format("%.2f", points);
+	}
+}
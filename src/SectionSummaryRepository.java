@@ -0,0 +1,399 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+
+//Materialized report grades.  section_grade_summary holds every student's
+//	points, percentage, letter and rank in every section, so opening a report
+//	is one indexed lookup instead of a pass over all of the section's grades.
+//
+//	The summary is kept up to date incrementally: triggers (see
+//	SchemaMigrator) put a section in section_summary_dirty whenever anything
+//	its grades depend on changes, and refreshDirty() recomputes just those
+//	sections.  A rank depends on the whole section, so a section is the
+//	smallest unit that can be recomputed.
+//
+public class SectionSummaryRepository {
+
+	private static final String SECTION =
+			"SELECT g.student_id, s.first_name, s.last_name, g.points_earned, g.points_possible, "
+			+ "g.percentage, g.letter, g.rank FROM section_grade_summary g "
+			+ "JOIN student s ON s.id_num = g.student_id WHERE g.class_id = ? "
+			+ "ORDER BY s.last_name, s.first_name, s.id_num";
+
+	private static final String IS_DIRTY =
+			"SELECT 1 FROM section_summary_dirty WHERE class_id = ?";
+
+	private static final String DIRTY =
+			"SELECT class_id FROM section_summary_dirty";
+
+	private static final String ALL_SECTIONS =
+			"SELECT class_id FROM course_sections UNION SELECT class_id FROM section_grade_summary";
+
+	private static final String CLEAR_SECTION =
+			"DELETE FROM section_grade_summary WHERE class_id = ?";
+
+	private static final String INSERT_ROW =
+			"INSERT INTO section_grade_summary (class_id, student_id, points_earned, points_possible, percentage, letter, rank) "
+			+ "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+	private static final String CLEAN =
+			"DELETE FROM section_summary_dirty WHERE class_id = ?";
+
+	private static final String MARK_ALL_DIRTY =
+			"INSERT OR IGNORE INTO section_summary_dirty (class_id) "
+			+ "SELECT class_id FROM course_sections UNION SELECT class_id FROM section_grade_summary";
+
+	//Stored values are REALs, so compare them with a little slack
+	//
+	private static final float TOLERANCE = 0.001f;
+
+	private final ConnectionPool pool;
+	private final GradeCalculator calculator;
+
+
+	public SectionSummaryRepository(ConnectionPool connectionPool, GradeCalculator gradeCalculator){
+		pool = connectionPool;
+		calculator = gradeCalculator;
+	}
+
+
+	//The report for one section, read from the summary.  If the section has
+	//	changed since it was last summarized it is brought up to date first
+	//
+	public SectionReport loadSection(int classId) throws SQLException{
+
+		Connection c = pool.getConnection();
+
+		try{
+			PreparedStatement ps = pool.prepare(c, IS_DIRTY);
+			ps.setInt(1, classId);
+			ResultSet rs = ps.executeQuery();
+			boolean dirty;
+
+			try{
+				dirty = rs.next();
+			}
+
+			finally{
+				rs.close();
+			}
+
+			if(dirty){
+				refresh(c, new int[]{classId});
+			}
+
+			return readSection(c, classId);
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+	}
+
+
+	//Recompute every section that has changed since it was last summarized.
+	//	Returns the number of sections recomputed
+	//
+	public int refreshDirty() throws SQLException{
+
+		Connection c = pool.getConnection();
+
+		try{
+			return refresh(c, null);
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+	}
+
+
+	//Throw the summary away and recompute every section
+	//
+	public int rebuildAll() throws SQLException{
+
+		Connection c = pool.getConnection();
+
+		try{
+			Statement stmt = c.createStatement();
+
+			try{
+				stmt.execute(MARK_ALL_DIRTY);
+			}
+
+			finally{
+				stmt.close();
+			}
+
+			return refresh(c, null);
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+	}
+
+
+	//Recompute every summarized section from the raw grades and compare it
+	//	with what is stored.  Sections waiting to be refreshed are expected to
+	//	be out of date and are skipped.  Returns one line per mismatch, an
+	//	empty list if the summary is consistent
+	//
+	public List<String> checkConsistency() throws SQLException{
+
+		List<String> problems = new ArrayList<String>();
+		Connection c = pool.getConnection();
+
+		try{
+			List<Integer> dirty = readIds(c, DIRTY);
+			List<Integer> sections = readIds(c, ALL_SECTIONS);
+			sections.removeAll(dirty);
+
+			int[] classIds = toArray(sections);
+			List<SectionReport> expected = calculator.computeAll(c, classIds);
+
+			for(int i = 0; i < classIds.length; i++){
+				compare(expected.get(i), readSection(c, classIds[i]), problems);
+			}
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+
+		return problems;
+	}
+
+
+	//Recompute the given sections, or every dirty section if classIds is
+	//	null, and rewrite their summary rows.  BEGIN IMMEDIATE takes the write
+	//	lock before the dirty list is read, so a grade saved meanwhile waits
+	//	and marks its section dirty again after this commits
+	//
+	private int refresh(Connection c, int[] classIds) throws SQLException{
+
+		Statement stmt = c.createStatement();
+
+		boolean committed = false;
+
+		try{
+			stmt.execute("BEGIN IMMEDIATE");
+
+			try{
+				if(classIds == null){
+					classIds = toArray(readIds(c, DIRTY));
+				}
+
+				List<SectionReport> reports = calculator.computeAll(c, classIds);
+
+				PreparedStatement clear = pool.prepare(c, CLEAR_SECTION);
+				PreparedStatement insert = pool.prepare(c, INSERT_ROW);
+				PreparedStatement clean = pool.prepare(c, CLEAN);
+
+				for(SectionReport report : reports){
+					clear.setInt(1, report.getClassID());
+					clear.addBatch();
+
+					clean.setInt(1, report.getClassID());
+					clean.addBatch();
+
+					for(int row = 0; row < report.getStudentCount(); row++){
+						insert.setInt(1, report.getClassID());
+						insert.setInt(2, report.getStudentID(row));
+						insert.setFloat(3, report.getPointsEarned(row));
+						insert.setFloat(4, report.getPointsPossible(row));
+
+						if(Float.isNaN(report.getPercentage(row))){
+							insert.setNull(5, java.sql.Types.REAL);
+							insert.setNull(6, java.sql.Types.VARCHAR);
+							insert.setNull(7, java.sql.Types.INTEGER);
+						}
+
+						else{
+							insert.setFloat(5, report.getPercentage(row));
+							insert.setString(6, report.getLetter(row));
+							insert.setInt(7, report.getRank(row));
+						}
+
+						insert.addBatch();
+					}
+				}
+
+				if(!reports.isEmpty()){
+					clear.executeBatch();
+					insert.executeBatch();
+					clean.executeBatch();
+				}
+
+				stmt.execute("COMMIT");
+				committed = true;
+
+				return reports.size();
+			}
+
+			finally{
+				//The connection is in auto-commit mode, so the pool will not
+				//	roll this back on release; a failed rollback is only
+				//	reported so it does not hide what was thrown
+				//
+				if(!committed){
+					try{
+						stmt.execute("ROLLBACK");
+					}
+
+					catch(SQLException e){
+						System.err.println(e);
+					}
+				}
+			}
+		}
+
+		finally{
+			stmt.close();
+		}
+	}
+
+
+	private SectionReport readSection(Connection c, int classId) throws SQLException{
+
+		List<Integer> ids = new ArrayList<Integer>();
+		List<String> names = new ArrayList<String>();
+		List<float[]> points = new ArrayList<float[]>();
+		List<String> letters = new ArrayList<String>();
+		List<Integer> ranks = new ArrayList<Integer>();
+
+		PreparedStatement ps = pool.prepare(c, SECTION);
+		ps.setInt(1, classId);
+		ResultSet rs = ps.executeQuery();
+
+		try{
+			while(rs.next()){
+				ids.add(rs.getInt("student_id"));
+				names.add(rs.getString("last_name") + ", " + rs.getString("first_name"));
+
+				float percentage = rs.getFloat("percentage");
+				if(rs.wasNull()){
+					percentage = Float.NaN;
+				}
+
+				points.add(new float[]{rs.getFloat("points_earned"), rs.getFloat("points_possible"), percentage});
+
+				String letter = rs.getString("letter");
+				letters.add(letter == null ? "" : letter);
+				ranks.add(rs.getInt("rank"));
+			}
+		}
+
+		finally{
+			rs.close();
+		}
+
+		int n = ids.size();
+		int[] studentIds = new int[n];
+		float[] earned = new float[n];
+		float[] possible = new float[n];
+		float[] percentage = new float[n];
+		int[] rank = new int[n];
+
+		for(int i = 0; i < n; i++){
+			studentIds[i] = ids.get(i);
+			earned[i] = points.get(i)[0];
+			possible[i] = points.get(i)[1];
+			percentage[i] = points.get(i)[2];
+			rank[i] = ranks.get(i);
+		}
+
+		return new SectionReport(classId, studentIds, names.toArray(new String[n]),
+				earned, possible, percentage, letters.toArray(new String[n]), rank);
+	}
+
+
+	//Add a line to problems for every way the stored report differs from
+	//	the freshly computed one.  Both list students in the same name order
+	//
+	private static void compare(SectionReport expected, SectionReport stored, List<String> problems){
+
+		int classId = expected.getClassID();
+
+		if(expected.getStudentCount() != stored.getStudentCount()){
+			problems.add("class " + classId + ": " + stored.getStudentCount() + " summary rows, "
+					+ expected.getStudentCount() + " students on the roster");
+			return;
+		}
+
+		for(int row = 0; row < expected.getStudentCount(); row++){
+			int student = expected.getStudentID(row);
+
+			if(stored.getStudentID(row) != student){
+				problems.add("class " + classId + ": summary row " + row + " is student "
+						+ stored.getStudentID(row) + ", expected " + student);
+			}
+
+			else if(!close(expected.getPointsEarned(row), stored.getPointsEarned(row))
+					|| !close(expected.getPointsPossible(row), stored.getPointsPossible(row))
+					|| !close(expected.getPercentage(row), stored.getPercentage(row))
+					|| !expected.getLetter(row).equals(stored.getLetter(row))
+					|| expected.getRank(row) != stored.getRank(row)){
+
+				problems.add("class " + classId + ", student " + student + ": stored "
+						+ describe(stored, row) + ", computed " + describe(expected, row));
+			}
+		}
+	}
+
+
+	private static boolean close(float a, float b){
+
+		if(Float.isNaN(a) || Float.isNaN(b)){
+			return Float.isNaN(a) && Float.isNaN(b);
+		}
+
+		return Math.abs(a - b) <= TOLERANCE * Math.max(1, Math.abs(a));
+	}
+
+
+	private static String describe(SectionReport report, int row){
+		return report.getValueAt(row, 1) + "/" + report.getValueAt(row, 2) + " "
+				+ report.getValueAt(row, 3) + " " + report.getLetter(row) + " #" + report.getRank(row);
+	}
+
+
+	private static List<Integer> readIds(Connection c, String sql) throws SQLException{
+
+		List<Integer> ids = new ArrayList<Integer>();
+		Statement stmt = c.createStatement();
+
+		try{
+			ResultSet rs = stmt.executeQuery(sql);
+
+			while(rs.next()){
+				ids.add(rs.getInt(1));
+			}
+
+			rs.close();
+		}
+
+		finally{
+			stmt.close();
+		}
+
+		return ids;
+	}
+
+
+	private static int[] toArray(List<Integer> values){
+
+		int[] array = new int[values.size()];
+
+		for(int i = 0; i < array.length; i++){
+			array[i] = values.get(i);
+		}
+
+		return array;
+	}
+}
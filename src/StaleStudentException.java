@@ -0,0 +1,37 @@
+import java.sql.SQLException;
+
+
+//Thrown when a student is saved from a copy that is out of date: somebody
+//	else saved the same student after this copy was read.  Carries the
+//	student as it is now in the database so the edit can be merged onto it
+//	and saved again.
+//
+public class StaleStudentException extends SQLException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Student current;
+	private final int attemptedVersion;
+
+
+	public StaleStudentException(Student currentStudent, int staleVersion){
+		super("Student " + currentStudent.getID() + " was changed by someone else (version "
+				+ staleVersion + " is now " + currentStudent.getVersion() + ")");
+
+		current = currentStudent;
+		attemptedVersion = staleVersion;
+	}
+
+
+	//The student as it is stored now
+	//
+	public Student getCurrent(){
+		return current;
+	}
+
+	//The version the rejected edit started from
+	//
+	public int getAttemptedVersion(){
+		return attemptedVersion;
+	}
+}
@@ -0,0 +1,99 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+//Cache of prepared statements for a single pooled connection, keyed by
+//	the SQL text.  SQLite only has to parse and plan a statement the first
+//	time it is prepared, after that the compiled statement is reused with
+//	new parameters.  The least recently used statement is closed once the
+//	cache is full.
+//
+public class StatementCache {
+
+	private static final int MAX_STATEMENTS = 64;
+
+	private final Connection connection;
+	private final LinkedHashMap<String, PreparedStatement> statements;
+
+	private long hits, misses;
+
+
+	public StatementCache(Connection c){
+
+		connection = c;
+
+		//Access ordered map so iteration starts at the least recently used statement
+		//
+		statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true);
+	}
+
+
+	//Get the prepared statement for the sql, preparing it if this connection
+	//	has not seen it yet.  Parameters and batches left over from the last
+	//	use are cleared
+	//
+	public synchronized PreparedStatement prepare(String sql) throws SQLException{
+
+		PreparedStatement ps = statements.get(sql);
+
+		if(ps != null && !ps.isClosed()){
+			hits++;
+			ps.clearParameters();
+			ps.clearBatch();
+			return ps;
+		}
+
+		misses++;
+		ps = connection.prepareStatement(sql);
+		statements.put(sql, ps);
+
+		if(statements.size() > MAX_STATEMENTS){
+			Iterator<Map.Entry<String, PreparedStatement>> eldest = statements.entrySet().iterator();
+			closeQuietly(eldest.next().getValue());
+			eldest.remove();
+		}
+
+		return ps;
+	}
+
+
+	//Close every cached statement, called when the connection is discarded
+	//
+	public synchronized void closeAll(){
+
+		for(PreparedStatement ps : statements.values()){
+			closeQuietly(ps);
+		}
+
+		statements.clear();
+	}
+
+
+	public synchronized long getHits(){
+		return hits;
+	}
+
+	public synchronized long getMisses(){
+		return misses;
+	}
+
+	public synchronized int size(){
+		return statements.size();
+	}
+
+
+	private static void closeQuietly(PreparedStatement ps){
+
+		try{
+			ps.close();
+		}
+
+		catch(SQLException e){
+			System.err.println(e);
+		}
+	}
+}
@@ -1,8 +1,31 @@
 
+import java.util.Comparator;
+
 public class Student {
 
-	private int id_num, zip;
+	//Sort order used by every student list: last name, then first name,
+	//	then id_num.  Matches the ORDER BY of the roster queries
+	//
+	public static final Comparator<Student> BY_NAME = new Comparator<Student>(){
+		public int compare(Student a, Student b){
+			
+			int result = compareNames(a.lastName, b.lastName);
+			
+			if(result == 0){
+				result = compareNames(a.firstName, b.firstName);
+			}
+			
+			if(result == 0){
+				result = Integer.compare(a.id_num, b.id_num);
+			}
+			
+			return result;
+		}
+	};
+
+	private int id_num, zip, version;
 	private String firstName, lastName, address, city,  state, dob;
+	private boolean active = true;
 	
 	
 	public Student(){
@@ -68,4 +91,50 @@ public class Student {
 		return dob;
 	}
 	
+	public boolean isActive(){
+		return active;
+	}
+	
+	public void setActive(boolean isActive){
+		active = isActive;
+	}
+	
+	
+	//The row version this copy of the student was read at (or saved as)
+	//
+	public int getVersion(){
+		return version;
+	}
+	
+	public void setVersion(int rowVersion){
+		version = rowVersion;
+	}
+	
+	
+	//Copy of this student with a different id_num, used once the database
+	//	has assigned an id to a new student
+	//
+	public Student withID(int id){
+		
+		Student copy = new Student(id, firstName, lastName, address, city, state, zip + "", dob);
+		copy.active = active;
+		copy.version = version;
+		
+		return copy;
+	}
+	
+	
+	private static int compareNames(String a, String b){
+		
+		if(a == null){
+			a = "";
+		}
+		
+		if(b == null){
+			b = "";
+		}
+		
+		return a.compareTo(b);
+	}
+	
 }
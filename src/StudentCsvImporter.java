@@ -0,0 +1,444 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+
+//Bulk import of new students from a CSV file with the columns
+//	first, last, address, city, state, zip, dob
+//	(a header row with those names is optional).
+//
+//	The file is streamed one record at a time, so its size does not matter.
+//	Valid rows are inserted in prepared statement batches of BATCH_SIZE and
+//	committed every COMMIT_SIZE rows, so an import of thousands of students
+//	costs a handful of commits instead of one per student.  A row is skipped
+//	as a duplicate if a student with the same first name, last name and date
+//	of birth already exists or appeared earlier in the file.  Every row that
+//	is not imported is written to a rejected-rows file with the reason.
+//
+public class StudentCsvImporter {
+
+	private static final int BATCH_SIZE = 1000;
+	private static final int COMMIT_SIZE = 10000;
+	private static final int COLUMNS = 7;
+
+	private static final String INSERT =
+			"INSERT INTO student (first_name, last_name, address, city, state, zip, dob) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+	private static final String EXISTING_KEYS =
+			"SELECT first_name, last_name, dob FROM student";
+
+	//Dates of birth are accepted as 2001-09-30 or 9/30/2001
+	//
+	private static final DateTimeFormatter US_DATE = DateTimeFormatter.ofPattern("M/d/uuuu");
+
+	private static final Pattern STATE = Pattern.compile("[A-Za-z]{2}");
+	private static final Pattern ZIP = Pattern.compile("\\d{5}");
+
+	private final ConnectionPool pool;
+
+
+	//Told how far the import has got after every commit
+	//
+	public interface Progress{
+		void committed(ImportResult soFar);
+	}
+
+
+	public StudentCsvImporter(ConnectionPool connectionPool){
+		pool = connectionPool;
+	}
+
+
+	//The file rejected rows of csv are written to, next to csv itself
+	//
+	public static File rejectsFileFor(File csv){
+		return new File(csv.getParentFile(), csv.getName() + ".rejected.csv");
+	}
+
+
+	//Import every valid new student in csv.  Invalid and duplicate rows go
+	//	to rejects, which is only left on disk if there were any
+	//
+	public ImportResult importFile(File csv, File rejects, Progress progress) throws IOException, SQLException{
+
+		ImportResult result = new ImportResult();
+		Connection c = pool.getConnection();
+
+		BufferedReader in = Files.newBufferedReader(csv.toPath(), StandardCharsets.UTF_8);
+		BufferedWriter rejected = Files.newBufferedWriter(rejects.toPath(), StandardCharsets.UTF_8);
+
+		try{
+			Set<String> known = loadExistingKeys(c);
+
+			rejected.write("line,reason,record");
+			rejected.newLine();
+
+			c.setAutoCommit(false);
+
+			PreparedStatement insert = pool.prepare(c, INSERT);
+			CsvRecordReader records = new CsvRecordReader(in);
+			List<String> fields;
+			int batched = 0, uncommitted = 0;
+			boolean first = true;
+
+			while((fields = records.next()) != null){
+
+				//A header can only be the first record, after any blank lines
+				//
+				if(first){
+					first = false;
+
+					if(isHeader(fields)){
+						continue;
+					}
+				}
+
+				result.read++;
+
+				String problem = validate(fields);
+
+				if(problem != null){
+					result.rejected++;
+					reject(rejected, records, problem);
+					continue;
+				}
+
+				if(!known.add(dedupeKey(fields.get(0), fields.get(1), fields.get(6)))){
+					result.duplicates++;
+					reject(rejected, records, "duplicate student");
+					continue;
+				}
+
+				for(int i = 0; i < COLUMNS; i++){
+					if(i == 5){
+						insert.setInt(6, Integer.parseInt(fields.get(5).trim()));
+					}
+
+					else if(i == 6){
+						insert.setString(7, normalizeDate(fields.get(6)));
+					}
+
+					else{
+						insert.setString(i + 1, fields.get(i).trim());
+					}
+				}
+
+				insert.addBatch();
+				batched++;
+				uncommitted++;
+
+				if(batched == BATCH_SIZE){
+					insert.executeBatch();
+					batched = 0;
+				}
+
+				if(uncommitted == COMMIT_SIZE){
+					c.commit();
+					result.imported += uncommitted;
+					uncommitted = 0;
+					result.finish();
+
+					if(progress != null){
+						progress.committed(result);
+					}
+				}
+			}
+
+			if(batched > 0){
+				insert.executeBatch();
+			}
+
+			c.commit();
+			c.setAutoCommit(true);
+			result.imported += uncommitted;
+		}
+
+		finally{
+			//Rolls back the last chunk if the commit was not reached
+			//
+			pool.releaseConnection(c);
+			in.close();
+			rejected.close();
+			result.finish();
+		}
+
+		if(result.rejected + result.duplicates == 0){
+			Files.deleteIfExists(rejects.toPath());
+		}
+
+		return result;
+	}
+
+
+	//The reason a row cannot be imported, or null if it is fine
+	//
+	static String validate(List<String> fields){
+
+		if(fields.size() != COLUMNS){
+			return "expected " + COLUMNS + " fields, found " + fields.size();
+		}
+
+		if(fields.get(0).trim().isEmpty() || fields.get(1).trim().isEmpty()){
+			return "first and last name are required";
+		}
+
+		if(!STATE.matcher(fields.get(4).trim()).matches()){
+			return "state must be a two letter code";
+		}
+
+		if(!ZIP.matcher(fields.get(5).trim()).matches()){
+			return "zip must be five digits";
+		}
+
+		if(normalizeDate(fields.get(6)) == null){
+			return "date of birth must be YYYY-MM-DD or MM/DD/YYYY";
+		}
+
+		return null;
+	}
+
+
+	private static boolean isHeader(List<String> fields){
+		return !fields.isEmpty() && fields.get(0).trim().equalsIgnoreCase("first");
+	}
+
+
+	//Students are the same person if they share a name and birthday, in
+	//	any letter case and either date format
+	//
+	private static String dedupeKey(String first, String last, String dob){
+
+		String date = normalizeDate(dob);
+
+		return (first == null ? "" : first.trim().toLowerCase()) + '\u0000'
+				+ (last == null ? "" : last.trim().toLowerCase()) + '\u0000'
+				+ (date == null ? (dob == null ? "" : dob.trim()) : date);
+	}
+
+
+	//The date in ISO form, or null if it is not a valid date
+	//
+	private static String normalizeDate(String text){
+
+		if(text == null){
+			return null;
+		}
+
+		String date = text.trim();
+
+		try{
+			if(date.indexOf('/') >= 0){
+				return LocalDate.parse(date, US_DATE).toString();
+			}
+
+			return LocalDate.parse(date).toString();
+		}
+
+		catch(DateTimeParseException e){
+			return null;
+		}
+	}
+
+
+	private Set<String> loadExistingKeys(Connection c) throws SQLException{
+
+		Set<String> keys = new HashSet<String>();
+		ResultSet rs = pool.prepare(c, EXISTING_KEYS).executeQuery();
+
+		try{
+			while(rs.next()){
+				keys.add(dedupeKey(rs.getString("first_name"), rs.getString("last_name"), rs.getString("dob")));
+			}
+		}
+
+		finally{
+			rs.close();
+		}
+
+		return keys;
+	}
+
+
+	private static void reject(BufferedWriter out, CsvRecordReader records, String reason) throws IOException{
+
+		out.write(Integer.toString(records.getLine()));
+		out.write(',');
+		out.write(quote(reason));
+		out.write(',');
+		out.write(quote(records.getRaw()));
+		out.newLine();
+	}
+
+
+	private static String quote(String field){
+		return '"' + field.replace("\"", "\"\"") + '"';
+	}
+
+
+	//Counts and timing of one import
+	//
+	public static class ImportResult{
+
+		private final long start = System.nanoTime();
+		private long nanos;
+		private int read, imported, duplicates, rejected;
+
+		void finish(){
+			nanos = System.nanoTime() - start;
+		}
+
+		public int getRowsRead(){
+			return read;
+		}
+
+		public int getImported(){
+			return imported;
+		}
+
+		public int getDuplicates(){
+			return duplicates;
+		}
+
+		public int getRejected(){
+			return rejected;
+		}
+
+		public double getMillis(){
+			return nanos / 1000000.0;
+		}
+
+		public double getRowsPerSecond(){
+			return nanos == 0 ? 0 : read / (nanos / 1000000000.0);
+		}
+
+		public String toString(){
+			return String.format("Imported %d of %d students (%d duplicates, %d rejected) in %.1f s, %.0f rows/s",
+					imported, read, duplicates, rejected, getMillis() / 1000, getRowsPerSecond());
+		}
+	}
+
+
+	//Reads one CSV record at a time: comma separated, fields may be quoted
+	//	with "", a doubled "" inside quotes is a quote, and quoted fields may
+	//	span lines
+	//
+	private static class CsvRecordReader{
+
+		private final BufferedReader in;
+		private int line = 0, recordLine = 0;
+		private String raw;
+
+		CsvRecordReader(BufferedReader reader){
+			in = reader;
+		}
+
+
+		//The next record's fields, or null at the end of the file.  Blank
+		//	lines are skipped
+		//
+		List<String> next() throws IOException{
+
+			String text = in.readLine();
+
+			while(text != null && text.trim().isEmpty()){
+				line++;
+				text = in.readLine();
+			}
+
+			if(text == null){
+				return null;
+			}
+
+			line++;
+			recordLine = line;
+
+			List<String> fields = new ArrayList<String>(COLUMNS);
+			StringBuilder field = new StringBuilder();
+			StringBuilder record = new StringBuilder(text);
+			boolean quoted = false;
+			int i = 0;
+
+			while(true){
+				if(i == text.length()){
+					if(!quoted){
+						break;
+					}
+
+					//The quoted field carries on to the next line
+					//
+					text = in.readLine();
+
+					if(text == null){
+						break;
+					}
+
+					line++;
+					field.append('\n');
+					record.append('\n').append(text);
+					i = 0;
+					continue;
+				}
+
+				char ch = text.charAt(i++);
+
+				if(quoted){
+					if(ch == '"' && i < text.length() && text.charAt(i) == '"'){
+						field.append('"');
+						i++;
+					}
+
+					else if(ch == '"'){
+						quoted = false;
+					}
+
+					else{
+						field.append(ch);
+					}
+				}
+
+				else if(ch == '"'){
+					quoted = true;
+				}
+
+				else if(ch == ','){
+					fields.add(field.toString());
+					field.setLength(0);
+				}
+
+				else{
+					field.append(ch);
+				}
+			}
+
+			fields.add(field.toString());
+			raw = record.toString();
+
+			return fields;
+		}
+
+		//Line number the current record started on
+		//
+		int getLine(){
+			return recordLine;
+		}
+
+		String getRaw(){
+			return raw;
+		}
+	}
+}
@@ -0,0 +1,386 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+//In memory cache of the student table in front of StudentRepository.
+//	The active roster and the full roster are each loaded once, the first
+//	time they are asked for, with the repository's sorted roster queries.
+//	Full detail records are loaded on demand and kept in a bounded LRU map.
+//	Inserts, updates and deletes write through to the database and then
+//	update only the entry they touched.
+//
+//	A roster list is never changed once it has been handed out: a write
+//	builds a new copy, so callers get read-only lists that stay valid
+//	without holding the lock.
+//
+//	Other workstations and the CSV import write to the table too.  Triggers
+//	count every student row written, and each roster read first looks up
+//	that count, a single row, and loads the rosters again if it moved on
+//	other than by this directory's own writes.  A detail record is read
+//	again once it is DETAIL_TTL_SECONDS old.  The database is never read
+//	while holding the lock, so a slow load does not hold up find() or a save.
+//
+public class StudentDirectory {
+
+	private static final int MAX_DETAILS = 512;
+
+	private static final long DETAIL_TTL_SECONDS = 30;
+
+	private final StudentRepository repository;
+
+	//Summaries (id, names, active flag) sorted by name, null until loaded
+	//
+	private List<Student> active, all;
+
+	private final LinkedHashMap<Integer, Detail> details;
+
+	//The table's change count the rosters are up to date with, moved along
+	//	by this directory's own writes.  -1 until one is loaded
+	//
+	private long changes = -1;
+
+	//Counts writes through the directory, so a detail load that overlapped
+	//	one is not cached over what the write put there
+	//
+	private long writes = 0;
+
+	private long summaryHits, summaryMisses, detailHits, detailMisses, evictions;
+
+
+	public StudentDirectory(StudentRepository studentRepository){
+
+		repository = studentRepository;
+
+		//Access ordered so the least recently viewed student is evicted first
+		//
+		details = new LinkedHashMap<Integer, Detail>(64, 0.75f, true){
+			private static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry(Map.Entry<Integer, Detail> eldest){
+
+				if(size() > MAX_DETAILS){
+					evictions++;
+					return true;
+				}
+
+				return false;
+			}
+		};
+	}
+
+
+	//Active students sorted by name, as a read-only list
+	//
+	public List<Student> activeStudents() throws SQLException{
+		return roster(false);
+	}
+
+
+	//Every student, including inactive ones, sorted by name, as a read-only list
+	//
+	public List<Student> allStudents() throws SQLException{
+		return roster(true);
+	}
+
+
+	//Full record for one student, from the cache if it has been viewed recently
+	//
+	public Student find(int id) throws SQLException{
+
+		long writesBefore;
+
+		synchronized(this){
+			Detail cached = details.get(id);
+
+			if(cached != null && !cached.isExpired()){
+				detailHits++;
+				return cached.student;
+			}
+
+			detailMisses++;
+			writesBefore = writes;
+		}
+
+		Student detail = repository.findById(id);
+
+		if(detail != null){
+			synchronized(this){
+				if(writes == writesBefore){
+					details.put(id, new Detail(detail));
+				}
+			}
+		}
+
+		return detail;
+	}
+
+
+	//Insert the student and return it with the id_num the database assigned
+	//
+	public Student insert(Student s) throws SQLException{
+
+		Student inserted = s.withID(repository.insert(s));
+		inserted.setActive(true);
+
+		synchronized(this){
+			wrote();
+
+			Student summary = summaryOf(inserted);
+			active = with(active, summary);
+			all = with(all, summary);
+			details.put(inserted.getID(), new Detail(inserted));
+		}
+
+		return inserted;
+	}
+
+
+	//Save the student.  Saving always reactivates the student.  If someone
+	//	else saved the student first, the cache takes their version before
+	//	the StaleStudentException is passed on
+	//
+	public boolean update(Student s) throws SQLException{
+
+		try{
+			if(!repository.update(s)){
+				return false;
+			}
+		}
+
+		catch(StaleStudentException e){
+			synchronized(this){
+				details.put(e.getCurrent().getID(), new Detail(e.getCurrent()));
+			}
+
+			throw e;
+		}
+
+		synchronized(this){
+			wrote();
+
+			s.setActive(true);
+			Student summary = summaryOf(s);
+			active = with(active, summary);
+			all = with(all, summary);
+			details.put(s.getID(), new Detail(s));
+		}
+
+		return true;
+	}
+
+
+	//Mark the student inactive.  Deleting bumps the row version, so the
+	//	detail is dropped from the cache and read again when next opened
+	//
+	public boolean delete(int id) throws SQLException{
+
+		if(!repository.softDelete(id)){
+			return false;
+		}
+
+		synchronized(this){
+			wrote();
+
+			Student summary = findIn(all, id);
+			active = without(active, id);
+
+			if(summary != null){
+				summary = summaryOf(summary);
+				summary.setActive(false);
+				all = with(all, summary);
+			}
+
+			details.remove(id);
+		}
+
+		return true;
+	}
+
+
+	//Drop everything so the next read goes back to the database
+	//
+	public synchronized void invalidate(){
+
+		active = null;
+		all = null;
+		details.clear();
+		changes = -1;
+		writes++;
+	}
+
+
+	public synchronized long getSummaryHits(){
+		return summaryHits;
+	}
+
+	public synchronized long getSummaryMisses(){
+		return summaryMisses;
+	}
+
+	public synchronized long getDetailHits(){
+		return detailHits;
+	}
+
+	public synchronized long getDetailMisses(){
+		return detailMisses;
+	}
+
+	public synchronized long getEvictions(){
+		return evictions;
+	}
+
+	public synchronized int getDetailCount(){
+		return details.size();
+	}
+
+
+	public synchronized String toString(){
+		return String.format("directory[active=%d, all=%d, list hits=%d misses=%d, details=%d/%d hits=%d misses=%d evictions=%d]",
+				active == null ? 0 : active.size(), all == null ? 0 : all.size(), summaryHits, summaryMisses,
+				details.size(), MAX_DETAILS, detailHits, detailMisses, evictions);
+	}
+
+
+	//The active or full roster, from the cache if nobody else has written
+	//	to the table since it was loaded.  The change count is read before
+	//	the roster, so a write in between makes the next read load again
+	//	rather than go unseen
+	//
+	private List<Student> roster(boolean includeInactive) throws SQLException{
+
+		long current = repository.changeCount();
+
+		synchronized(this){
+			if(current != changes){
+				active = null;
+				all = null;
+				details.clear();
+				changes = current;
+			}
+
+			List<Student> cached = includeInactive ? all : active;
+
+			if(cached != null){
+				summaryHits++;
+				return cached;
+			}
+
+			summaryMisses++;
+		}
+
+		List<Student> loaded = Collections.unmodifiableList(includeInactive ? repository.listAll() : repository.listActive());
+
+		synchronized(this){
+			//Not cached if anything was written meanwhile, through the
+			//	directory or by someone else: it may or may not be included
+			//
+			if(changes == current){
+				if(includeInactive){
+					all = loaded;
+				}
+
+				else{
+					active = loaded;
+				}
+			}
+		}
+
+		return loaded;
+	}
+
+
+	//Count a write through the directory, which the triggers count too
+	//
+	private void wrote(){
+
+		writes++;
+
+		if(changes >= 0){
+			changes++;
+		}
+	}
+
+
+	//The id, names and active flag of s, as the roster lists keep them
+	//
+	private static Student summaryOf(Student s){
+
+		Student summary = new Student(s.getID(), s.getFirst(), s.getLast());
+		summary.setActive(s.isActive());
+
+		return summary;
+	}
+
+
+	//A copy of roster with summary in its sorted place, replacing any entry
+	//	with the same id_num.  null stays null, a roster not loaded yet
+	//
+	private static List<Student> with(List<Student> roster, Student summary){
+
+		if(roster == null){
+			return null;
+		}
+
+		List<Student> copy = copyWithout(roster, summary.getID());
+		int found = Collections.binarySearch(copy, summary, Student.BY_NAME);
+
+		copy.add(found >= 0 ? found : -(found + 1), summary);
+
+		return Collections.unmodifiableList(copy);
+	}
+
+
+	private static List<Student> without(List<Student> roster, int id){
+		return roster == null ? null : Collections.unmodifiableList(copyWithout(roster, id));
+	}
+
+
+	private static List<Student> copyWithout(List<Student> roster, int id){
+
+		List<Student> copy = new ArrayList<Student>(roster.size() + 1);
+
+		for(Student s : roster){
+			if(s.getID() != id){
+				copy.add(s);
+			}
+		}
+
+		return copy;
+	}
+
+
+	private static Student findIn(List<Student> roster, int id){
+
+		if(roster != null){
+			for(Student s : roster){
+				if(s.getID() == id){
+					return s;
+				}
+			}
+		}
+
+		return null;
+	}
+
+
+	//A detail record and when it was cached
+	//
+	private static class Detail{
+
+		private final Student student;
+		private final long cachedAt = System.nanoTime();
+
+		Detail(Student s){
+			student = s;
+		}
+
+		boolean isExpired(){
+			return System.nanoTime() - cachedAt > TimeUnit.SECONDS.toNanos(DETAIL_TTL_SECONDS);
+		}
+	}
+}
@@ -0,0 +1,157 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import javax.swing.AbstractListModel;
+
+
+//Sorted list model for the student JList.  Students are kept in
+//	Student.BY_NAME order and found with a binary search, so an insert,
+//	update or removal touches one row and fires one small event instead of
+//	clearing and refilling the whole list.  Only use from the EDT.
+//
+public class StudentListModel extends AbstractListModel<Student> {
+
+	private static final long serialVersionUID = 1L;
+
+	private ArrayList<Student> rows = new ArrayList<Student>();
+	private Map<Integer, Student> byId = new HashMap<Integer, Student>();
+
+
+	public int getSize(){
+		return rows.size();
+	}
+
+	public Student getElementAt(int index){
+		return rows.get(index);
+	}
+
+
+	//Position of the student with this id_num, or -1 if it is not in the list
+	//
+	public int indexOf(int id){
+
+		Student current = byId.get(id);
+
+		if(current == null){
+			return -1;
+		}
+
+		return Collections.binarySearch(rows, current, Student.BY_NAME);
+	}
+
+
+	public boolean contains(int id){
+		return byId.containsKey(id);
+	}
+
+
+	//Replace the whole list with the given students.  The rows both lists
+	//	have are reported changed in one event, and the rows gained or lost
+	//	at the end as one added or removed interval, so a JList never keeps
+	//	a selection or anchor index past the end of the new list
+	//
+	public void setAll(Collection<Student> students){
+
+		int oldSize = rows.size();
+
+		rows = new ArrayList<Student>(students);
+		Collections.sort(rows, Student.BY_NAME);
+
+		byId.clear();
+		for(Student s : rows){
+			byId.put(s.getID(), s);
+		}
+
+		int newSize = rows.size();
+		int overlap = Math.min(oldSize, newSize);
+
+		if(overlap > 0){
+			fireContentsChanged(this, 0, overlap - 1);
+		}
+
+		if(oldSize > newSize){
+			fireIntervalRemoved(this, newSize, oldSize - 1);
+		}
+
+		else if(newSize > oldSize){
+			fireIntervalAdded(this, oldSize, newSize - 1);
+		}
+	}
+
+
+	//Insert a student, or replace the entry with the same id_num.  If the
+	//	name did not change the row is updated in place
+	//
+	public void put(Student s){
+
+		int old = indexOf(s.getID());
+
+		if(old >= 0 && sameSlot(old, s)){
+			rows.set(old, s);
+			byId.put(s.getID(), s);
+			fireContentsChanged(this, old, old);
+			return;
+		}
+
+		if(old >= 0){
+			removeAt(old);
+		}
+
+		int position = insertionPoint(s);
+
+		rows.add(position, s);
+		byId.put(s.getID(), s);
+		fireIntervalAdded(this, position, position);
+	}
+
+
+	//Remove the student with this id_num, returns false if it was not listed
+	//
+	public boolean remove(int id){
+
+		int index = indexOf(id);
+
+		if(index < 0){
+			return false;
+		}
+
+		removeAt(index);
+
+		return true;
+	}
+
+
+	private void removeAt(int index){
+
+		Student removed = rows.remove(index);
+		byId.remove(removed.getID());
+
+		fireIntervalRemoved(this, index, index);
+	}
+
+
+	//Would s sort into the same row as the entry at index
+	//
+	private boolean sameSlot(int index, Student s){
+
+		if(index > 0 && Student.BY_NAME.compare(rows.get(index - 1), s) >= 0){
+			return false;
+		}
+
+		if(index < rows.size() - 1 && Student.BY_NAME.compare(rows.get(index + 1), s) <= 0){
+			return false;
+		}
+
+		return true;
+	}
+
+
+	private int insertionPoint(Student s){
+
+		int found = Collections.binarySearch(rows, s, Student.BY_NAME);
+
+		return found >= 0 ? found : -(found + 1);
+	}
+}
@@ -0,0 +1,530 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+//Data access for the student table.  Every query is a parameterized
+//	PreparedStatement taken from the connection pool's statement cache,
+//	so SQLite parses and plans each one once per connection instead of
+//	once per click.
+//
+//	Updates are optimistic: every write bumps the row's version, and an
+//	update only applies if the row still has the version the caller read.
+//	Otherwise nothing is written and a StaleStudentException says who won.
+//
+public class StudentRepository {
+
+	private static final String FIND_BY_ID =
+			"SELECT id_num, first_name, last_name, address, city, state, zip, dob, active, version FROM student WHERE id_num = ?";
+
+	//Both roster queries are answered from covering indexes (see SchemaMigrator),
+	//	so SQLite walks the index in order instead of reading and sorting the table
+	//
+	private static final String LIST_ACTIVE =
+			"SELECT id_num, last_name, first_name FROM student WHERE active = 1 ORDER BY last_name, first_name, id_num";
+
+	private static final String LIST_ALL =
+			"SELECT id_num, last_name, first_name, active FROM student ORDER BY last_name, first_name, id_num";
+
+	//Keyset pagination over the same two indexes.  A page starts right after
+	//	(or ends right before) the (last_name, first_name, id_num) of a row that
+	//	is already known, so SQLite seeks straight to it in the index.  OFFSET
+	//	is only used to jump to a page with no known neighbour
+	//
+	private static final String ACTIVE_COLUMNS = "SELECT id_num, last_name, first_name, active FROM student WHERE active = 1";
+	private static final String ALL_COLUMNS = "SELECT id_num, last_name, first_name, active FROM student WHERE 1 = 1";
+	private static final String AFTER_KEY = " AND (last_name, first_name, id_num) > (?, ?, ?)";
+	private static final String BEFORE_KEY = " AND (last_name, first_name, id_num) < (?, ?, ?)";
+	private static final String FORWARD = " ORDER BY last_name, first_name, id_num LIMIT ?";
+	private static final String BACKWARD = " ORDER BY last_name DESC, first_name DESC, id_num DESC LIMIT ?";
+
+	private static final String COUNT_ACTIVE = "SELECT count(*) FROM student WHERE active = 1";
+	private static final String COUNT_ALL = "SELECT count(*) FROM student";
+
+	//Bumped once per student row written, by triggers (see SchemaMigrator)
+	//
+	private static final String CHANGES = "SELECT changes FROM student_changes WHERE id = 1";
+
+	//Prefix search over names, id, city and zip through the student_fts index.
+	//	Matches come back in rowid order and there is no ORDER BY, so SQLite
+	//	stops after the first limit matches instead of sorting every match of a
+	//	broad prefix.  The list model sorts the few rows that come back
+	//
+	private static final String SEARCH =
+			"SELECT s.id_num, s.last_name, s.first_name, s.active FROM student_fts f "
+			+ "JOIN student s ON s.id_num = f.rowid WHERE student_fts MATCH ?";
+	private static final String SEARCH_ACTIVE = SEARCH + " AND s.active = 1";
+	private static final String SEARCH_LIMIT = " LIMIT ?";
+
+	private static final String INSERT =
+			"INSERT INTO student (first_name, last_name, address, city, state, zip, dob) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+	private static final String LAST_INSERT_ID =
+			"SELECT last_insert_rowid()";
+
+	private static final String UPDATE =
+			"UPDATE student SET first_name = ?, last_name = ?, address = ?, city = ?, state = ?, zip = ?, dob = ?, active = 1, "
+			+ "version = version + 1 WHERE id_num = ? AND version = ?";
+
+	private static final String SOFT_DELETE =
+			"UPDATE student SET active = 0, version = version + 1 WHERE id_num = ?";
+
+	private final ConnectionPool pool;
+
+
+	//Optimistic updates attempted and how many of them hit a newer version
+	//
+	private final AtomicLong updates = new AtomicLong();
+	private final AtomicLong conflicts = new AtomicLong();
+
+
+	public StudentRepository(ConnectionPool connectionPool){
+		pool = connectionPool;
+	}
+
+
+	//Load every column for a single student, returns null if the id does not exist
+	//
+	public Student findById(int id) throws SQLException{
+
+		Connection c = pool.getConnection();
+
+		try{
+			PreparedStatement ps = pool.prepare(c, FIND_BY_ID);
+			ps.setInt(1, id);
+
+			ResultSet rs = ps.executeQuery();
+
+			try{
+				if(rs.next()){
+					return readDetail(rs);
+				}
+
+				return null;
+			}
+
+			finally{
+				rs.close();
+			}
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+	}
+
+
+	//Load the id, first name and last name of each active student
+	//
+	public List<Student> listActive() throws SQLException{
+
+		List<Student> students = new ArrayList<Student>();
+		Connection c = pool.getConnection();
+
+		try{
+			ResultSet rs = pool.prepare(c, LIST_ACTIVE).executeQuery();
+
+			try{
+				while(rs.next()){
+					students.add(readSummary(rs));
+				}
+			}
+
+			finally{
+				rs.close();
+			}
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+
+		return students;
+	}
+
+
+	//Load the id, first name, last name and active flag of every student,
+	//	including inactive ones
+	//
+	public List<Student> listAll() throws SQLException{
+
+		List<Student> students = new ArrayList<Student>();
+		Connection c = pool.getConnection();
+
+		try{
+			ResultSet rs = pool.prepare(c, LIST_ALL).executeQuery();
+
+			try{
+				while(rs.next()){
+					Student s = readSummary(rs);
+					s.setActive(rs.getInt("active") == 1);
+					students.add(s);
+				}
+			}
+
+			finally{
+				rs.close();
+			}
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+
+		return students;
+	}
+
+
+	//Number of students in the active or the complete roster
+	//
+	public int count(boolean includeInactive) throws SQLException{
+
+		Connection c = pool.getConnection();
+
+		try{
+			ResultSet rs = pool.prepare(c, includeInactive ? COUNT_ALL : COUNT_ACTIVE).executeQuery();
+
+			try{
+				rs.next();
+				return rs.getInt(1);
+			}
+
+			finally{
+				rs.close();
+			}
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+	}
+
+
+	//How many student rows have been inserted, updated or deleted, by
+	//	anyone, since the counter was added.  One row read by primary key
+	//
+	public long changeCount() throws SQLException{
+
+		Connection c = pool.getConnection();
+
+		try{
+			ResultSet rs = pool.prepare(c, CHANGES).executeQuery();
+
+			try{
+				return rs.next() ? rs.getLong(1) : 0;
+			}
+
+			finally{
+				rs.close();
+			}
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+	}
+
+
+	//Up to limit students in name order that come right after the given
+	//	student, or from the start of the roster if after is null
+	//
+	public List<Student> pageAfter(boolean includeInactive, Student after, int limit) throws SQLException{
+
+		String sql = (includeInactive ? ALL_COLUMNS : ACTIVE_COLUMNS) + (after == null ? "" : AFTER_KEY) + FORWARD;
+
+		return page(sql, after, limit, -1);
+	}
+
+
+	//Up to limit students in name order that come right before the given student
+	//
+	public List<Student> pageBefore(boolean includeInactive, Student before, int limit) throws SQLException{
+
+		String sql = (includeInactive ? ALL_COLUMNS : ACTIVE_COLUMNS) + BEFORE_KEY + BACKWARD;
+
+		List<Student> page = page(sql, before, limit, -1);
+		Collections.reverse(page);
+
+		return page;
+	}
+
+
+	//Up to limit students in name order starting at row offset
+	//
+	public List<Student> pageAt(boolean includeInactive, int offset, int limit) throws SQLException{
+
+		String sql = (includeInactive ? ALL_COLUMNS : ACTIVE_COLUMNS) + FORWARD + " OFFSET ?";
+
+		return page(sql, null, limit, offset);
+	}
+
+
+	//Students whose first name, last name, id, city or zip start with every
+	//	word typed, up to limit of them.  Returns an empty list for a blank search
+	//
+	public List<Student> search(String text, boolean includeInactive, int limit) throws SQLException{
+
+		List<Student> students = new ArrayList<Student>();
+		String match = matchExpression(text);
+
+		if(match.isEmpty()){
+			return students;
+		}
+
+		Connection c = pool.getConnection();
+
+		try{
+			PreparedStatement ps = pool.prepare(c, (includeInactive ? SEARCH : SEARCH_ACTIVE) + SEARCH_LIMIT);
+			ps.setString(1, match);
+			ps.setInt(2, limit);
+
+			ResultSet rs = ps.executeQuery();
+
+			try{
+				while(rs.next()){
+					Student s = readSummary(rs);
+					s.setActive(rs.getInt("active") == 1);
+					students.add(s);
+				}
+			}
+
+			finally{
+				rs.close();
+			}
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+
+		return students;
+	}
+
+
+	//Turn what the user typed into an FTS5 query: every word becomes a
+	//	quoted prefix term, so punctuation and FTS operators are never
+	//	interpreted.  "smi spring" becomes "smi"* "spring"*
+	//
+	static String matchExpression(String text){
+
+		StringBuilder match = new StringBuilder();
+
+		for(String word : text.split("[^\\p{L}\\p{N}]+")){
+			if(!word.isEmpty()){
+				if(match.length() > 0){
+					match.append(' ');
+				}
+
+				match.append('"').append(word).append("\"*");
+			}
+		}
+
+		return match.toString();
+	}
+
+
+	//Insert a new student and return the id_num the database assigned to it
+	//
+	public int insert(Student s) throws SQLException{
+
+		Connection c = pool.getConnection();
+
+		try{
+			PreparedStatement ps = pool.prepare(c, INSERT);
+			ps.setString(1, s.getFirst());
+			ps.setString(2, s.getLast());
+			ps.setString(3, s.getAddress());
+			ps.setString(4, s.getCity());
+			ps.setString(5, s.getState());
+			ps.setInt(6, s.getZip());
+			ps.setString(7, s.getDOB());
+			ps.executeUpdate();
+
+			//last_insert_rowid is per connection, so this is the row inserted above
+			//
+			ResultSet rs = pool.prepare(c, LAST_INSERT_ID).executeQuery();
+
+			try{
+				rs.next();
+				return rs.getInt(1);
+			}
+
+			finally{
+				rs.close();
+			}
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+	}
+
+
+	//Overwrite the stored student with the same id_num, if it is still at
+	//	the version s was read at.  Returns false if there is no such
+	//	student, and throws StaleStudentException if someone else saved it
+	//	in the meantime.  On success s carries the new version.  Saving a
+	//	student also marks them active again
+	//
+	public boolean update(Student s) throws SQLException{
+
+		Connection c = pool.getConnection();
+
+		try{
+			PreparedStatement ps = pool.prepare(c, UPDATE);
+			ps.setString(1, s.getFirst());
+			ps.setString(2, s.getLast());
+			ps.setString(3, s.getAddress());
+			ps.setString(4, s.getCity());
+			ps.setString(5, s.getState());
+			ps.setInt(6, s.getZip());
+			ps.setString(7, s.getDOB());
+			ps.setInt(8, s.getID());
+			ps.setInt(9, s.getVersion());
+
+			updates.incrementAndGet();
+
+			if(ps.executeUpdate() == 1){
+				s.setVersion(s.getVersion() + 1);
+				return true;
+			}
+
+			//Nothing matched: either the student is gone or the version moved on
+			//
+			ps = pool.prepare(c, FIND_BY_ID);
+			ps.setInt(1, s.getID());
+			ResultSet rs = ps.executeQuery();
+
+			try{
+				if(!rs.next()){
+					return false;
+				}
+
+				conflicts.incrementAndGet();
+				throw new StaleStudentException(readDetail(rs), s.getVersion());
+			}
+
+			finally{
+				rs.close();
+			}
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+	}
+
+
+	public long getUpdateCount(){
+		return updates.get();
+	}
+
+	public long getConflictCount(){
+		return conflicts.get();
+	}
+
+	//Share of updates rejected as stale, 0 to 1
+	//
+	public double getConflictRate(){
+		long count = updates.get();
+
+		return count == 0 ? 0 : conflicts.get() / (double)count;
+	}
+
+	public String toString(){
+		return String.format("students[updates=%d, conflicts=%d (%.1f%%)]",
+				getUpdateCount(), getConflictCount(), 100 * getConflictRate());
+	}
+
+
+	//Students are never removed from the table, they are flagged inactive
+	//	so rows in other tables that point at them stay valid
+	//
+	public boolean softDelete(int id) throws SQLException{
+
+		Connection c = pool.getConnection();
+
+		try{
+			PreparedStatement ps = pool.prepare(c, SOFT_DELETE);
+			ps.setInt(1, id);
+
+			return ps.executeUpdate() == 1;
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+	}
+
+
+	private List<Student> page(String sql, Student key, int limit, int offset) throws SQLException{
+
+		List<Student> students = new ArrayList<Student>(limit);
+		Connection c = pool.getConnection();
+
+		try{
+			PreparedStatement ps = pool.prepare(c, sql);
+			int param = 1;
+
+			if(key != null){
+				ps.setString(param++, key.getLast());
+				ps.setString(param++, key.getFirst());
+				ps.setInt(param++, key.getID());
+			}
+
+			ps.setInt(param++, limit);
+
+			if(offset >= 0){
+				ps.setInt(param++, offset);
+			}
+
+			ResultSet rs = ps.executeQuery();
+
+			try{
+				while(rs.next()){
+					Student s = readSummary(rs);
+					s.setActive(rs.getInt("active") == 1);
+					students.add(s);
+				}
+			}
+
+			finally{
+				rs.close();
+			}
+		}
+
+		finally{
+			pool.releaseConnection(c);
+		}
+
+		return students;
+	}
+
+
+	private static Student readSummary(ResultSet rs) throws SQLException{
+		return new Student(rs.getInt("id_num"), rs.getString("first_name"), rs.getString("last_name"));
+	}
+
+
+	private static Student readDetail(ResultSet rs) throws SQLException{
+
+		Student s = new Student(rs.getInt("id_num"),
+							rs.getString("first_name"),
+							rs.getString("last_name"),
+							rs.getString("address"),
+							rs.getString("city"),
+							rs.getString("state"),
+							rs.getString("zip"),
+							rs.getString("dob"));
+
+		s.setActive(rs.getInt("active") == 1);
+		s.setVersion(rs.getInt("version"));
+
+		return s;
+	}
+}
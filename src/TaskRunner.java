@@ -0,0 +1,170 @@
+import java.awt.BorderLayout;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.SwingWorker;
+import javax.swing.border.EmptyBorder;
+
+
+//Runs BackgroundTasks and shows their progress in a status bar along the
+//	bottom of the main window.  All methods must be called on the EDT.
+//
+//	Loads are keyed by what they load.  Starting a new load with the same key
+//	cancels the old one, and cancelLoads() drops every load when the user
+//	switches cards.  Updates (saves, deletes) are never cancelled once started.
+//
+//	Every task is timed from start to finish in the MetricsRegistry as
+//	task.<name>, and counted in task.<name>.cancelled if it was cancelled,
+//	and is a gradebook.Task Flight Recorder event with its description.
+//
+public class TaskRunner extends JPanel {
+
+	private static final long serialVersionUID = 1L;
+
+	private JLabel lblStatus;
+	private JProgressBar progressBar;
+
+	private Map<String, BackgroundTask<?>> loads;
+	private List<BackgroundTask<?>> running;
+	private Map<BackgroundTask<?>, Long> started;
+	private Map<BackgroundTask<?>, FlightRecording.TaskEvent> events;
+
+
+	public TaskRunner(){
+
+		loads = new HashMap<String, BackgroundTask<?>>();
+		running = new ArrayList<BackgroundTask<?>>();
+		started = new HashMap<BackgroundTask<?>, Long>();
+		events = new HashMap<BackgroundTask<?>, FlightRecording.TaskEvent>();
+
+		lblStatus = new JLabel("Ready");
+		progressBar = new JProgressBar(0, 100);
+		progressBar.setVisible(false);
+
+		this.setBorder(new EmptyBorder(2, 5, 2, 5));
+		this.setLayout(new BorderLayout(10, 0));
+		this.add(lblStatus, BorderLayout.CENTER);
+		this.add(progressBar, BorderLayout.EAST);
+	}
+
+
+	//Run a load, cancelling any load already running under the same key
+	//
+	public void runLoad(String key, BackgroundTask<?> task){
+
+		BackgroundTask<?> stale = loads.put(key, task);
+
+		if(stale != null){
+			stale.cancel(true);
+		}
+
+		start(task);
+	}
+
+
+	//Run an update.  Updates run to completion even if the user leaves the card
+	//
+	public void runUpdate(BackgroundTask<?> task){
+		start(task);
+	}
+
+
+	//Cancel every load that is still running, used when switching cards
+	//
+	public void cancelLoads(){
+
+		for(BackgroundTask<?> task : loads.values()){
+			task.cancel(true);
+		}
+
+		loads.clear();
+	}
+
+
+	public int getRunningCount(){
+		return running.size();
+	}
+
+
+	private void start(final BackgroundTask<?> task){
+
+		FlightRecording.TaskEvent event = new FlightRecording.TaskEvent();
+		event.begin();
+
+		running.add(task);
+		started.put(task, System.nanoTime());
+		events.put(task, event);
+
+		task.addPropertyChangeListener(new PropertyChangeListener(){
+			public void propertyChange(PropertyChangeEvent evt){
+
+				if("progress".equals(evt.getPropertyName())){
+					progressBar.setIndeterminate(false);
+					progressBar.setValue((Integer)evt.getNewValue());
+				}
+
+				else if("status".equals(evt.getPropertyName()) && !running.isEmpty() && running.get(running.size() - 1) == task){
+					lblStatus.setText((String)evt.getNewValue());
+				}
+
+				else if("state".equals(evt.getPropertyName()) && evt.getNewValue() == SwingWorker.StateValue.DONE){
+					finished(task);
+				}
+			}
+		});
+
+		task.execute();
+		updateStatus();
+	}
+
+
+	private void finished(BackgroundTask<?> task){
+
+		running.remove(task);
+		loads.values().remove(task);
+
+		Long start = started.remove(task);
+		MetricsRegistry metrics = MetricsRegistry.getInstance();
+
+		if(start != null){
+			metrics.timer("task." + task.getName()).record(System.nanoTime() - start);
+		}
+
+		if(task.isCancelled()){
+			metrics.counter("task." + task.getName() + ".cancelled").increment();
+		}
+
+		FlightRecording.TaskEvent event = events.remove(task);
+
+		if(event != null){
+			event.finish(task.getDescription(), task.isCancelled());
+		}
+
+		updateStatus();
+	}
+
+
+	//Show the newest running task in the status bar, or "Ready" if nothing is running
+	//
+	private void updateStatus(){
+
+		if(running.isEmpty()){
+			lblStatus.setText("Ready");
+			progressBar.setVisible(false);
+			return;
+		}
+
+		BackgroundTask<?> newest = running.get(running.size() - 1);
+
+		lblStatus.setText(newest.getDescription() + "...");
+		progressBar.setIndeterminate(newest.getProgress() == 0);
+		progressBar.setValue(newest.getProgress());
+		progressBar.setVisible(true);
+	}
+}
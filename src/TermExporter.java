@@ -0,0 +1,394 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+//Exports the grade grid of every section in a term to flat CSV files for
+//	the SIS, one file per section with one row per student per assignment.
+//
+//	The whole term is a single query ordered by section, read with a
+//	forward-only cursor, and every row is encoded straight into a fixed
+//	size ByteBuffer that is drained to a FileChannel when it fills.  Nothing
+//	is collected in memory, so a district-wide export uses the same memory
+//	as a single section.
+//
+//	Every column read is a call into the native driver, and most columns
+//	repeat: the course for the whole section, the student for each of their
+//	assignments, the assignment for each student.  Those are only read when
+//	they change and their CSV text is reused, so a row costs four reads.
+//
+//	A section with no roster or no assignments has no rows in the grid, so
+//	the term's sections are listed first and those get a file with only
+//	the header.  Text that cannot be encoded fails the export and the
+//	unfinished file is deleted, rather than a row being cut short.
+//
+public class TermExporter {
+
+	public static final int DEFAULT_FETCH_SIZE = 1000;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private static final String HEADER =
+			"class_id,course_number,course_name,student_id,last_name,first_name,"
+			+ "assignment_id,assignment,type,points_possible,points\n";
+
+	//Roster rows are crossed with the section's assignments, and the grade
+	//	(if any) is looked up on assignment_link's primary key.  CROSS JOIN
+	//	pins SQLite to walking sections in class_id order, so the ORDER BY
+	//	only sorts within a section and the first file is written right away
+	//	instead of after the whole term has been sorted
+	//
+	private static final String GRID =
+			"SELECT r.class_id, c.course_number, c.course_name, s.id_num, s.last_name, s.first_name, "
+			+ "a.assignment_id, a.name, t.type, a.points_possible, l.points "
+			+ "FROM course_sections cs "
+			+ "JOIN courses c ON c.course_id = cs.course_id "
+			+ "CROSS JOIN course_roster r ON r.class_id = cs.class_id "
+			+ "JOIN student s ON s.id_num = r.student_id "
+			+ "JOIN assignments a ON a.class_id = r.class_id "
+			+ "LEFT JOIN type t ON t.type_id = a.type_id "
+			+ "LEFT JOIN assignment_link l ON l.assignment_id = a.assignment_id AND l.student_id = r.student_id ";
+
+	private static final String TERM_GRID = GRID + "WHERE cs.term = ? ORDER BY cs.class_id, r.student_id, a.assignment_id";
+	private static final String ALL_GRID = GRID + "ORDER BY cs.class_id, r.student_id, a.assignment_id";
+
+	private static final String TERM_SECTIONS = "SELECT class_id FROM course_sections WHERE term = ? ORDER BY class_id";
+	private static final String ALL_SECTIONS = "SELECT class_id FROM course_sections ORDER BY class_id";
+
+	private final ConnectionPool pool;
+	private final int fetchSize;
+
+
+	public TermExporter(ConnectionPool connectionPool){
+		this(connectionPool, DEFAULT_FETCH_SIZE);
+	}
+
+	public TermExporter(ConnectionPool connectionPool, int rowsPerFetch){
+		pool = connectionPool;
+		fetchSize = rowsPerFetch;
+	}
+
+
+	//Write <term>-class<class_id>.csv into directory for every section of
+	//	the term, or of every term if term is null
+	//
+	public ExportResult exportTerm(String term, File directory) throws IOException, SQLException{
+
+		ExportResult result = new ExportResult();
+		String prefix = term == null ? "all" : term.replaceAll("[^A-Za-z0-9_-]+", "_");
+		Connection c = pool.getConnection();
+
+		ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		CsvChannelWriter out = null;
+
+		try{
+			List<Integer> sections = listSections(c, term);
+			int nextEmpty = 0;
+
+			PreparedStatement ps = pool.prepare(c, term == null ? ALL_GRID : TERM_GRID);
+			ps.setFetchDirection(ResultSet.FETCH_FORWARD);
+			ps.setFetchSize(fetchSize);
+
+			if(term != null){
+				ps.setString(1, term);
+			}
+
+			ResultSet rs = ps.executeQuery();
+
+			try{
+				int section = -1, student = -1;
+				String course = null, studentColumns = null;
+				Map<Integer, String> assignmentColumns = new HashMap<Integer, String>();
+
+				while(rs.next()){
+					int classId = rs.getInt(1);
+
+					//Rows are sorted by section, so a new class_id means the
+					//	previous section's file is complete
+					//
+					if(out == null || classId != section){
+						if(out != null){
+							result.bytes += out.close();
+						}
+
+						//Sections before this one with nothing in the grid
+						//
+						while(nextEmpty < sections.size() && sections.get(nextEmpty) <= classId){
+							if(sections.get(nextEmpty) < classId){
+								result.bytes += writeEmpty(directory, prefix, sections.get(nextEmpty), buffer);
+								result.sections++;
+							}
+
+							nextEmpty++;
+						}
+
+						section = classId;
+						student = -1;
+						assignmentColumns.clear();
+						course = classId + "," + field(rs.getString(2)) + "," + field(rs.getString(3)) + ",";
+
+						out = new CsvChannelWriter(fileFor(directory, prefix, classId), buffer);
+						out.write(HEADER);
+						result.sections++;
+					}
+
+					int studentId = rs.getInt(4);
+
+					if(studentId != student){
+						student = studentId;
+						studentColumns = course + studentId + "," + field(rs.getString(5)) + "," + field(rs.getString(6)) + ",";
+					}
+
+					int assignmentId = rs.getInt(7);
+					String assignment = assignmentColumns.get(assignmentId);
+
+					if(assignment == null){
+						assignment = assignmentId + "," + field(rs.getString(8)) + "," + field(rs.getString(9)) + ","
+								+ SectionReport.format(rs.getFloat(10)) + ",";
+						assignmentColumns.put(assignmentId, assignment);
+					}
+
+					float points = rs.getFloat(11);
+
+					out.row(studentColumns, assignment, rs.wasNull() ? "" : SectionReport.format(points));
+					result.rows++;
+				}
+			}
+
+			finally{
+				rs.close();
+			}
+
+			if(out != null){
+				result.bytes += out.close();
+				out = null;
+			}
+
+			for(; nextEmpty < sections.size(); nextEmpty++){
+				result.bytes += writeEmpty(directory, prefix, sections.get(nextEmpty), buffer);
+				result.sections++;
+			}
+		}
+
+		finally{
+			if(out != null){
+				out.abandon();
+			}
+
+			pool.releaseConnection(c);
+			result.finish();
+		}
+
+		return result;
+	}
+
+
+	//class_id of every section in the term, or in every term if term is null
+	//
+	private List<Integer> listSections(Connection c, String term) throws SQLException{
+
+		List<Integer> sections = new ArrayList<Integer>();
+		PreparedStatement ps = pool.prepare(c, term == null ? ALL_SECTIONS : TERM_SECTIONS);
+
+		if(term != null){
+			ps.setString(1, term);
+		}
+
+		ResultSet rs = ps.executeQuery();
+
+		try{
+			while(rs.next()){
+				sections.add(rs.getInt(1));
+			}
+		}
+
+		finally{
+			rs.close();
+		}
+
+		return sections;
+	}
+
+
+	private static File fileFor(File directory, String prefix, int classId){
+		return new File(directory, prefix + "-class" + classId + ".csv");
+	}
+
+
+	//A file with only the header, for a section with no rows.  Returns its size
+	//
+	private static long writeEmpty(File directory, String prefix, int classId, ByteBuffer buffer) throws IOException{
+
+		CsvChannelWriter out = new CsvChannelWriter(fileFor(directory, prefix, classId), buffer);
+
+		try{
+			out.write(HEADER);
+		}
+
+		catch(IOException e){
+			out.abandon();
+			throw e;
+		}
+
+		return out.close();
+	}
+
+
+	//A value as a CSV field, quoted only if it needs to be
+	//
+	static String field(String value){
+
+		if(value == null){
+			return "";
+		}
+
+		if(value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0){
+			return value;
+		}
+
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
+
+
+	//Rows, files and bytes written by one export, and how long it took
+	//
+	public static class ExportResult{
+
+		private final long start = System.nanoTime();
+		private long nanos, rows, bytes;
+		private int sections;
+
+		void finish(){
+			nanos = System.nanoTime() - start;
+		}
+
+		public int getSections(){
+			return sections;
+		}
+
+		public long getRows(){
+			return rows;
+		}
+
+		public long getBytes(){
+			return bytes;
+		}
+
+		public double getMillis(){
+			return nanos / 1000000.0;
+		}
+
+		public String toString(){
+			return String.format("Exported %d rows for %d sections (%.1f MB) in %.2f s, %.0f rows/s",
+					rows, sections, bytes / 1048576.0, getMillis() / 1000, rows / Math.max(nanos / 1000000000.0, 1e-9));
+		}
+	}
+
+
+	//Encodes CSV rows into a shared ByteBuffer and writes the buffer to
+	//	the file whenever it fills
+	//
+	private static class CsvChannelWriter{
+
+		private final File file;
+		private final FileChannel channel;
+		private final ByteBuffer buffer;
+		private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+		private final StringBuilder row = new StringBuilder(256);
+		private long written = 0;
+
+		CsvChannelWriter(File target, ByteBuffer shared) throws IOException{
+			file = target;
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+			buffer = shared;
+			buffer.clear();
+		}
+
+		void write(String text) throws IOException{
+			row.append(text);
+			flushRow();
+		}
+
+		void row(String leading, String middle, String last) throws IOException{
+			row.append(leading).append(middle).append(last).append('\n');
+			flushRow();
+		}
+
+		//Returns the number of bytes in the finished file
+		//
+		long close() throws IOException{
+
+			try{
+				drain();
+			}
+
+			finally{
+				channel.close();
+			}
+
+			return written;
+		}
+
+		//Close after a failure and delete the unfinished file
+		//
+		void abandon(){
+
+			try{
+				channel.close();
+			}
+
+			catch(IOException e){
+				System.err.println(e);
+			}
+
+			file.delete();
+		}
+
+		private void flushRow() throws IOException{
+
+			CharBuffer chars = CharBuffer.wrap(row);
+			CoderResult cr = encoder.encode(chars, buffer, true);
+
+			while(cr.isOverflow()){
+				drain();
+				cr = encoder.encode(chars, buffer, true);
+			}
+
+			encoder.reset();
+			row.setLength(0);
+
+			//Malformed or unmappable text, such as half of a surrogate pair:
+			//	the row would be cut short where it starts
+			//
+			if(cr.isError()){
+				cr.throwException();
+			}
+		}
+
+		private void drain() throws IOException{
+
+			buffer.flip();
+
+			while(buffer.hasRemaining()){
+				written += channel.write(buffer);
+			}
+
+			buffer.clear();
+		}
+	}
+}
@@ -15,7 +15,7 @@ public class WelcomeFrame extends JPanel {
 	
 	private JPanel mainPanel, middleThird, buttonPanel;
 	private JButton btnManageStudents, btnManageClasses, btnManageCourses, btnManageAssignments,
-				btnEnterGrades, btnGenerateReports;
+				btnEnterGrades, btnGenerateReports, btnDiagnostics;
 	
 	
 	public WelcomeFrame() {
@@ -25,6 +25,7 @@ public class WelcomeFrame extends JPanel {
 		JLabel spacer = new JLabel("");
 		JLabel spacer_1 = new JLabel("");
 		JLabel spacer_2 = new JLabel("");
+		JLabel spacer_3 = new JLabel("");
 		JLabel spacer_4 = new JLabel("");
 		JLabel spacer_5 = new JLabel("");
 		JLabel spacer_6 = new JLabel("");
@@ -48,6 +49,7 @@ public class WelcomeFrame extends JPanel {
 		btnEnterGrades = new JButton("Enter Grades");
 		btnGenerateReports = new JButton("Generate Reports");
 		btnManageAssignments = new JButton("Manage Assignments");
+		btnDiagnostics = new JButton("Diagnostics");
 		
 		
 		
@@ -74,6 +76,8 @@ public class WelcomeFrame extends JPanel {
 		buttonPanel.add(spacer_4);
 		buttonPanel.add(btnGenerateReports);
 		buttonPanel.add(spacer_5);
+		buttonPanel.add(btnDiagnostics);
+		buttonPanel.add(spacer_3);
 		
 		
 		//Add the button panel to the middleThird,
@@ -129,6 +133,22 @@ public class WelcomeFrame extends JPanel {
 		btnGenerateReports.addActionListener(gral);
 	}
 	
+	public void diagnosticsActionListener(ActionListener dal){
+		btnDiagnostics.addActionListener(dal);
+	}
+	
+	
+	//The buttons for the cards that read the database.  The main program
+	//	keeps them disabled until the schema is up to date
+	//
+	public void setDatabaseButtonsEnabled(boolean enabled){
+		btnManageStudents.setEnabled(enabled);
+		btnManageCourses.setEnabled(enabled);
+		btnManageClasses.setEnabled(enabled);
+		btnEnterGrades.setEnabled(enabled);
+		btnGenerateReports.setEnabled(enabled);
+	}
+	
 	
 	
 }